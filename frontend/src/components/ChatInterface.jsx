@@ -5,6 +5,7 @@ const ChatInterface = ({ selectedDocument }) => {
   const [question, setQuestion] = useState('');
   const [chatHistory, setChatHistory] = useState([]);
   const [isLoading, setIsLoading] = useState(false);
+  const [streamingId, setStreamingId] = useState(null);
   const [queryMode, setQueryMode] = useState('global'); // 'global' or 'document'
   const chatEndRef = useRef(null);
 
@@ -47,30 +48,31 @@ const ChatInterface = ({ selectedDocument }) => {
     setQuestion('');
     setIsLoading(true);
 
+    const answerId = Date.now() + 1;
     try {
-      let response;
-      if (queryMode === 'global') {
-        response = await documentAPI.askGlobalQuestion(question);
-      } else {
-        response = await documentAPI.askQuestion(selectedDocument.id, question);
-      }
-
-      const aiMessage = {
-        id: Date.now() + 1,
-        type: 'assistant',
-        message: response.data.answer
-      };
-
-      setChatHistory(prev => [...prev, aiMessage]);
+      const documentId = queryMode === 'global' ? null : selectedDocument.id;
+      let started = false;
+      await documentAPI.streamQuestion(documentId, question, (text) => {
+        if (!started) {
+          started = true;
+          setStreamingId(answerId);
+          setChatHistory(prev => [...prev, { id: answerId, type: 'assistant', message: text }]);
+          return;
+        }
+        setChatHistory(prev => prev.map(message =>
+          message.id === answerId ? { ...message, message: message.message + text } : message
+        ));
+      });
     } catch (error) {
       const errorMessage = {
-        id: Date.now() + 1,
+        id: Date.now() + 2,
         type: 'error',
-        message: `Chyba: ${error.response?.data || error.message}`
+        message: `Chyba: ${error.message}`
       };
 
       setChatHistory(prev => [...prev, errorMessage]);
     } finally {
+      setStreamingId(null);
       setIsLoading(false);
     }
   };
@@ -143,7 +145,7 @@ const ChatInterface = ({ selectedDocument }) => {
                 </div>
               </div>
             ))}
-            {isLoading && (
+            {isLoading && !streamingId && (
               <div className="chat-message mr-auto">
                 <div className="bg-white border border-gray-200 rounded-lg p-3">
                   <div className="text-xs text-gray-500 mb-1">DATIFY</div>
@@ -37,6 +37,45 @@ export const documentAPI = {
     });
   },
 
+  // Streams the answer as server-sent events; onToken receives each text fragment as it arrives.
+  // EventSource only supports GET, so the stream is read from fetch and parsed here.
+  streamQuestion: async (documentId, question, onToken) => {
+    const path = documentId ? `/documents/${documentId}/ask/stream` : '/documents/ask/stream';
+    const response = await fetch(`${API_BASE_URL}${path}`, {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+        Accept: 'text/event-stream',
+      },
+      body: JSON.stringify({ question }),
+    });
+    if (!response.ok) {
+      const error = await response.json().catch(() => null);
+      throw new Error(error?.message || `HTTP ${response.status}`);
+    }
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    for (;;) {
+      const { value, done } = await reader.read();
+      if (done) return;
+      buffer += decoder.decode(value, { stream: true });
+
+      let boundary;
+      while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+        const lines = buffer.slice(0, boundary).split('\n');
+        buffer = buffer.slice(boundary + 2);
+        const event = lines.find((line) => line.startsWith('event:'))?.slice(6).trim();
+        const data = lines.filter((line) => line.startsWith('data:')).map((line) => line.slice(5)).join('\n');
+        if (event === 'done') return;
+        const chunk = data ? JSON.parse(data) : { text: '' };
+        if (event === 'error') throw new Error(chunk.text);
+        onToken(chunk.text);
+      }
+    }
+  },
+
   // Invoice endpoints
   getAllInvoices: () => {
     return api.get('/documents/invoices');
@@ -0,0 +1,111 @@
+package com.klepek.datify.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Generated answers keyed by the normalized question and a SHA-256 of the retrieved context.
+ * <p>
+ * The context is part of the key, so an answer is only reused while retrieval still returns exactly the
+ * same chunks: once a document is re-ingested or deleted, its questions retrieve a different context and
+ * miss. Entries that can no longer be hit age out through the TTL and the LRU bound.
+ */
+@Component
+public class AnswerCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?!.]+$");
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final LruCache<Key, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public AnswerCache(@Value("${datify.answer-cache.enabled:true}") boolean enabled,
+                       @Value("${datify.answer-cache.max-entries:1000}") int maxEntries,
+                       @Value("${datify.answer-cache.ttl:PT1H}") Duration ttl,
+                       MeterRegistry meterRegistry) {
+        this(enabled, maxEntries, ttl, System::nanoTime, meterRegistry);
+    }
+
+    AnswerCache(boolean enabled, int maxEntries, Duration ttl, LongSupplier nanoClock, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LruCache<>(maxEntries);
+        this.hits = Counter.builder("datify.answer.cache")
+                .description("Answers served from the cache instead of calling Gemini")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("datify.answer.cache")
+                .description("Answers served from the cache instead of calling Gemini")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public Optional<String> get(String question, String context) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Key key = key(question, context);
+        Entry entry = entries.get(key);
+        if (entry != null && nanoClock.getAsLong() - entry.storedAt() < ttlNanos) {
+            hits.increment();
+            return Optional.of(entry.answer());
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String question, String context, String answer) {
+        if (enabled) {
+            entries.put(key(question, context), new Entry(answer, nanoClock.getAsLong()));
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Case, Unicode composition, runs of whitespace and closing punctuation do not change what is being asked.
+     */
+    static String normalize(String question) {
+        String normalized = Normalizer.normalize(question, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(normalized).replaceAll("").trim();
+    }
+
+    private static Key key(String question, String context) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(context.getBytes(StandardCharsets.UTF_8));
+            return new Key(normalize(question), HexFormat.of().formatHex(digest));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Key(String question, String contextHash) {
+    }
+
+    private record Entry(String answer, long storedAt) {
+    }
+}
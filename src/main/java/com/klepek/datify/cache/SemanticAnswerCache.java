@@ -0,0 +1,164 @@
+package com.klepek.datify.cache;
+
+import com.klepek.datify.embedding.EmbeddingCache;
+import com.klepek.datify.vectorstore.VectorMath;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Reuses answers for paraphrased questions: a question whose embedding is close enough to one already answered
+ * in the same scope (a single document, or all documents) gets the stored answer without retrieval or a Gemini
+ * call.
+ * <p>
+ * Unlike {@link AnswerCache} the key does not include the context, so entries are dropped explicitly when a
+ * document's chunks change: its own scope and the global one. Entries live in insertion order, bounded by
+ * {@code maxEntries}, and a lookup scans the entries of its scope, which for a few thousand questions costs far
+ * less than the embedding call. Questions are embedded through the persistent embedding cache, so storing an
+ * answer after a miss, and the vector search in between, reuse the lookup's embedding.
+ */
+@Component
+public class SemanticAnswerCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemanticAnswerCache.class);
+
+    public static final String GLOBAL_SCOPE = "global";
+
+    private final EmbeddingModel embeddingModel;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public SemanticAnswerCache(EmbeddingModel embeddingModel,
+                               EmbeddingCache embeddingCache,
+                               @Value("${datify.semantic-cache.enabled:true}") boolean enabled,
+                               @Value("${datify.semantic-cache.similarity-threshold:0.92}") double similarityThreshold,
+                               @Value("${datify.semantic-cache.max-entries:2000}") int maxEntries,
+                               @Value("${datify.semantic-cache.ttl:PT1H}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this(embeddingCache.wrap(embeddingModel), enabled, similarityThreshold, maxEntries, ttl, System::nanoTime,
+                meterRegistry);
+    }
+
+    SemanticAnswerCache(EmbeddingModel embeddingModel, boolean enabled, double similarityThreshold, int maxEntries,
+                        Duration ttl, LongSupplier nanoClock, MeterRegistry meterRegistry) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.embeddingModel = embeddingModel;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.hits = Counter.builder("datify.answer.semantic-cache")
+                .description("Questions answered from a paraphrase, each one a Gemini call saved")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("datify.answer.semantic-cache")
+                .description("Questions answered from a paraphrase, each one a Gemini call saved")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public static String documentScope(Long documentId) {
+        return "document:" + documentId;
+    }
+
+    /**
+     * The stored answer of the most similar earlier question in the scope, if it passes the threshold.
+     */
+    public Optional<String> find(String scope, String question) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        float[] embedding = embed(question);
+        long now = nanoClock.getAsLong();
+
+        Entry best = null;
+        float bestSimilarity = 0;
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (now - entry.storedAt() >= ttlNanos) {
+                    iterator.remove();
+                    continue;
+                }
+                if (!entry.scope().equals(scope) || entry.embedding().length != embedding.length) {
+                    continue;
+                }
+                float similarity = VectorMath.dot(embedding, entry.embedding());
+                if (similarity >= similarityThreshold && (best == null || similarity > bestSimilarity)) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+
+        if (best == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        logger.debug("Question matched earlier question \"{}\" in {} (similarity {}); {} Gemini calls saved so far",
+                best.question(), scope, String.format("%.3f", bestSimilarity), (long) hits.count());
+        return Optional.of(best.answer());
+    }
+
+    public void put(String scope, String question, String answer) {
+        if (!enabled || answer == null || answer.isBlank()) {
+            return;
+        }
+        Entry entry = new Entry(scope, question, embed(question), answer, nanoClock.getAsLong());
+        synchronized (entries) {
+            entries.addLast(entry);
+            while (entries.size() > maxEntries) {
+                entries.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Drops answers that may have been drawn from the document: those asked about it and all global ones.
+     */
+    public void invalidateDocument(Long documentId) {
+        String scope = documentScope(documentId);
+        synchronized (entries) {
+            entries.removeIf(entry -> entry.scope().equals(scope) || entry.scope().equals(GLOBAL_SCOPE));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long savedCalls() {
+        return (long) hits.count();
+    }
+
+    private float[] embed(String question) {
+        return VectorMath.normalize(embeddingModel.embed(question));
+    }
+
+    private record Entry(String scope, String question, float[] embedding, String answer, long storedAt) {
+    }
+}
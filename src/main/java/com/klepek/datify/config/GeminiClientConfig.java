@@ -0,0 +1,94 @@
+package com.klepek.datify.config;
+
+import com.klepek.datify.resilience.CircuitBreaker;
+import com.klepek.datify.resilience.RateLimiter;
+import com.klepek.datify.resilience.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class GeminiClientConfig {
+
+    /**
+     * Dedicated pool for the Gemini API. Requests wait at most {@code pending-acquire-timeout} for a connection
+     * and only {@code pending-acquire-max-count} may wait at all, so an outage cannot queue unbounded work.
+     * Idle connections are evicted before the server side closes them. Pool usage is published as
+     * {@code reactor.netty.connection.provider.*} metrics.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider geminiConnectionProvider(
+            @Value("${datify.gemini.pool.max-connections:50}") int maxConnections,
+            @Value("${datify.gemini.pool.pending-acquire-max-count:200}") int pendingAcquireMaxCount,
+            @Value("${datify.gemini.pool.pending-acquire-timeout:PT5S}") Duration pendingAcquireTimeout,
+            @Value("${datify.gemini.pool.max-idle-time:PT30S}") Duration maxIdleTime,
+            @Value("${datify.gemini.pool.max-life-time:PT5M}") Duration maxLifeTime) {
+        return ConnectionProvider.builder("gemini")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * The response timeout bounds the gap between reads, so it also catches a stream that stalls midway; the
+     * overall deadline of a call is applied by the Gemini service.
+     */
+    @Bean
+    public WebClient geminiWebClient(WebClient.Builder webClientBuilder, ConnectionProvider geminiConnectionProvider,
+                                     @Value("${datify.gemini.connect-timeout:PT5S}") Duration connectTimeout,
+                                     @Value("${datify.gemini.response-timeout:PT30S}") Duration responseTimeout) {
+        HttpClient httpClient = HttpClient.create(geminiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+        return webClientBuilder.clone()
+                .baseUrl("https://generativelanguage.googleapis.com/v1beta")
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    @Bean
+    public CircuitBreaker geminiCircuitBreaker(
+            @Value("${datify.gemini.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${datify.gemini.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${datify.gemini.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${datify.gemini.circuit-breaker.open-duration:PT30S}") Duration openDuration,
+            @Value("${datify.gemini.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+            MeterRegistry meterRegistry) {
+        return new CircuitBreaker("gemini", windowSize, minimumCalls, failureRateThreshold, openDuration,
+                halfOpenCalls, meterRegistry);
+    }
+
+    /**
+     * Shared by every Gemini call, including retries and invoice extraction, so the sum stays within the
+     * project quota.
+     */
+    @Bean
+    public RateLimiter geminiRateLimiter(@Value("${datify.gemini.rate-limit.requests-per-minute:60}") int requestsPerMinute,
+                                         @Value("${datify.gemini.rate-limit.burst:10}") int burst,
+                                         @Value("${datify.gemini.rate-limit.max-wait:PT10S}") Duration maxWait,
+                                         MeterRegistry meterRegistry) {
+        return new RateLimiter("gemini", requestsPerMinute, burst, maxWait, meterRegistry);
+    }
+
+    @Bean
+    public SingleFlight<List<String>, String> geminiSingleFlight(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("gemini", meterRegistry);
+    }
+}
@@ -0,0 +1,30 @@
+package com.klepek.datify.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class IngestionConfig {
+
+    /**
+     * Bounded pool running the extraction, embedding and invoice stages of asynchronous uploads.
+     * Not a default candidate, so Spring Boot keeps its own application task executor.
+     */
+    @Bean(defaultCandidate = false)
+    public ThreadPoolTaskExecutor ingestionExecutor(@Value("${datify.ingestion.threads:4}") int threads,
+                                                    @Value("${datify.ingestion.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ingest-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,59 @@
+package com.klepek.datify.config;
+
+import com.klepek.datify.embedding.MicroBatchingEmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.transformers.TransformersEmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * In-process ONNX embeddings from spring-ai-transformers, selected with
+ * {@code spring.ai.model.embedding.text=transformers} (the {@code offline} profile), which also switches off
+ * the Vertex AI embedding auto-configuration. No network is needed: the default all-MiniLM-L6-v2 model and
+ * tokenizer ship inside the spring-ai-transformers jar.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.ai.model.embedding.text", havingValue = "transformers")
+public class LocalEmbeddingConfig {
+
+    /**
+     * Bounded pool running the ONNX forward passes. Each pass already uses several cores inside ONNX Runtime,
+     * so a couple of threads are enough to keep the CPU busy.
+     */
+    @Bean(defaultCandidate = false)
+    public ThreadPoolTaskExecutor embeddingExecutor(@Value("${datify.embedding.local.threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads);
+        executor.setThreadNamePrefix("embed-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean
+    public EmbeddingModel localEmbeddingModel(@Qualifier("embeddingExecutor") ThreadPoolTaskExecutor embeddingExecutor,
+                                              @Value("${datify.embedding.local.model-uri:}") String modelUri,
+                                              @Value("${datify.embedding.local.tokenizer-uri:}") String tokenizerUri,
+                                              @Value("${datify.embedding.local.threads:2}") int threads,
+                                              @Value("${datify.embedding.local.max-batch-size:64}") int maxBatchSize,
+                                              @Value("${datify.embedding.local.queue-capacity:256}") int queueCapacity) throws Exception {
+        TransformersEmbeddingModel transformers = new TransformersEmbeddingModel();
+        if (!modelUri.isBlank()) {
+            transformers.setModelResource(modelUri);
+        }
+        if (!tokenizerUri.isBlank()) {
+            transformers.setTokenizerResource(tokenizerUri);
+        }
+        transformers.afterPropertiesSet();
+        return new MicroBatchingEmbeddingModel(transformers, embeddingExecutor, threads, maxBatchSize, queueCapacity);
+    }
+}
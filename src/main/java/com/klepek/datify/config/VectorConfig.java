@@ -1,16 +1,117 @@
 package com.klepek.datify.config;
 
+import com.klepek.datify.embedding.EmbeddingCache;
+import com.klepek.datify.embedding.MaxSizeBatchingStrategy;
+import com.klepek.datify.search.ChunkLookup;
+import com.klepek.datify.vectorstore.ExactVectorIndex;
+import com.klepek.datify.vectorstore.HnswIndex;
+import com.klepek.datify.vectorstore.MappedVectorStore;
+import com.klepek.datify.vectorstore.QuantizedVectorIndex;
+import com.klepek.datify.vectorstore.VectorIndex;
+import com.klepek.datify.vectorstore.VectorIndexEndpoint;
+import com.klepek.datify.vectorstore.VectorPartition;
+import com.klepek.datify.vectorstore.VectorShard;
+import com.klepek.datify.vectorstore.VectorShards;
+import com.klepek.datify.vectorstore.VectorStoreCompactor;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.ai.embedding.BatchingStrategy;
 import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 
 @Configuration
+@EnableScheduling
 public class VectorConfig {
 
     @Bean
-    public VectorStore vectorStore(EmbeddingModel embeddingModel) {
-        return SimpleVectorStore.builder(embeddingModel).build();
+    public BatchingStrategy embeddingBatchingStrategy(@Value("${datify.embedding.max-batch-size:250}") int maxBatchSize,
+                                                      @Value("${datify.embedding.max-batch-tokens:20000}") int maxBatchTokens) {
+        return new MaxSizeBatchingStrategy(
+                new TokenCountBatchingStrategy(EncodingType.CL100K_BASE, maxBatchTokens, 0.1),
+                maxBatchSize);
+    }
+
+    /**
+     * Both stores embed through the persistent cache, so re-ingested chunks and repeated questions
+     * are never sent to the embedding model twice.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "datify.vectorstore.type", havingValue = "mapped", matchIfMissing = true)
+    public MappedVectorStore mappedVectorStore(EmbeddingModel embeddingModel, BatchingStrategy embeddingBatchingStrategy,
+                                               EmbeddingCache embeddingCache,
+                                               @Value("${datify.vectorstore.dir:./data/vectors}") Path directory,
+                                               @Value("${datify.vectorstore.shards:1}") int shardCount,
+                                               @Value("${datify.vectorstore.search-parallelism:0}") int parallelism,
+                                               @Value("${datify.vectorstore.segment-capacity:65536}") int segmentCapacity,
+                                               @Value("${datify.vectorstore.index:hnsw}") String indexType,
+                                               @Value("${datify.vectorstore.hnsw.m:16}") int m,
+                                               @Value("${datify.vectorstore.hnsw.ef-construction:200}") int efConstruction,
+                                               @Value("${datify.vectorstore.hnsw.ef-search:64}") int efSearch,
+                                               @Value("${datify.vectorstore.filter.exact-scan-limit:10000}") int exactScanLimit,
+                                               @Value("${datify.vectorstore.quantization.encoding:none}") String encoding,
+                                               @Value("${datify.vectorstore.quantization.oversample:0}") int oversample) throws IOException {
+        VectorShards shards = VectorShards.open(directory, shardCount, parallelism, shardDirectory ->
+                VectorShard.open(shardDirectory, segmentCapacity, exactScanLimit, (partition, generationDirectory) -> {
+                    VectorIndex scanIndex = switch (encoding) {
+                        case "none" -> new ExactVectorIndex(partition);
+                        case "int8" -> QuantizedVectorIndex.open(partition, QuantizedVectorIndex.Encoding.INT8, oversample);
+                        case "binary" -> QuantizedVectorIndex.open(partition, QuantizedVectorIndex.Encoding.BINARY, oversample);
+                        default -> throw new IllegalArgumentException("Unknown datify.vectorstore.quantization.encoding: " + encoding);
+                    };
+                    VectorIndex index = switch (indexType) {
+                        case "exact" -> scanIndex;
+                        case "hnsw" -> HnswIndex.open(partition, generationDirectory.resolve("hnsw.graph"), m, efConstruction, efSearch);
+                        default -> throw new IllegalArgumentException("Unknown datify.vectorstore.index: " + indexType);
+                    };
+                    return new VectorShard.Indexes(index, scanIndex);
+                }));
+        return new MappedVectorStore(embeddingCache.wrap(embeddingModel), embeddingBatchingStrategy, shards);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datify.vectorstore.type", havingValue = "mapped", matchIfMissing = true)
+    public VectorIndexEndpoint vectorIndexEndpoint(MappedVectorStore mappedVectorStore) {
+        return new VectorIndexEndpoint(mappedVectorStore);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datify.vectorstore.type", havingValue = "mapped", matchIfMissing = true)
+    public VectorStoreCompactor vectorStoreCompactor(MappedVectorStore mappedVectorStore,
+                                                     @Value("${datify.vectorstore.compaction.tombstone-ratio:0.2}") double tombstoneRatio) {
+        return new VectorStoreCompactor(mappedVectorStore, tombstoneRatio);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datify.vectorstore.type", havingValue = "mapped", matchIfMissing = true)
+    public ChunkLookup chunkLookup(MappedVectorStore mappedVectorStore) {
+        return mappedVectorStore::findByIds;
+    }
+
+    /**
+     * The in-memory store cannot be queried by id, so lexical hits only re-rank chunks it found itself.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "datify.vectorstore.type", havingValue = "simple")
+    public ChunkLookup simpleChunkLookup() {
+        return ids -> List.of();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datify.vectorstore.type", havingValue = "simple")
+    public VectorStore simpleVectorStore(EmbeddingModel embeddingModel, BatchingStrategy embeddingBatchingStrategy,
+                                         EmbeddingCache embeddingCache) {
+        return SimpleVectorStore.builder(embeddingCache.wrap(embeddingModel))
+                .batchingStrategy(embeddingBatchingStrategy)
+                .build();
     }
 }
@@ -0,0 +1,34 @@
+package com.klepek.datify.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * Time for retrieval and embedding the question before the Gemini call starts.
+     */
+    private static final Duration RETRIEVAL_ALLOWANCE = Duration.ofSeconds(15);
+
+    private final Duration asyncRequestTimeout;
+
+    public WebConfig(@Value("${datify.gemini.deadline:PT60S}") Duration deadline,
+                     @Value("${datify.gemini.rate-limit.max-wait:PT10S}") Duration rateLimitWait) {
+        this.asyncRequestTimeout = deadline.plus(rateLimitWait).plus(RETRIEVAL_ALLOWANCE);
+    }
+
+    /**
+     * Questions are answered asynchronously, and the container's default timeout (30 s on Tomcat) is shorter
+     * than a Gemini call may legitimately take. The timeout is derived from the Gemini deadline and rate-limit
+     * wait, so a slow but valid answer is not cut off with a 503 and raising either setting raises it too.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncRequestTimeout.toMillis());
+    }
+}
@@ -7,16 +7,22 @@ import com.klepek.datify.entity.InvoiceStatus;
 import com.klepek.datify.exception.DocumentNotFoundException;
 import com.klepek.datify.exception.GeminiApiException;
 import com.klepek.datify.exception.TextExtractionException;
+import com.klepek.datify.ingestion.IngestionJob;
 import com.klepek.datify.service.DocumentService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.URI;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -43,6 +49,24 @@ public class DocumentController {
         return ResponseEntity.ok(new DocumentResponse(document));
     }
 
+    @PostMapping(value = "/upload", params = "async=true")
+    public ResponseEntity<IngestionJobResponse> submitDocument(@RequestParam("file") MultipartFile file) throws IOException {
+        logger.debug("Async upload - Size: {}, ContentType: {}", file.getSize(), file.getContentType());
+
+        IngestionJob job = documentService.submitDocument(file);
+        logger.debug("Document accepted for ingestion with job ID: {}", job.getId());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/documents/jobs/" + job.getId()))
+                .body(new IngestionJobResponse(job));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestionJobResponse> getIngestionJob(@PathVariable String jobId) {
+        return documentService.getIngestionJob(jobId)
+                .map(job -> ResponseEntity.ok(new IngestionJobResponse(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping
     public ResponseEntity<List<DocumentResponse>> getAllDocuments() {
         List<Document> documents = documentService.getAllDocuments();
@@ -63,31 +87,62 @@ public class DocumentController {
                 .orElseThrow(() -> new DocumentNotFoundException(id));
     }
 
-    @PostMapping("/{id}/ask")
-    public ResponseEntity<AnswerResponse> askQuestion(@PathVariable Long id, @Valid @RequestBody QuestionRequest request) throws GeminiApiException {
-        Document document = documentService.getDocumentById(id)
-                .orElseThrow(() -> new DocumentNotFoundException(id));
-
-        String answer = documentService.askQuestion(id, request.getQuestion());
-
-        AnswerResponse response = new AnswerResponse(
-                answer,
-                request.getQuestion(),
-                document.getId(),
-                document.getFilename()
-        );
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteDocument(@PathVariable Long id) {
+        documentService.deleteDocument(id);
+        logger.debug("Document {} deleted", id);
+        return ResponseEntity.noContent().build();
+    }
 
-        return ResponseEntity.ok(response);
+    /**
+     * Answered asynchronously: the servlet thread is released before the document is even looked up, and an
+     * unknown id reaches the exception handlers as a failed Mono.
+     */
+    @PostMapping("/{id}/ask")
+    public Mono<ResponseEntity<AnswerResponse>> askQuestion(@PathVariable Long id, @Valid @RequestBody QuestionRequest request) {
+        return documentService.askQuestionAsync(id, request.getQuestion())
+                .map(ResponseEntity::ok);
     }
 
     @PostMapping("/ask")
-    public ResponseEntity<GlobalAnswerResponse> askGlobalQuestion(@Valid @RequestBody QuestionRequest request) throws GeminiApiException {
+    public Mono<ResponseEntity<GlobalAnswerResponse>> askGlobalQuestion(@Valid @RequestBody QuestionRequest request) {
         logger.debug("Received global question: {}", request.getQuestion());
 
-        String answer = documentService.askGlobalQuestion(request.getQuestion());
+        return documentService.askGlobalQuestionAsync(request.getQuestion())
+                .map(answer -> ResponseEntity.ok(new GlobalAnswerResponse(answer, request.getQuestion())));
+    }
+
+    /**
+     * Streams the answer as {@code token} events while Gemini generates it, then a {@code done} event. A
+     * failure after the stream has started is sent as an {@code error} event, since the status is already 200;
+     * like the exception handlers, it carries a generic message rather than the upstream error. The document is
+     * looked up inside the stream as well, so an unknown id is reported the same way.
+     */
+    @PostMapping(value = "/{id}/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<AnswerChunk>> askQuestionStream(@PathVariable Long id, @Valid @RequestBody QuestionRequest request) {
+        return toEvents(documentService.askQuestionStream(id, request.getQuestion()));
+    }
+
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<AnswerChunk>> askGlobalQuestionStream(@Valid @RequestBody QuestionRequest request) {
+        logger.debug("Received streamed global question: {}", request.getQuestion());
+        return toEvents(documentService.askGlobalQuestionStream(request.getQuestion()));
+    }
 
-        GlobalAnswerResponse response = new GlobalAnswerResponse(answer, request.getQuestion());
-        return ResponseEntity.ok(response);
+    private Flux<ServerSentEvent<AnswerChunk>> toEvents(Flux<String> fragments) {
+        return fragments
+                .map(fragment -> ServerSentEvent.builder(new AnswerChunk(fragment)).event("token").build())
+                .concatWithValues(ServerSentEvent.builder(new AnswerChunk("")).event("done").build())
+                .onErrorResume(e -> {
+                    logger.error("Streaming answer failed", e);
+                    String message = switch (e) {
+                        case DocumentNotFoundException notFound -> "Document not found.";
+                        case GeminiApiException unavailable ->
+                                "AI service is currently unavailable. Please try again later.";
+                        default -> "Failed to generate answer.";
+                    };
+                    return Flux.just(ServerSentEvent.builder(new AnswerChunk(message)).event("error").build());
+                });
     }
 
     // Invoice endpoints
@@ -0,0 +1,24 @@
+package com.klepek.datify.dto;
+
+/**
+ * Payload of one server-sent event of a streamed answer. The text is sent as JSON because SSE strips the
+ * leading space of a data line, which would glue streamed words together.
+ */
+public class AnswerChunk {
+
+    private String text;
+
+    public AnswerChunk() {}
+
+    public AnswerChunk(String text) {
+        this.text = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
@@ -10,6 +10,7 @@ public class DocumentResponse {
     private String contentType;
     private LocalDateTime uploadedAt;
     private int textLength;
+    private Integer chunkCount;
 
     public DocumentResponse() {}
 
@@ -18,7 +19,12 @@ public class DocumentResponse {
         this.filename = document.getFilename();
         this.contentType = document.getContentType();
         this.uploadedAt = document.getUploadedAt();
-        this.textLength = document.getExtractedText() != null ? document.getExtractedText().length() : 0;
+        if (document.getTextLength() != null) {
+            this.textLength = Math.toIntExact(document.getTextLength());
+        } else {
+            this.textLength = document.getExtractedText() != null ? document.getExtractedText().length() : 0;
+        }
+        this.chunkCount = document.getChunkCount();
     }
 
     public Long getId() {
@@ -60,4 +66,12 @@ public class DocumentResponse {
     public void setTextLength(int textLength) {
         this.textLength = textLength;
     }
-}
\ No newline at end of file
+
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(Integer chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+}
@@ -0,0 +1,50 @@
+package com.klepek.datify.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * The parts of a {@code generateContent} response (or of one streamed chunk) that are read, decoded straight
+ * from the response body. Everything else, such as safety ratings and usage metadata, is skipped by the parser.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GeminiResponse(List<Candidate> candidates) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Candidate(Content content, String finishReason) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Content(List<Part> parts) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Part(String text) {
+    }
+
+    public boolean hasText() {
+        return candidates != null && !candidates.isEmpty() && candidates.get(0).content() != null
+                && candidates.get(0).content().parts() != null && !candidates.get(0).content().parts().isEmpty();
+    }
+
+    /**
+     * Text of the first candidate with its parts joined; empty when there is none.
+     */
+    public String text() {
+        if (!hasText()) {
+            return "";
+        }
+        List<Part> parts = candidates.get(0).content().parts();
+        if (parts.size() == 1) {
+            return parts.get(0).text() == null ? "" : parts.get(0).text();
+        }
+        StringBuilder text = new StringBuilder();
+        for (Part part : parts) {
+            if (part.text() != null) {
+                text.append(part.text());
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package com.klepek.datify.dto;
+
+import com.klepek.datify.ingestion.IngestionJob;
+import com.klepek.datify.ingestion.IngestionStage;
+import com.klepek.datify.ingestion.StageStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class IngestionJobResponse {
+
+    private String jobId;
+    private String filename;
+    private StageStatus status;
+    private Long documentId;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private List<StageResponse> stages;
+
+    public IngestionJobResponse() {}
+
+    public IngestionJobResponse(IngestionJob job) {
+        this.jobId = job.getId();
+        this.filename = job.getFilename();
+        this.status = job.getStatus();
+        this.documentId = job.getDocumentId();
+        this.createdAt = job.getCreatedAt();
+        this.finishedAt = job.getFinishedAt();
+        this.stages = job.getStages().values().stream()
+                .map(StageResponse::new)
+                .toList();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public StageStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(StageStatus status) {
+        this.status = status;
+    }
+
+    public Long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public List<StageResponse> getStages() {
+        return stages;
+    }
+
+    public void setStages(List<StageResponse> stages) {
+        this.stages = stages;
+    }
+
+    public static class StageResponse {
+
+        private IngestionStage stage;
+        private StageStatus status;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private String message;
+
+        public StageResponse() {}
+
+        public StageResponse(IngestionJob.StageProgress progress) {
+            this.stage = progress.getStage();
+            this.status = progress.getStatus();
+            this.startedAt = progress.getStartedAt();
+            this.finishedAt = progress.getFinishedAt();
+            this.message = progress.getMessage();
+        }
+
+        public IngestionStage getStage() {
+            return stage;
+        }
+
+        public void setStage(IngestionStage stage) {
+            this.stage = stage;
+        }
+
+        public StageStatus getStatus() {
+            return status;
+        }
+
+        public void setStatus(StageStatus status) {
+            this.status = status;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public void setStartedAt(LocalDateTime startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        public LocalDateTime getFinishedAt() {
+            return finishedAt;
+        }
+
+        public void setFinishedAt(LocalDateTime finishedAt) {
+            this.finishedAt = finishedAt;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
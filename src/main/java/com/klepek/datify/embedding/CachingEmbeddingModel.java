@@ -0,0 +1,74 @@
+package com.klepek.datify.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decorates an {@link EmbeddingModel} with the persistent {@link EmbeddingCache}. Only texts that have never
+ * been embedded by the configured model are sent to the delegate, in a single request.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingCache cache;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, EmbeddingCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> inputs = request.getInstructions();
+        float[][] vectors = new float[inputs.size()][];
+        Map<String, List<Integer>> missing = new LinkedHashMap<>();
+
+        for (int i = 0; i < inputs.size(); i++) {
+            vectors[i] = cache.get(inputs.get(i));
+            if (vectors[i] == null) {
+                missing.computeIfAbsent(inputs.get(i), text -> new ArrayList<>()).add(i);
+            }
+        }
+
+        EmbeddingResponse delegateResponse = null;
+        if (!missing.isEmpty()) {
+            List<String> texts = new ArrayList<>(missing.keySet());
+            delegateResponse = delegate.call(new EmbeddingRequest(texts, request.getOptions()));
+            List<Embedding> results = delegateResponse.getResults();
+            for (int i = 0; i < texts.size(); i++) {
+                float[] vector = results.get(i).getOutput();
+                cache.put(texts.get(i), vector);
+                for (int index : missing.get(texts.get(i))) {
+                    vectors[index] = vector;
+                }
+            }
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return delegateResponse != null
+                ? new EmbeddingResponse(embeddings, delegateResponse.getMetadata())
+                : new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,202 @@
+package com.klepek.datify.embedding;
+
+import com.klepek.datify.cache.LruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent embedding cache keyed by (model name, SHA-256 of the text).
+ * <p>
+ * Vectors are appended to a single log file; only the key-to-offset index lives on the heap, with an LRU of
+ * recently used vectors in front of the file. The index is rebuilt by scanning the log at startup, and a
+ * partially written record at the end of the log (e.g. after a crash) is truncated away.
+ */
+@Component
+public class EmbeddingCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingCache.class);
+
+    private static final int KEY_BYTES = 32;
+
+    private final String modelName;
+    private final FileChannel channel;
+    private final Map<Key, Long> offsets = new HashMap<>();
+    private final LruCache<Key, float[]> recent;
+    private final Counter hits;
+    private final Counter misses;
+
+    public EmbeddingCache(@Value("${datify.embedding.cache.dir:./data/embedding-cache}") Path directory,
+                          @Value("${datify.embedding.cache.memory-entries:10000}") int memoryEntries,
+                          @Value("${datify.embedding.model-name:${spring.ai.vertex.ai.embedding.text.options.model:default}}") String modelName,
+                          MeterRegistry meterRegistry) throws IOException {
+        this.modelName = modelName;
+        this.recent = new LruCache<>(memoryEntries);
+        this.hits = Counter.builder("datify.embedding.cache")
+                .description("Embedding lookups served from the cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("datify.embedding.cache")
+                .description("Embedding lookups served from the cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+
+        Files.createDirectories(directory);
+        this.channel = FileChannel.open(directory.resolve("embeddings.log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        loadIndex();
+        logger.info("Embedding cache opened with {} entries for model {}", offsets.size(), modelName);
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public CachingEmbeddingModel wrap(EmbeddingModel embeddingModel) {
+        return new CachingEmbeddingModel(embeddingModel, this);
+    }
+
+    public float[] get(String text) {
+        Key key = key(text);
+        float[] vector = recent.get(key);
+        if (vector == null) {
+            vector = read(key);
+            if (vector != null) {
+                recent.put(key, vector);
+            }
+        }
+        (vector != null ? hits : misses).increment();
+        return vector;
+    }
+
+    public void put(String text, float[] vector) {
+        Key key = key(text);
+        recent.put(key, vector);
+        synchronized (this) {
+            if (offsets.containsKey(key)) {
+                return;
+            }
+            try {
+                long offset = channel.size();
+                ByteBuffer record = ByteBuffer.allocate(KEY_BYTES + Integer.BYTES + vector.length * Float.BYTES);
+                key.writeTo(record);
+                record.putInt(vector.length);
+                record.asFloatBuffer().put(vector);
+                record.rewind();
+                while (record.hasRemaining()) {
+                    channel.write(record, offset + record.position());
+                }
+                offsets.put(key, offset);
+            } catch (IOException e) {
+                logger.warn("Could not persist embedding to cache", e);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return offsets.size();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private synchronized float[] read(Key key) {
+        Long offset = offsets.get(key);
+        if (offset == null) {
+            return null;
+        }
+        try {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(header, offset + KEY_BYTES);
+            int dimensions = header.flip().getInt();
+
+            ByteBuffer body = ByteBuffer.allocate(dimensions * Float.BYTES);
+            long position = offset + KEY_BYTES + Integer.BYTES;
+            while (body.hasRemaining()) {
+                if (channel.read(body, position + body.position()) < 0) {
+                    throw new EOFException("Truncated embedding record at offset " + offset);
+                }
+            }
+            float[] vector = new float[dimensions];
+            body.flip().asFloatBuffer().get(vector);
+            return vector;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        long offset = 0;
+        long size = channel.size();
+        channel.position(0);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        byte[] keyBytes = new byte[KEY_BYTES];
+        try {
+            while (offset < size) {
+                input.readFully(keyBytes);
+                int dimensions = input.readInt();
+                long recordSize = KEY_BYTES + Integer.BYTES + (long) dimensions * Float.BYTES;
+                if (dimensions <= 0 || offset + recordSize > size) {
+                    break;
+                }
+                input.skipNBytes((long) dimensions * Float.BYTES);
+                offsets.put(Key.of(keyBytes), offset);
+                offset += recordSize;
+            }
+        } catch (EOFException e) {
+            // Partial record at the end of the log; truncated below.
+        }
+        if (offset < size) {
+            logger.warn("Truncating {} bytes of incomplete embedding cache data", size - offset);
+            channel.truncate(offset);
+        }
+    }
+
+    private Key key(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return Key.of(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Key(long a, long b, long c, long d) {
+
+        static Key of(byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new Key(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putLong(a).putLong(b).putLong(c).putLong(d);
+        }
+    }
+}
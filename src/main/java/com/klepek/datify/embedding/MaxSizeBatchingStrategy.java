@@ -0,0 +1,36 @@
+package com.klepek.datify.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Caps embedding batches at the model's maximum number of inputs per request, on top of whatever
+ * token-based batching the delegate applies.
+ */
+public class MaxSizeBatchingStrategy implements BatchingStrategy {
+
+    private final BatchingStrategy delegate;
+    private final int maxBatchSize;
+
+    public MaxSizeBatchingStrategy(BatchingStrategy delegate, int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Maximum batch size must be positive");
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public List<List<Document>> batch(List<Document> documents) {
+        List<List<Document>> batches = new ArrayList<>();
+        for (List<Document> batch : delegate.batch(documents)) {
+            for (int start = 0; start < batch.size(); start += maxBatchSize) {
+                batches.add(batch.subList(start, Math.min(start + maxBatchSize, batch.size())));
+            }
+        }
+        return batches;
+    }
+}
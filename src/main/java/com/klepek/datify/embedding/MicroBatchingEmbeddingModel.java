@@ -0,0 +1,161 @@
+package com.klepek.datify.embedding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Coalesces concurrent embedding requests into shared batches for an in-process model, where one forward pass
+ * over many texts is far cheaper than many passes over few.
+ * <p>
+ * Callers enqueue their texts and block. A dispatcher thread waits for one of {@code concurrency} worker slots,
+ * then drains everything queued so far, up to {@code maxBatchSize} texts, into a single delegate call on the
+ * executor. Batches therefore stay small (and latency low) when the model is idle and grow while every worker
+ * is busy. A request is never split, so one larger than {@code maxBatchSize} runs alone. The queue is bounded;
+ * callers block once it is full.
+ */
+public class MicroBatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatchingEmbeddingModel.class);
+
+    private final EmbeddingModel delegate;
+    private final Executor executor;
+    private final Semaphore workers;
+    private final int maxBatchSize;
+    private final BlockingQueue<Pending> queue;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public MicroBatchingEmbeddingModel(EmbeddingModel delegate, Executor executor, int concurrency, int maxBatchSize,
+                                       int queueCapacity) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.workers = new Semaphore(concurrency);
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.dispatcher = Thread.ofPlatform().name("embed-dispatcher").daemon().start(this::dispatch);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        if (texts.isEmpty()) {
+            return new EmbeddingResponse(List.of());
+        }
+        if (!running) {
+            throw shutDown();
+        }
+        Pending pending = new Pending(texts, new CompletableFuture<>());
+        try {
+            queue.put(pending);
+            // The dispatcher fails what is queued when it stops; a request queued after that would wait forever
+            if (!running && queue.remove(pending)) {
+                pending.result().completeExceptionally(shutDown());
+            }
+            List<float[]> vectors = pending.result().get();
+            List<Embedding> embeddings = new ArrayList<>(vectors.size());
+            for (int i = 0; i < vectors.size(); i++) {
+                embeddings.add(new Embedding(vectors.get(i), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for embeddings", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Embedding failed", e.getCause());
+        }
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private void dispatch() {
+        List<Pending> batch = new ArrayList<>();
+        while (running) {
+            try {
+                batch.add(queue.take());
+                workers.acquire();
+            } catch (InterruptedException e) {
+                break;
+            }
+            int texts = batch.get(0).texts().size();
+            Pending next;
+            while ((next = queue.peek()) != null && texts + next.texts().size() <= maxBatchSize) {
+                batch.add(queue.poll());
+                texts += next.texts().size();
+            }
+
+            List<Pending> submitted = List.copyOf(batch);
+            batch.clear();
+            try {
+                executor.execute(() -> run(submitted));
+            } catch (RuntimeException e) {
+                workers.release();
+                submitted.forEach(pending -> pending.result().completeExceptionally(e));
+            }
+        }
+
+        queue.drainTo(batch);
+        IllegalStateException shutdown = shutDown();
+        batch.forEach(pending -> pending.result().completeExceptionally(shutdown));
+    }
+
+    private static IllegalStateException shutDown() {
+        return new IllegalStateException("Embedding model is shut down");
+    }
+
+    private void run(List<Pending> batch) {
+        try {
+            List<String> texts = new ArrayList<>();
+            batch.forEach(pending -> texts.addAll(pending.texts()));
+            long start = System.nanoTime();
+            List<float[]> vectors = delegate.embed(texts);
+            logger.debug("Embedded {} texts from {} requests in {} ms", texts.size(), batch.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+
+            int offset = 0;
+            for (Pending pending : batch) {
+                int size = pending.texts().size();
+                pending.result().complete(vectors.subList(offset, offset + size));
+                offset += size;
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        } finally {
+            workers.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+    }
+
+    private record Pending(List<String> texts, CompletableFuture<List<float[]>> result) {
+    }
+}
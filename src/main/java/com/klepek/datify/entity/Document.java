@@ -18,12 +18,22 @@ public class Document {
     @Column(nullable = false)
     private String contentType;
 
+    // Only the start of a long text is stored here; see textLength
     @Column(nullable = false, columnDefinition = "TEXT")
     private String extractedText;
 
+    @Column
+    private Long textLength;
+
     @Column(nullable = false)
     private LocalDateTime uploadedAt;
 
+    @Column
+    private Integer chunkCount;
+
+    @Column(length = 64, unique = true)
+    private String contentHash;
+
 
     public Document() {
         this.uploadedAt = LocalDateTime.now();
@@ -68,6 +78,17 @@ public class Document {
         this.extractedText = extractedText;
     }
 
+    /**
+     * Length of the whole extracted text, of which {@link #getExtractedText()} may hold only the start.
+     */
+    public Long getTextLength() {
+        return textLength;
+    }
+
+    public void setTextLength(Long textLength) {
+        this.textLength = textLength;
+    }
+
     public LocalDateTime getUploadedAt() {
         return uploadedAt;
     }
@@ -76,4 +97,20 @@ public class Document {
         this.uploadedAt = uploadedAt;
     }
 
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(Integer chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
 }
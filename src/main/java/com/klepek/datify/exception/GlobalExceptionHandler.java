@@ -69,6 +69,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
     }
 
+    @ExceptionHandler(IngestionRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleIngestionRejected(IngestionRejectedException e) {
+        logger.warn("Ingestion rejected: {}", e.getMessage());
+
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Ingestion queue full");
+        errorResponse.put("errorCode", "INGESTION_REJECTED");
+        errorResponse.put("message", e.getMessage());
+        errorResponse.put("timestamp", System.currentTimeMillis());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
     @ExceptionHandler(java.io.IOException.class)
     public ResponseEntity<Map<String, Object>> handleIOException(java.io.IOException e) {
         logger.error("IO error: {}", e.getMessage(), e);
@@ -0,0 +1,50 @@
+package com.klepek.datify.ingestion;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Text extracted from an upload, spooled to a temporary UTF-8 file, with its first characters kept in memory.
+ * Closing it deletes the file.
+ */
+public class ExtractedText implements AutoCloseable {
+
+    private final Path path;
+    private final long length;
+    private final String prefix;
+    private final UploadSpool spool;
+
+    ExtractedText(Path path, long length, String prefix, UploadSpool spool) {
+        this.path = path;
+        this.length = length;
+        this.prefix = prefix;
+        this.spool = spool;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public Reader openReader() throws IOException {
+        return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The start of the text, up to the extractor's prefix length; the whole text when it is shorter.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public boolean isTruncated() {
+        return prefix.length() < length;
+    }
+
+    @Override
+    public void close() {
+        spool.release(path);
+    }
+}
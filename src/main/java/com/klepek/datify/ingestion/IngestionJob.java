@@ -0,0 +1,164 @@
+package com.klepek.datify.ingestion;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tracks a single asynchronous upload as it moves through the ingestion stages.
+ * Stage updates come from executor threads while status requests read it, so all
+ * mutators and the snapshot accessor are synchronized.
+ */
+public class IngestionJob {
+
+    private final String id;
+    private final String filename;
+    private final LocalDateTime createdAt;
+    private final Map<IngestionStage, StageProgress> stages = new EnumMap<>(IngestionStage.class);
+
+    private Long documentId;
+    private LocalDateTime finishedAt;
+
+    public IngestionJob(String filename) {
+        this.id = UUID.randomUUID().toString();
+        this.filename = filename;
+        this.createdAt = LocalDateTime.now();
+        for (IngestionStage stage : IngestionStage.values()) {
+            stages.put(stage, new StageProgress(stage));
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public synchronized Long getDocumentId() {
+        return documentId;
+    }
+
+    public synchronized void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public synchronized LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public synchronized boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    public synchronized void start(IngestionStage stage) {
+        StageProgress progress = stages.get(stage);
+        progress.status = StageStatus.RUNNING;
+        progress.startedAt = LocalDateTime.now();
+    }
+
+    public synchronized void describe(IngestionStage stage, String message) {
+        stages.get(stage).message = message;
+    }
+
+    public synchronized void complete(IngestionStage stage) {
+        StageProgress progress = stages.get(stage);
+        progress.status = StageStatus.COMPLETED;
+        progress.finishedAt = LocalDateTime.now();
+    }
+
+    public synchronized void fail(IngestionStage stage, String message) {
+        StageProgress progress = stages.get(stage);
+        progress.status = StageStatus.FAILED;
+        progress.finishedAt = LocalDateTime.now();
+        progress.message = message;
+    }
+
+    public synchronized void skip(IngestionStage stage, String message) {
+        StageProgress progress = stages.get(stage);
+        progress.status = StageStatus.SKIPPED;
+        progress.message = message;
+    }
+
+    /**
+     * Marks the job as finished. Stages that never ran are reported as skipped.
+     */
+    public synchronized void finish() {
+        for (StageProgress progress : stages.values()) {
+            if (progress.status == StageStatus.PENDING || progress.status == StageStatus.RUNNING) {
+                progress.status = StageStatus.SKIPPED;
+            }
+        }
+        this.finishedAt = LocalDateTime.now();
+    }
+
+    public synchronized StageStatus getStatus() {
+        boolean anyStarted = false;
+        for (StageProgress progress : stages.values()) {
+            if (progress.status == StageStatus.FAILED) {
+                return StageStatus.FAILED;
+            }
+            if (progress.status != StageStatus.PENDING) {
+                anyStarted = true;
+            }
+        }
+        if (finishedAt != null) {
+            return StageStatus.COMPLETED;
+        }
+        return anyStarted ? StageStatus.RUNNING : StageStatus.PENDING;
+    }
+
+    public synchronized Map<IngestionStage, StageProgress> getStages() {
+        Map<IngestionStage, StageProgress> snapshot = new EnumMap<>(IngestionStage.class);
+        stages.forEach((stage, progress) -> snapshot.put(stage, progress.copy()));
+        return snapshot;
+    }
+
+    public static class StageProgress {
+
+        private final IngestionStage stage;
+        private StageStatus status = StageStatus.PENDING;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private String message;
+
+        StageProgress(IngestionStage stage) {
+            this.stage = stage;
+        }
+
+        private StageProgress copy() {
+            StageProgress copy = new StageProgress(stage);
+            copy.status = status;
+            copy.startedAt = startedAt;
+            copy.finishedAt = finishedAt;
+            copy.message = message;
+            return copy;
+        }
+
+        public IngestionStage getStage() {
+            return stage;
+        }
+
+        public StageStatus getStatus() {
+            return status;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public LocalDateTime getFinishedAt() {
+            return finishedAt;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.klepek.datify.ingestion;
+
+import com.klepek.datify.exception.IngestionRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * In-memory registry of asynchronous ingestion jobs.
+ * <p>
+ * The registry also acts as the admission gate for the ingestion executor: a job only ever has one
+ * stage queued or running at a time, so capping the number of unfinished jobs at the executor's queue
+ * capacity guarantees that follow-up stages are never rejected by a full queue.
+ */
+@Component
+public class IngestionJobRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionJobRegistry.class);
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+    private final Semaphore admissions;
+    private final Duration retention;
+
+    public IngestionJobRegistry(@Value("${datify.ingestion.queue-capacity:100}") int queueCapacity,
+                                @Value("${datify.ingestion.job-retention:PT1H}") Duration retention) {
+        this.admissions = new Semaphore(queueCapacity);
+        this.retention = retention;
+    }
+
+    public IngestionJob create(String filename) {
+        if (!admissions.tryAcquire()) {
+            throw new IngestionRejectedException("Ingestion queue is full, please retry later");
+        }
+        evictExpired();
+
+        IngestionJob job = new IngestionJob(filename);
+        jobs.put(job.getId(), job);
+        logger.debug("Created ingestion job {} for file: {}", job.getId(), filename);
+        return job;
+    }
+
+    /**
+     * Registers a job that needs no processing, e.g. a repeat upload of an existing document.
+     */
+    public IngestionJob completed(String filename, Long documentId, String message) {
+        IngestionJob job = new IngestionJob(filename);
+        job.setDocumentId(documentId);
+        for (IngestionStage stage : IngestionStage.values()) {
+            job.skip(stage, message);
+        }
+        job.finish();
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    public Optional<IngestionJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public void finish(IngestionJob job) {
+        job.finish();
+        admissions.release();
+        logger.debug("Ingestion job {} finished with status {}", job.getId(), job.getStatus());
+    }
+
+    /**
+     * Drops a job that never made it onto the executor.
+     */
+    public void discard(IngestionJob job) {
+        if (jobs.remove(job.getId()) != null) {
+            admissions.release();
+        }
+    }
+
+    private void evictExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,7 @@
+package com.klepek.datify.ingestion;
+
+public enum IngestionStage {
+    EXTRACTION,
+    EMBEDDING,
+    INVOICE
+}
@@ -0,0 +1,213 @@
+package com.klepek.datify.ingestion;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scores extracted text for how much it looks like an invoice, bill or receipt without calling Gemini.
+ * <p>
+ * One Aho-Corasick pass finds whole-word keywords in English, Czech, German and a few other languages; each
+ * distinct keyword adds its weight once. A second pass tries anchored patterns for money amounts, dates and
+ * IBANs only where a token starts, and ends as soon as each of those features has been seen often enough.
+ * Only the first {@code maxChars} characters are read, since the header of an invoice carries these signals.
+ * Scores at or above {@code invoiceScore} are invoices, scores below {@code rejectScore} are not, and only
+ * the ones in between need a model to decide.
+ */
+@Component
+public class InvoiceClassifier {
+
+    public enum Verdict {
+        INVOICE, NOT_INVOICE, AMBIGUOUS
+    }
+
+    public record Classification(double score, Verdict verdict) {
+    }
+
+    private static final Map<String, Double> KEYWORDS = Map.ofEntries(
+            // Names of the document and fields found almost only on invoices
+            Map.entry("invoice", 3.0), Map.entry("tax invoice", 3.0), Map.entry("invoice number", 3.0),
+            Map.entry("receipt", 3.0), Map.entry("due date", 3.0), Map.entry("payment terms", 3.0),
+            Map.entry("faktura", 3.0), Map.entry("faktury", 3.0), Map.entry("fakturu", 3.0),
+            Map.entry("daňový doklad", 3.0), Map.entry("danovy doklad", 3.0), Map.entry("číslo faktury", 3.0),
+            Map.entry("datum splatnosti", 3.0), Map.entry("variabilní symbol", 3.0),
+            Map.entry("variabilni symbol", 3.0), Map.entry("účtenka", 3.0),
+            Map.entry("rechnung", 3.0), Map.entry("rechnungsnummer", 3.0), Map.entry("fälligkeitsdatum", 3.0),
+            Map.entry("quittung", 3.0), Map.entry("facture", 3.0), Map.entry("factura", 3.0),
+            Map.entry("fattura", 3.0), Map.entry("faktúra", 3.0),
+            // Terms common on invoices but also in other business documents
+            Map.entry("total", 1.0), Map.entry("subtotal", 1.0), Map.entry("amount due", 1.0),
+            Map.entry("vat", 1.0), Map.entry("bill to", 1.0), Map.entry("ship to", 1.0),
+            Map.entry("supplier", 1.0), Map.entry("quantity", 1.0), Map.entry("unit price", 1.0),
+            Map.entry("bank account", 1.0), Map.entry("iban", 1.0), Map.entry("swift", 1.0),
+            Map.entry("celkem", 1.0), Map.entry("k úhradě", 1.0), Map.entry("k uhrade", 1.0),
+            Map.entry("dph", 1.0), Map.entry("dodavatel", 1.0), Map.entry("odběratel", 1.0),
+            Map.entry("odberatel", 1.0), Map.entry("ičo", 1.0), Map.entry("ico", 1.0), Map.entry("dič", 1.0),
+            Map.entry("dic", 1.0), Map.entry("množství", 1.0), Map.entry("číslo účtu", 1.0),
+            Map.entry("bankovní spojení", 1.0), Map.entry("účet", 1.0),
+            Map.entry("summe", 1.0), Map.entry("gesamtbetrag", 1.0), Map.entry("mwst", 1.0),
+            Map.entry("ust", 1.0), Map.entry("zahlbar", 1.0), Map.entry("menge", 1.0));
+
+    // Feature patterns are only tried where a token starts, anchored there with lookingAt()
+    private static final Pattern IBAN = Pattern.compile("[A-Z]{2}\\d{2}(?: ?[A-Z0-9]{4}){3,7}(?: ?[A-Z0-9]{1,3})?\\b");
+    private static final Pattern DATE = Pattern.compile(
+            "(?:\\d{4}-\\d{2}-\\d{2}|\\d{1,2} ?[./] ?\\d{1,2} ?[./] ?(?:\\d{4}|\\d{2}))\\b");
+    private static final Pattern MONEY = Pattern.compile(
+            "\\d{1,3}(?:[ .,\\u00a0]\\d{3})*[.,]\\d{2}(?!\\d)"
+                    + "|\\d+(?:[ \\u00a0]\\d{3})*\\s?(?:kč|czk|eur|usd|gbp|€|£)"
+                    + "|[$€£]\\s?\\d",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
+    private static final KeywordAutomaton AUTOMATON;
+    private static final double[] WEIGHTS;
+
+    static {
+        List<String> keywords = new ArrayList<>(KEYWORDS.keySet());
+        AUTOMATON = new KeywordAutomaton(keywords);
+        WEIGHTS = new double[keywords.size()];
+        for (int i = 0; i < keywords.size(); i++) {
+            WEIGHTS[i] = KEYWORDS.get(keywords.get(i));
+        }
+    }
+
+    private final double invoiceScore;
+    private final double rejectScore;
+    private final int maxChars;
+    private final Map<Verdict, Counter> verdicts = new EnumMap<>(Verdict.class);
+
+    public InvoiceClassifier(@Value("${datify.invoice.classifier.invoice-score:8}") double invoiceScore,
+                             @Value("${datify.invoice.classifier.reject-score:3}") double rejectScore,
+                             @Value("${datify.invoice.classifier.max-chars:20000}") int maxChars,
+                             MeterRegistry meterRegistry) {
+        if (rejectScore > invoiceScore) {
+            throw new IllegalArgumentException("Reject score " + rejectScore + " is above invoice score " + invoiceScore);
+        }
+        this.invoiceScore = invoiceScore;
+        this.rejectScore = rejectScore;
+        this.maxChars = maxChars;
+        for (Verdict verdict : Verdict.values()) {
+            verdicts.put(verdict, Counter.builder("datify.invoice.classifier")
+                    .description("Uploads classified locally as invoice or not, or left to Gemini when ambiguous")
+                    .tag("verdict", verdict.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    public Classification classify(String text) {
+        double score = text == null ? 0 : score(text);
+        Verdict verdict = score >= invoiceScore ? Verdict.INVOICE
+                : score < rejectScore ? Verdict.NOT_INVOICE
+                : Verdict.AMBIGUOUS;
+        verdicts.get(verdict).increment();
+        return new Classification(score, verdict);
+    }
+
+    /**
+     * Best local guess for an ambiguous text when Gemini cannot be asked: whether its score is in the upper
+     * half of the ambiguous band.
+     */
+    public boolean leansInvoice(Classification classification) {
+        return classification.score() >= (rejectScore + invoiceScore) / 2;
+    }
+
+    private double score(String text) {
+        int limit = Math.min(maxChars, text.length());
+
+        BitSet found = new BitSet(AUTOMATON.size());
+        AUTOMATON.scan(text, limit, (keyword, start, end) -> {
+            if (isBoundary(text, start - 1) && isBoundary(text, end)) {
+                found.set(keyword);
+            }
+        });
+        double score = 0;
+        for (int keyword = found.nextSetBit(0); keyword >= 0; keyword = found.nextSetBit(keyword + 1)) {
+            score += WEIGHTS[keyword];
+        }
+
+        // Dates are tried before amounts, so "01.03.2024" is a date; stops once every feature has saturated
+        Matcher iban = IBAN.matcher(text);
+        Matcher date = DATE.matcher(text);
+        Matcher money = MONEY.matcher(text);
+        int ibans = 0;
+        int dates = 0;
+        int amounts = 0;
+        for (int i = 0; i < limit && (ibans == 0 || dates == 0 || amounts < 3); i++) {
+            char c = text.charAt(i);
+            if (!isBoundary(text, i - 1) && c != '$' && c != '€' && c != '£') {
+                continue;
+            }
+            if (c >= 'A' && c <= 'Z' && ibans == 0 && iban.region(i, limit).lookingAt()) {
+                ibans++;
+                i = iban.end() - 1;
+            } else if (c >= '0' && c <= '9' && hasDateSeparator(text, i, limit) && date.region(i, limit).lookingAt()) {
+                dates++;
+                i = date.end() - 1;
+            } else if (amounts < 3 && mayBeAmount(text, i, limit) && money.region(i, limit).lookingAt()) {
+                amounts++;
+                i = money.end() - 1;
+            }
+        }
+        score += (ibans > 0 ? 2 : 0) + (dates > 0 ? 1 : 0) + (amounts > 0 ? 1 : 0) + (amounts >= 3 ? 1 : 0);
+        return score;
+    }
+
+    /**
+     * Cheap check before trying {@link #DATE}: whether the digits at {@code start} are soon followed by one of
+     * its separators.
+     */
+    private static boolean hasDateSeparator(String text, int start, int limit) {
+        int end = Math.min(start + 5, limit);
+        for (int i = start + 1; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == '/' || c == '-') {
+                return true;
+            }
+            if (c != ' ' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cheap check before trying {@link #MONEY}: a currency symbol, or a number with two decimals or followed
+     * by what may be a currency code.
+     */
+    private static boolean mayBeAmount(String text, int start, int limit) {
+        char first = text.charAt(start);
+        if (first == '$' || first == '€' || first == '£') {
+            return true;
+        }
+        int i = start;
+        while (i < limit && i - start < 24) {
+            char c = text.charAt(i);
+            if ((c == '.' || c == ',') && i + 2 < limit
+                    && Character.isDigit(text.charAt(i + 1)) && Character.isDigit(text.charAt(i + 2))) {
+                return true;
+            }
+            if (c != ' ' && c != '\u00a0' && c != '.' && c != ',' && (c < '0' || c > '9')) {
+                break;
+            }
+            i++;
+        }
+        if (i >= limit) {
+            return false;
+        }
+        char next = Character.toLowerCase(text.charAt(i));
+        return next == 'k' || next == 'c' || next == 'e' || next == 'u' || next == 'g' || next == '€' || next == '£';
+    }
+
+    private static boolean isBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+}
@@ -0,0 +1,230 @@
+package com.klepek.datify.ingestion;
+
+import com.klepek.datify.dto.InvoiceExtractionDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic extraction of invoice fields from labelled values, as printed by accounting systems:
+ * "Invoice Number: INV-2024-0042", "Datum splatnosti: 15.03.2024", "Celkem k úhradě: 12 100,00 Kč".
+ * <p>
+ * Labels are recognized in English, Czech and German. Each found field adds its weight to the confidence;
+ * contradictions, such as VAT not below the total or a due date before the issue date, take some back. A
+ * confidence below the caller's threshold means the layout was not understood well enough and a model should
+ * extract the fields instead.
+ */
+@Component
+public class InvoiceFieldExtractor {
+
+    // Unlike \b, also a word start before non-ASCII letters such as the "č" of "číslo"
+    private static final String START = "(?<![\\p{L}\\p{N}])";
+    private static final String END = "(?![\\p{L}])";
+    private static final String GAP = "[^\\n\\d]{0,20}?";
+    private static final String VALUE = "[\\s:#.]*(?=[a-z0-9/_-]*\\d)([a-z0-9][a-z0-9/_-]{0,39})";
+    private static final String DATE = "(\\d{4}-\\d{1,2}-\\d{1,2}|\\d{1,2} ?[./] ?\\d{1,2} ?[./] ?\\d{4})";
+    private static final String CURRENCY = "czk|eur|usd|gbp|chf|pln|kč|€|\\$|£";
+    private static final String MONEY = "(?:(?<pre>" + CURRENCY + ") ?)?"
+            + "(?<amount>-?\\d{1,3}(?:[ \\u00a0.,']\\d{3})+(?:[.,]\\d{1,2})?|-?\\d+(?:[.,]\\d{1,2})?)(?!\\d)(?! ?%)"
+            + "(?: ?(?<post>" + CURRENCY + ")" + END + ")?";
+
+    private static final Pattern INVOICE_NUMBER = compile(START + "(?:invoice ?(?:no\\.?|number|nr\\.?|#)"
+            + "|číslo faktury|číslo dokladu|daňový doklad(?: č\\.)?|danovy doklad(?: c\\.)?|faktura(?: č\\.| číslo)?"
+            + "|rechnungs-?(?:nummer|nr\\.?)|rechnung(?: nr\\.?| nummer)?|invoice)" + END + VALUE);
+    private static final Pattern PURCHASE_ORDER = compile(START + "(?:purchase order(?: ?(?:no\\.?|number|#))?"
+            + "|po ?(?:no\\.?|number|#)|p\\.o\\.|číslo objednávky|objednávka(?: č\\.| číslo)?|bestellnummer"
+            + "|bestellung(?: nr\\.?)?)" + VALUE);
+    private static final Pattern INVOICE_DATE = compile(START + "(?:invoice date|date of issue|issue date|issued on"
+            + "|datum vystavení|datum vystaveni|rechnungsdatum|ausstellungsdatum)" + END + GAP + DATE);
+    private static final Pattern DUE_DATE = compile(START + "(?:due date|payment due|due on|datum splatnosti"
+            + "|splatnost|fälligkeitsdatum|fällig am|fällig|zahlbar bis)" + END + GAP + DATE);
+    private static final Pattern TOTAL_DUE = compile(START + "(?:celkem k úhradě|celkem k uhrade|k úhradě|k uhrade"
+            + "|total amount due|amount due|total due|balance due|grand total|zu zahlen|zahlbetrag|rechnungsbetrag"
+            + "|endbetrag)" + END + GAP + MONEY);
+    private static final Pattern TOTAL = compile(START + "(?:total|celkem|summe|gesamtbetrag|gesamt)" + END + GAP
+            + MONEY);
+    private static final Pattern TAX = compile(START + "(?:sales tax|vat|dph|mwst|ust|tax|daň)" + END
+            // VAT and tax identifiers are not amounts; a rate such as "21 %" may stand before the amount
+            + "(?![ .:-]*(?:id|no|nr|number|reg|č\\.|číslo))" + GAP
+            + "(?:\\d{1,2}(?:[.,]\\d+)? ?%" + GAP + ")?" + MONEY);
+    private static final Pattern VENDOR = compile(START + "(?:dodavatel|supplier|vendor|seller|lieferant|verkäufer"
+            + "|rechnungssteller)" + END + "[ \\t]*:?[ \\t]*\\n?[ \\t]*([^\\n,;]{2,80})([^\\n]*)");
+    private static final Pattern ADDRESS_END = compile(START + "(?:ičo|ič|dič|vat|ust|tax id|reg)" + END);
+    private static final Pattern DECIMALS = Pattern.compile("[.,]\\d{2}$");
+    private static final Pattern ANY_CURRENCY = compile(START + "(" + CURRENCY + ")" + END);
+
+    private static final Map<String, String> CURRENCY_SYMBOLS =
+            Map.of("kč", "CZK", "€", "EUR", "$", "USD", "£", "GBP");
+
+    private final int maxChars;
+
+    public InvoiceFieldExtractor(@Value("${datify.invoice.rules.max-chars:50000}") int maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Fields found in the text, with the confidence score set; fields that were not found are null.
+     */
+    public InvoiceExtractionDto extract(String text) {
+        String sample = text.length() > maxChars ? text.substring(0, maxChars) : text;
+        InvoiceExtractionDto dto = new InvoiceExtractionDto();
+
+        dto.setInvoiceNumber(firstGroup(INVOICE_NUMBER, sample));
+        dto.setPurchaseOrderNumber(firstGroup(PURCHASE_ORDER, sample));
+        dto.setInvoiceDate(parseDate(firstGroup(INVOICE_DATE, sample)));
+        dto.setDueDate(parseDate(firstGroup(DUE_DATE, sample)));
+
+        // An explicit "amount due" wins; otherwise the last total, since per-item totals come before it
+        Matcher total = first(TOTAL_DUE, sample);
+        if (total == null) {
+            total = last(TOTAL, sample);
+        }
+        if (total != null) {
+            dto.setTotalAmount(parseAmount(total.group("amount")));
+            dto.setCurrency(currency(total));
+        }
+        Matcher tax = last(TAX, sample);
+        if (tax != null) {
+            dto.setTaxAmount(parseAmount(tax.group("amount")));
+        }
+        if (dto.getCurrency() == null) {
+            String symbol = firstGroup(ANY_CURRENCY, sample);
+            dto.setCurrency(symbol == null ? null : normalizeCurrency(symbol));
+        }
+
+        Matcher vendor = VENDOR.matcher(sample);
+        if (vendor.find()) {
+            dto.setVendorName(vendor.group(1).trim());
+            // The rest of the vendor line up to its registration or VAT numbers
+            String rest = vendor.group(2);
+            Matcher end = ADDRESS_END.matcher(rest);
+            String address = (end.find() ? rest.substring(0, end.start()) : rest)
+                    .replaceAll("^[\\s,]+|[\\s,]+$", "");
+            dto.setVendorAddress(address.isEmpty() ? null : address);
+        }
+
+        dto.setConfidenceScore(confidence(dto));
+        return dto;
+    }
+
+    private static double confidence(InvoiceExtractionDto dto) {
+        double confidence = 0;
+        confidence += dto.getInvoiceNumber() != null ? 0.25 : 0;
+        confidence += dto.getTotalAmount() != null ? 0.3 : 0;
+        confidence += dto.getInvoiceDate() != null ? 0.15 : 0;
+        confidence += dto.getCurrency() != null ? 0.1 : 0;
+        confidence += dto.getVendorName() != null ? 0.1 : 0;
+        confidence += dto.getDueDate() != null ? 0.1 : 0;
+
+        if (dto.getTaxAmount() != null && dto.getTotalAmount() != null
+                && dto.getTaxAmount().compareTo(dto.getTotalAmount()) >= 0) {
+            confidence -= 0.2;
+        }
+        if (dto.getInvoiceDate() != null && dto.getDueDate() != null
+                && dto.getDueDate().isBefore(dto.getInvoiceDate())) {
+            confidence -= 0.1;
+        }
+        return Math.max(0, Math.round(confidence * 100) / 100.0);
+    }
+
+    private static String firstGroup(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * First match of a money pattern whose amount is plausibly money: with decimals or a currency, which
+     * rules out counts such as "Total 3 items".
+     */
+    private static Matcher first(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            if (isMoney(matcher)) {
+                return matcher;
+            }
+        }
+        return null;
+    }
+
+    private static Matcher last(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        int start = -1;
+        while (matcher.find()) {
+            if (isMoney(matcher)) {
+                start = matcher.start();
+            }
+        }
+        return start >= 0 && matcher.find(start) ? matcher : null;
+    }
+
+    private static boolean isMoney(Matcher matcher) {
+        String amount = matcher.group("amount");
+        return matcher.group("pre") != null || matcher.group("post") != null
+                || DECIMALS.matcher(amount).find();
+    }
+
+    private static String currency(Matcher matcher) {
+        String symbol = matcher.group("pre") != null ? matcher.group("pre") : matcher.group("post");
+        return symbol == null ? null : normalizeCurrency(symbol);
+    }
+
+    private static String normalizeCurrency(String symbol) {
+        String lower = symbol.toLowerCase(Locale.ROOT);
+        return CURRENCY_SYMBOLS.getOrDefault(lower, lower.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Parses "12 100,00", "1,080.00" or "1.234,5": the last '.' or ',' followed by one or two digits is the
+     * decimal separator and every other separator groups thousands.
+     */
+    static BigDecimal parseAmount(String amount) {
+        String compact = amount.replaceAll("[ \\u00a0']", "");
+        int decimal = Math.max(compact.lastIndexOf('.'), compact.lastIndexOf(','));
+        if (decimal >= 0 && compact.length() - decimal - 1 <= 2) {
+            compact = compact.substring(0, decimal).replaceAll("[.,]", "") + "." + compact.substring(decimal + 1);
+        } else {
+            compact = compact.replaceAll("[.,]", "");
+        }
+        try {
+            return new BigDecimal(compact);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * ISO dates and day-first dates; with slashes the order is month-first only when the day-first reading
+     * is impossible, e.g. 03/14/2024.
+     */
+    static LocalDate parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        String[] parts = date.split("[^0-9]+");
+        try {
+            int first = Integer.parseInt(parts[0]);
+            int second = Integer.parseInt(parts[1]);
+            int third = Integer.parseInt(parts[2]);
+            if (parts[0].length() == 4) {
+                return LocalDate.of(first, second, third);
+            }
+            if (date.contains("/") && second > 12 && first <= 12) {
+                return LocalDate.of(third, first, second);
+            }
+            return LocalDate.of(third, second, first);
+        } catch (DateTimeException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static Pattern compile(String regex) {
+        return Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+}
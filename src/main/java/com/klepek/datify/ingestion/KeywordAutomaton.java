@@ -0,0 +1,173 @@
+package com.klepek.datify.ingestion;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton that finds every occurrence of a fixed set of keywords in one pass over the text,
+ * however many keywords there are. Matching is case-insensitive: each character is lower-cased as it is read,
+ * so the text is never copied.
+ * <p>
+ * For ASCII characters the failure links are folded into a dense transition table, so each such character
+ * costs one array read. Other characters use the state's sorted label array and the failure links. Each
+ * state's output list already includes the keywords of its failure chain, so reporting a match needs no
+ * extra walk.
+ */
+public final class KeywordAutomaton {
+
+    @FunctionalInterface
+    public interface MatchConsumer {
+        /**
+         * @param keyword index of the keyword in the list the automaton was built from
+         * @param start   first character of the match in the text
+         * @param end     character after the match
+         */
+        void accept(int keyword, int start, int end);
+    }
+
+    private static final int[] NONE = new int[0];
+    private static final int ASCII = 128;
+
+    private final int[] lengths;
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] failure;
+    private final int[][] outputs;
+    private final int[] asciiTransitions;
+
+    public KeywordAutomaton(List<String> keywords) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<int[]> terminal = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        terminal.add(NONE);
+        lengths = new int[keywords.size()];
+
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k).toLowerCase(Locale.ROOT);
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("Keywords must not be empty");
+            }
+            lengths[k] = keyword.length();
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer next = trie.get(state).get(keyword.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(keyword.charAt(i), next);
+                    trie.add(new TreeMap<>());
+                    terminal.add(NONE);
+                }
+                state = next;
+            }
+            terminal.set(state, append(terminal.get(state), k));
+        }
+
+        int states = trie.size();
+        labels = new char[states][];
+        targets = new int[states][];
+        for (int state = 0; state < states; state++) {
+            TreeMap<Character, Integer> edges = trie.get(state);
+            labels[state] = new char[edges.size()];
+            targets[state] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                labels[state][i] = edge.getKey();
+                targets[state][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        // Breadth-first, so a state's failure target is complete before the state is visited
+        failure = new int[states];
+        outputs = new int[states][];
+        asciiTransitions = new int[states * ASCII];
+        outputs[0] = terminal.get(0);
+        for (char c = 0; c < ASCII; c++) {
+            asciiTransitions[c] = Math.max(transition(0, c), 0);
+        }
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            outputs[child] = terminal.get(child);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (state != 0) {
+                for (char c = 0; c < ASCII; c++) {
+                    int next = transition(state, c);
+                    asciiTransitions[state * ASCII + c] = next >= 0
+                            ? next
+                            : asciiTransitions[failure[state] * ASCII + c];
+                }
+            }
+            for (int i = 0; i < labels[state].length; i++) {
+                int child = targets[state][i];
+                int fallback = failure[state];
+                int next;
+                while ((next = transition(fallback, labels[state][i])) < 0 && fallback != 0) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = next >= 0 ? next : 0;
+                outputs[child] = concat(terminal.get(child), outputs[failure[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    public int size() {
+        return lengths.length;
+    }
+
+    /**
+     * Reports every keyword occurrence within the first {@code limit} characters, overlapping ones included,
+     * in order of their end position.
+     */
+    public void scan(CharSequence text, int limit, MatchConsumer consumer) {
+        int end = Math.min(limit, text.length());
+        int state = 0;
+        for (int i = 0; i < end; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c < ASCII) {
+                state = asciiTransitions[state * ASCII + c];
+            } else {
+                int next;
+                while ((next = transition(state, c)) < 0 && state != 0) {
+                    state = failure[state];
+                }
+                state = next >= 0 ? next : 0;
+            }
+            for (int keyword : outputs[state]) {
+                consumer.accept(keyword, i + 1 - lengths[keyword], i + 1);
+            }
+        }
+    }
+
+    private int transition(int state, char c) {
+        int i = Arrays.binarySearch(labels[state], c);
+        return i >= 0 ? targets[state][i] : -1;
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] extended = Arrays.copyOf(values, values.length + 1);
+        extended[values.length] = value;
+        return extended;
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        if (second.length == 0) {
+            return first;
+        }
+        if (first.length == 0) {
+            return second;
+        }
+        int[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+}
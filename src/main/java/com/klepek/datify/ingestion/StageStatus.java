@@ -0,0 +1,9 @@
+package com.klepek.datify.ingestion;
+
+public enum StageStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    SKIPPED
+}
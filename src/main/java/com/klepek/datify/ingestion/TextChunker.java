@@ -0,0 +1,194 @@
+package com.klepek.datify.ingestion;
+
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into token-bounded chunks with a configurable overlap.
+ * <p>
+ * Text is read as a stream and cut into segments at line and sentence boundaries, at whitespace once a segment
+ * reaches half the token budget, or anywhere but inside a surrogate pair once it reaches three quarters of it.
+ * Segments are measured with the token estimator as they grow, a slice of characters at a time, so the limits
+ * hold for digit-heavy or CJK text with few characters per token as well as for prose.
+ * Segments are packed into a chunk until the next one would exceed the token budget;
+ * the trailing segments of a chunk, up to the overlap budget, are carried into the next one. Only the chunk
+ * being assembled is held in memory.
+ */
+@Component
+public class TextChunker {
+
+    private final TokenCountEstimator tokenEstimator;
+    private final int chunkTokens;
+    private final int overlapTokens;
+    private final int softSegmentTokens;
+    private final int hardSegmentTokens;
+    private final int measureChars;
+
+    @Autowired
+    public TextChunker(@Value("${datify.chunking.chunk-tokens:512}") int chunkTokens,
+                       @Value("${datify.chunking.overlap-tokens:64}") int overlapTokens) {
+        this(new JTokkitTokenCountEstimator(), chunkTokens, overlapTokens);
+    }
+
+    public TextChunker(TokenCountEstimator tokenEstimator, int chunkTokens, int overlapTokens) {
+        if (chunkTokens <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        if (overlapTokens < 0 || overlapTokens >= chunkTokens) {
+            throw new IllegalArgumentException("Chunk overlap must be between 0 and the chunk size");
+        }
+        this.tokenEstimator = tokenEstimator;
+        this.chunkTokens = chunkTokens;
+        this.overlapTokens = overlapTokens;
+        this.softSegmentTokens = Math.max(1, chunkTokens / 2);
+        this.hardSegmentTokens = Math.max(1, chunkTokens * 3 / 4);
+        // A character is rarely more than two tokens, so a segment overshoots the hard limit by at most a quarter
+        this.measureChars = Math.max(1, chunkTokens / 8);
+    }
+
+    public List<String> chunk(String text) {
+        List<String> chunks = new ArrayList<>();
+        try {
+            chunk(new StringReader(text), chunks::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunks;
+    }
+
+    public void chunk(Reader reader, Consumer<String> sink) throws IOException {
+        ChunkAssembler assembler = new ChunkAssembler(sink);
+        StringBuilder segment = new StringBuilder();
+        int measured = 0;
+        int segmentTokens = 0;
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                segment.append(c);
+                if (segment.length() - measured >= measureChars && !Character.isHighSurrogate(c)) {
+                    segmentTokens += tokenEstimator.estimate(segment.substring(measured));
+                    measured = segment.length();
+                }
+                if (endsSegment(segment, c, segmentTokens)) {
+                    assembler.add(segment.toString());
+                    segment.setLength(0);
+                    measured = 0;
+                    segmentTokens = 0;
+                }
+            }
+        }
+        if (!segment.isEmpty()) {
+            assembler.add(segment.toString());
+        }
+        assembler.flush();
+    }
+
+    private boolean endsSegment(StringBuilder segment, char c, int segmentTokens) {
+        if (c == '\n') {
+            return true;
+        }
+        if (Character.isHighSurrogate(c)) {
+            return false;
+        }
+        if (segmentTokens >= hardSegmentTokens) {
+            return true;
+        }
+        int length = segment.length();
+        if (!Character.isWhitespace(c) || length < 2) {
+            return false;
+        }
+        char previous = segment.charAt(length - 2);
+        return previous == '.' || previous == '!' || previous == '?' || segmentTokens >= softSegmentTokens;
+    }
+
+    private final class ChunkAssembler {
+
+        private final Consumer<String> sink;
+        private final Deque<Segment> segments = new ArrayDeque<>();
+        private int tokens;
+        private boolean hasNewContent;
+
+        private ChunkAssembler(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        void add(String text) {
+            if (text.isBlank()) {
+                return;
+            }
+            int segmentTokens = tokenEstimator.estimate(text);
+            if (hasNewContent && tokens + segmentTokens > chunkTokens) {
+                emit();
+            }
+            segments.addLast(new Segment(text, segmentTokens));
+            tokens += segmentTokens;
+            hasNewContent = true;
+        }
+
+        void flush() {
+            if (hasNewContent) {
+                emit();
+            }
+        }
+
+        private void emit() {
+            StringBuilder chunk = new StringBuilder();
+            for (Segment segment : segments) {
+                chunk.append(segment.text());
+            }
+            sink.accept(chunk.toString().strip());
+
+            Segment last = segments.peekLast();
+            while (!segments.isEmpty() && tokens > overlapTokens) {
+                tokens -= segments.removeFirst().tokens();
+            }
+            if (segments.isEmpty() && overlapTokens > 0) {
+                // The last segment alone is larger than the overlap, so carry over its trailing words instead.
+                Segment tail = tailOf(last);
+                if (tail != null) {
+                    segments.addLast(tail);
+                    tokens = tail.tokens();
+                }
+            }
+            hasNewContent = false;
+        }
+
+        private Segment tailOf(Segment segment) {
+            String text = segment.text();
+            Segment tail = null;
+            int end = text.length();
+            while (end > 0) {
+                int start = text.lastIndexOf(' ', end - 1);
+                if (start <= 0) {
+                    break;
+                }
+                String candidate = text.substring(start + 1);
+                int candidateTokens = tokenEstimator.estimate(candidate);
+                if (candidateTokens > overlapTokens) {
+                    break;
+                }
+                tail = new Segment(candidate, candidateTokens);
+                end = start;
+            }
+            return tail;
+        }
+    }
+
+    private record Segment(String text, int tokens) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.klepek.datify.ingestion;
+
+import com.klepek.datify.exception.TextExtractionException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams Tika's SAX output straight to a spooled file instead of building the whole document as a String.
+ * Leading and trailing whitespace is dropped and whitespace runs are collapsed on the way through (see
+ * {@link TrimmingWriter}), so the spooled text is already trimmed. Only its first {@code prefixChars}
+ * characters are held in memory.
+ */
+@Component
+public class TextExtractor {
+
+    private final Parser parser;
+    private final UploadSpool spool;
+    private final int prefixChars;
+
+    public TextExtractor(UploadSpool spool,
+                         @Value("${datify.ingestion.stored-text-max-chars:50000}") int prefixChars) {
+        this.parser = new AutoDetectParser();
+        this.spool = spool;
+        this.prefixChars = prefixChars;
+    }
+
+    public ExtractedText extract(InputStream inputStream) throws TextExtractionException {
+        Path target;
+        try {
+            target = spool.newFile("text-", ".txt");
+        } catch (IOException e) {
+            throw new TextExtractionException("Failed to create spool file: " + e.getMessage(), e);
+        }
+
+        try (TrimmingWriter writer = new TrimmingWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8),
+                prefixChars)) {
+            parser.parse(inputStream, new BodyContentHandler(writer), new Metadata(), new ParseContext());
+            writer.close();
+            if (writer.getLength() == 0) {
+                throw new TextExtractionException("No text content found in the file");
+            }
+            return new ExtractedText(target, writer.getLength(), writer.getPrefix(), spool);
+        } catch (TextExtractionException e) {
+            spool.release(target);
+            throw e;
+        } catch (Exception e) {
+            spool.release(target);
+            throw new TextExtractionException("Failed to extract text from file: " + e.getMessage(), e);
+        }
+    }
+}
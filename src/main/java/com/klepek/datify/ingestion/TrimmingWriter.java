@@ -0,0 +1,97 @@
+package com.klepek.datify.ingestion;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Skips leading whitespace and holds back runs of whitespace until more text follows them, so whitespace at the
+ * end of the document is never written. A held-back run is collapsed as it is read: to a blank line if it spans
+ * several lines, to a line break if it spans one, and otherwise to its first character. Only counts are kept for
+ * it, so layout padding of any length costs no memory.
+ * <p>
+ * The first {@code prefixChars} characters written are also kept in memory, never ending in half a surrogate pair.
+ */
+final class TrimmingWriter extends Writer {
+
+    private final Writer delegate;
+    private final int prefixChars;
+    private final StringBuilder prefix;
+    private long length;
+    private int pendingLineBreaks;
+    private char pendingWhitespace;
+    private boolean closed;
+
+    TrimmingWriter(Writer delegate, int prefixChars) {
+        if (prefixChars < 0) {
+            throw new IllegalArgumentException("Prefix length must not be negative");
+        }
+        this.delegate = delegate;
+        this.prefixChars = prefixChars;
+        this.prefix = new StringBuilder(Math.min(prefixChars, 8192));
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    String getPrefix() {
+        int end = prefix.length();
+        if (end > 0 && Character.isHighSurrogate(prefix.charAt(end - 1))) {
+            end--;
+        }
+        return prefix.substring(0, end);
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int count) throws IOException {
+        for (int i = offset; i < offset + count; i++) {
+            char c = buffer[i];
+            if (Character.isWhitespace(c)) {
+                if (length > 0) {
+                    hold(c);
+                }
+                continue;
+            }
+            if (pendingLineBreaks > 0) {
+                emit('\n');
+                if (pendingLineBreaks > 1) {
+                    emit('\n');
+                }
+            } else if (pendingWhitespace != 0) {
+                emit(pendingWhitespace);
+            }
+            pendingLineBreaks = 0;
+            pendingWhitespace = 0;
+            emit(c);
+        }
+    }
+
+    private void hold(char c) {
+        if (c == '\n') {
+            pendingLineBreaks = Math.min(pendingLineBreaks + 1, 2);
+        } else if (pendingWhitespace == 0) {
+            pendingWhitespace = c;
+        }
+    }
+
+    private void emit(char c) throws IOException {
+        delegate.write(c);
+        length++;
+        if (prefix.length() < prefixChars) {
+            prefix.append(c);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            delegate.close();
+        }
+    }
+}
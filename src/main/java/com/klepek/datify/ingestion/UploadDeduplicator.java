@@ -0,0 +1,119 @@
+package com.klepek.datify.ingestion;
+
+import com.klepek.datify.entity.Document;
+import com.klepek.datify.repository.DocumentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recognises repeat uploads by the SHA-256 of their content, so they can skip extraction, embedding
+ * and invoice processing. Hits and misses are published as the {@code datify.upload.dedup} counter.
+ * <p>
+ * An upload {@link #claim claims} its content hash for as long as it is ingested. A document without a chunk
+ * count whose hash nobody claims is an orphan: its ingestion died midway, e.g. when the process was killed
+ * while embedding, and the next upload of the same content indexes it again. Claims are held in memory, which
+ * assumes a single instance owns the database, as it does with the file-based H2.
+ */
+@Component
+public class UploadDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadDeduplicator.class);
+
+    private final DocumentRepository documentRepository;
+    private final Counter hits;
+    private final Counter misses;
+    private final Set<String> claimed = ConcurrentHashMap.newKeySet();
+
+    public UploadDeduplicator(DocumentRepository documentRepository, MeterRegistry meterRegistry) {
+        this.documentRepository = documentRepository;
+        this.hits = Counter.builder("datify.upload.dedup")
+                .description("Uploads matched against an existing document by content hash")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("datify.upload.dedup")
+                .description("Uploads matched against an existing document by content hash")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String hash(InputStream inputStream) throws IOException {
+        MessageDigest digest = newDigest();
+        try (DigestInputStream digestStream = new DigestInputStream(inputStream, digest)) {
+            digestStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return toHex(digest);
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * A document with the same content that finished indexing or is being ingested right now. An orphan is
+     * not a duplicate; see {@link #findOrphan}.
+     */
+    public Optional<Document> findDuplicate(String contentHash) {
+        Optional<Document> existing = documentRepository.findByContentHash(contentHash)
+                .filter(document -> document.getChunkCount() != null || claimed.contains(contentHash));
+        if (existing.isPresent()) {
+            hits.increment();
+            logger.info("Upload matches existing document {} ({})", existing.get().getId(), existing.get().getFilename());
+        } else {
+            misses.increment();
+        }
+        return existing;
+    }
+
+    /**
+     * Marks the content as being ingested. Returns false when another upload of it holds the claim.
+     */
+    public boolean claim(String contentHash) {
+        return claimed.add(contentHash);
+    }
+
+    public void release(String contentHash) {
+        claimed.remove(contentHash);
+    }
+
+    /**
+     * The document without chunks that an earlier, interrupted ingestion of the content left behind. Only
+     * meaningful while the caller holds the claim, since otherwise the document may still be being indexed.
+     */
+    public Optional<Document> findOrphan(String contentHash) {
+        Optional<Document> orphan = documentRepository.findByContentHash(contentHash)
+                .filter(document -> document.getChunkCount() == null);
+        orphan.ifPresent(document ->
+                logger.info("Upload re-indexes document {} left without chunks", document.getId()));
+        return orphan;
+    }
+
+    /**
+     * Resolves the document that won a concurrent insert of the same content.
+     */
+    public Document resolveConflict(String contentHash) {
+        return documentRepository.findByContentHash(contentHash)
+                .orElseThrow(() -> new IllegalStateException("No document found for content hash " + contentHash));
+    }
+}
@@ -0,0 +1,62 @@
+package com.klepek.datify.ingestion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+/**
+ * Copies uploads to local disk so they outlive the HTTP request that carried them, and hands out
+ * scratch files for text extracted from them.
+ */
+@Component
+public class UploadSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSpool.class);
+
+    private final Path directory;
+
+    public UploadSpool(@Value("${datify.ingestion.spool-dir:${java.io.tmpdir}/datify-spool}") Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Copies the upload to disk, hashing its content on the way.
+     */
+    public SpooledUpload spool(MultipartFile file) throws IOException {
+        Path target = newFile("upload-", ".bin");
+        MessageDigest digest = UploadDeduplicator.newDigest();
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            release(target);
+            throw e;
+        }
+        return new SpooledUpload(target, UploadDeduplicator.toHex(digest));
+    }
+
+    public Path newFile(String prefix, String suffix) throws IOException {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, prefix, suffix);
+    }
+
+    public void release(Path spooled) {
+        try {
+            Files.deleteIfExists(spooled);
+        } catch (IOException e) {
+            logger.warn("Could not delete spooled upload: {}", spooled, e);
+        }
+    }
+
+    public record SpooledUpload(Path path, String contentHash) {
+    }
+}
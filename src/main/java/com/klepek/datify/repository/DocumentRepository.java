@@ -4,6 +4,10 @@ import com.klepek.datify.entity.Document;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface DocumentRepository extends JpaRepository<Document, Long> {
+
+    Optional<Document> findByContentHash(String contentHash);
 }
\ No newline at end of file
@@ -17,6 +17,8 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
 
     Optional<Invoice> findByDocumentId(Long documentId);
 
+    List<Invoice> findAllByDocumentId(Long documentId);
+
     List<Invoice> findByVendorNameContainingIgnoreCase(String vendorName);
 
     List<Invoice> findByStatus(InvoiceStatus status);
@@ -0,0 +1,175 @@
+package com.klepek.datify.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker for a remote dependency.
+ * <p>
+ * While closed, the outcomes of the last {@code windowSize} calls are kept; once at least {@code minimumCalls}
+ * are recorded and the failure rate reaches the threshold, the breaker opens and rejects calls without trying
+ * them. After {@code openDuration} it lets {@code halfOpenCalls} trial calls through: if all succeed it closes,
+ * and the first failure opens it again.
+ * <p>
+ * The state is published as the {@code datify.circuit.state} gauge (0 closed, 1 open, 2 half-open) and
+ * rejected calls are counted in {@code datify.circuit.rejected}, both tagged with the breaker name.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+    private final Counter rejected;
+
+    private final boolean[] outcomes;
+    private int position;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int halfOpenCalls, MeterRegistry meterRegistry) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls, System::nanoTime,
+                meterRegistry);
+    }
+
+    CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration,
+                   int halfOpenCalls, LongSupplier nanoClock, MeterRegistry meterRegistry) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize || halfOpenCalls <= 0) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings for " + name);
+        }
+        this.name = name;
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoClock = nanoClock;
+        Gauge.builder("datify.circuit.state", this, breaker -> breaker.state().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("datify.circuit.rejected")
+                .description("Calls rejected without being tried because the circuit was open")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Whether a call may go ahead. Every permitted call must end with {@link #onSuccess()},
+     * {@link #onFailure()} or {@link #onIgnored()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                rejected.increment();
+                return false;
+            }
+            transition(State.HALF_OPEN);
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                rejected.increment();
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                resetWindow();
+                transition(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * A permitted call ended without telling anything about the dependency, e.g. it was cancelled.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % outcomes.length;
+    }
+
+    private void open() {
+        openedAt = nanoClock.getAsLong();
+        resetWindow();
+        transition(State.OPEN);
+    }
+
+    private void resetWindow() {
+        position = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    private void transition(State next) {
+        if (state != next) {
+            if (next == State.OPEN) {
+                logger.warn("Circuit breaker {} opened; calls are rejected for {} ms", name, openNanos / 1_000_000);
+            } else {
+                logger.info("Circuit breaker {} is now {}", name, next);
+            }
+            state = next;
+        }
+    }
+}
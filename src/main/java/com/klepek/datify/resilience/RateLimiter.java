@@ -0,0 +1,92 @@
+package com.klepek.datify.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket sized to an upstream quota. The bucket refills continuously at {@code permitsPerMinute} and
+ * holds at most {@code burst} tokens.
+ * <p>
+ * A caller that finds the bucket empty is not refused but reserves the next token ahead of time and waits
+ * for it, so callers queue in arrival order. Only when the wait would exceed {@code maxWait} is the call
+ * rejected with {@link RequestNotPermittedException}. Waiting and rejected calls are counted in
+ * {@code datify.ratelimiter.calls}, tagged with the limiter name.
+ */
+public class RateLimiter {
+
+    private final String name;
+    private final double permitsPerNano;
+    private final double burst;
+    private final long maxWaitNanos;
+    private final LongSupplier nanoClock;
+    private final Counter delayed;
+    private final Counter rejected;
+
+    private double tokens;
+    private long refilledAt;
+
+    public RateLimiter(String name, int permitsPerMinute, int burst, Duration maxWait, MeterRegistry meterRegistry) {
+        this(name, permitsPerMinute, burst, maxWait, System::nanoTime, meterRegistry);
+    }
+
+    RateLimiter(String name, int permitsPerMinute, int burst, Duration maxWait, LongSupplier nanoClock,
+                MeterRegistry meterRegistry) {
+        if (permitsPerMinute <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Invalid rate limiter settings for " + name);
+        }
+        this.name = name;
+        this.permitsPerNano = permitsPerMinute / (double) Duration.ofMinutes(1).toNanos();
+        this.burst = burst;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.refilledAt = nanoClock.getAsLong();
+        this.delayed = Counter.builder("datify.ratelimiter.calls")
+                .description("Calls that waited for, or were refused, a rate limiter permit")
+                .tags("name", name, "result", "delayed")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("datify.ratelimiter.calls")
+                .description("Calls that waited for, or were refused, a rate limiter permit")
+                .tags("name", name, "result", "rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Completes once a permit is available, or fails with {@link RequestNotPermittedException} right away if
+     * that would take longer than the maximum wait.
+     */
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> reserve()
+                .map(wait -> wait.isZero() ? Mono.<Void>empty() : Mono.delay(wait).then())
+                .orElseGet(() -> Mono.error(new RequestNotPermittedException(
+                        "Rate limit of " + name + " reached; no permit within the maximum wait"))));
+    }
+
+    /**
+     * Takes a permit, possibly one that is yet to be refilled, and returns how long to wait before using it;
+     * empty when the wait would exceed the maximum and no permit was taken.
+     */
+    synchronized Optional<Duration> reserve() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            return Optional.of(Duration.ZERO);
+        }
+        long waitNanos = (long) Math.ceil((1 - tokens) / permitsPerNano);
+        if (waitNanos > maxWaitNanos) {
+            rejected.increment();
+            return Optional.empty();
+        }
+        tokens -= 1;
+        delayed.increment();
+        return Optional.of(Duration.ofNanos(waitNanos));
+    }
+}
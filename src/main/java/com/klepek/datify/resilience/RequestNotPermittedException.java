@@ -0,0 +1,11 @@
+package com.klepek.datify.resilience;
+
+/**
+ * A call was refused locally, before reaching the remote service, e.g. because the rate limiter's queue is full.
+ */
+public class RequestNotPermittedException extends RuntimeException {
+
+    public RequestNotPermittedException(String message) {
+        super(message);
+    }
+}
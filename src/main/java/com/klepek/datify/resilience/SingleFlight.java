@@ -0,0 +1,48 @@
+package com.klepek.datify.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical calls into one: while a call for a key is in flight, later callers subscribe
+ * to it and share its result or error instead of starting their own. The entry is dropped once the call
+ * completes, so results are not cached beyond the overlap. A caller that cancels does not cancel the shared
+ * call for the others. Coalesced calls are counted in {@code datify.singleflight.coalesced}.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("datify.singleflight.coalesced")
+                .description("Calls that joined an identical call already in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            boolean[] started = {false};
+            Mono<V> shared = inFlight.computeIfAbsent(key, k -> {
+                started[0] = true;
+                return call.get()
+                        .doFinally(signal -> inFlight.remove(k))
+                        .cache();
+            });
+            if (!started[0]) {
+                coalesced.increment();
+            }
+            return shared;
+        });
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,284 @@
+package com.klepek.datify.search;
+
+import com.klepek.datify.vectorstore.MetadataColumns;
+import com.klepek.datify.vectorstore.MetadataFilter;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory inverted index over chunk text, scored with Okapi BM25.
+ * <p>
+ * Chunks are keyed by the same ids as in the vector store, so lexical and semantic hits can be fused. Each
+ * term maps to a postings list of chunk ordinals with term frequencies. Only ids, lengths, postings and the
+ * filterable metadata columns are kept; hits are resolved to chunk text through a {@link ChunkLookup}.
+ * <p>
+ * Replaced and removed chunks are marked deleted and skipped while scoring until {@link #compact} drops them
+ * from the postings. Filters use the same metadata columns as the mapped vector store.
+ */
+@Component
+public class Bm25Index {
+
+    private final double k1;
+    private final double b;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final MetadataColumns columns = new MetadataColumns();
+    private final BitSet deleted = new BitSet();
+
+    private int[] lengths = new int[1024];
+    private long totalLength;
+    private int liveCount;
+
+    public Bm25Index(@Value("${datify.search.bm25.k1:1.2}") double k1,
+                     @Value("${datify.search.bm25.b:0.75}") double b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /**
+     * Indexes a chunk, replacing an earlier chunk with the same id.
+     */
+    public void add(String chunkId, String text, Map<String, Object> chunkMetadata) {
+        List<String> tokens = LexicalTokenizer.tokenize(text);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = ordinalsById.get(chunkId);
+            if (previous != null) {
+                markDeleted(previous);
+            }
+
+            int ordinal = ids.size();
+            ids.add(chunkId);
+            columns.set(ordinal, chunkMetadata);
+            if (ordinal == lengths.length) {
+                lengths = Arrays.copyOf(lengths, lengths.length * 2);
+            }
+            lengths[ordinal] = tokens.size();
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new Postings()).add(ordinal, frequency));
+
+            ordinalsById.put(chunkId, ordinal);
+            totalLength += tokens.size();
+            liveCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String chunkId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsById.get(chunkId);
+            if (ordinal == null) {
+                return false;
+            }
+            markDeleted(ordinal);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every chunk matching the filter, e.g. all chunks of a deleted document.
+     */
+    public int remove(Filter.Expression filter) {
+        lock.writeLock().lock();
+        try {
+            IntPredicate matches = MetadataFilter.compile(filter, columns);
+            int removed = 0;
+            for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+                if (!deleted.get(ordinal) && matches.test(ordinal)) {
+                    markDeleted(ordinal);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Top chunks for the query terms, restricted to chunks matching the filter when one is given.
+     */
+    public List<LexicalHit> search(String query, int topK, Filter.Expression filter) {
+        LinkedHashSet<String> terms = new LinkedHashSet<>(LexicalTokenizer.tokenize(query));
+
+        lock.readLock().lock();
+        try {
+            if (terms.isEmpty() || liveCount == 0 || topK <= 0) {
+                return List.of();
+            }
+            IntPredicate accept = filter == null ? ordinal -> true : MetadataFilter.compile(filter, columns);
+            double averageLength = (double) totalLength / liveCount;
+
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Postings termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                int documentFrequency = termPostings.liveCount(deleted);
+                if (documentFrequency == 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                for (int i = 0; i < termPostings.size; i++) {
+                    int ordinal = termPostings.ordinals[i];
+                    if (deleted.get(ordinal) || !accept.test(ordinal)) {
+                        continue;
+                    }
+                    int frequency = termPostings.frequencies[i];
+                    double saturation = frequency * (k1 + 1)
+                            / (frequency + k1 * (1 - b + b * lengths[ordinal] / averageLength));
+                    scores.merge(ordinal, idf * saturation, Double::sum);
+                }
+            }
+
+            PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                best.add(entry);
+                if (best.size() > topK) {
+                    best.poll();
+                }
+            }
+            List<LexicalHit> hits = new ArrayList<>(best.size());
+            for (Map.Entry<Integer, Double> entry : best) {
+                int ordinal = entry.getKey();
+                hits.add(new LexicalHit(ids.get(ordinal), entry.getValue()));
+            }
+            hits.sort(Comparator.comparingDouble(LexicalHit::score).reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops deleted chunks from the postings and renumbers the live ones once deleted chunks make up at least
+     * {@code threshold} of the index. Searches wait for it, but it only touches primitive arrays. Returns
+     * whether it ran.
+     */
+    public boolean compact(double threshold) {
+        lock.writeLock().lock();
+        try {
+            int size = ids.size();
+            if (size == 0 || (double) (size - liveCount) / size < threshold) {
+                return false;
+            }
+            int[] renumbered = new int[size];
+            int next = 0;
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                if (deleted.get(ordinal)) {
+                    renumbered[ordinal] = -1;
+                    continue;
+                }
+                renumbered[ordinal] = next;
+                if (next != ordinal) {
+                    String id = ids.get(ordinal);
+                    ids.set(next, id);
+                    lengths[next] = lengths[ordinal];
+                    columns.move(ordinal, next);
+                    ordinalsById.put(id, next);
+                }
+                next++;
+            }
+            ids.subList(next, size).clear();
+            deleted.clear();
+            postings.values().removeIf(termPostings -> termPostings.renumber(renumbered) == 0);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markDeleted(int ordinal) {
+        if (deleted.get(ordinal)) {
+            return;
+        }
+        deleted.set(ordinal);
+        ordinalsById.remove(ids.get(ordinal));
+        totalLength -= lengths[ordinal];
+        liveCount--;
+    }
+
+    private static final class Postings {
+
+        private int[] ordinals = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        /**
+         * Maps ordinals to their new numbers, dropping those mapped to -1, and returns the remaining size.
+         */
+        int renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int ordinal = renumbered[ordinals[i]];
+                if (ordinal >= 0) {
+                    ordinals[kept] = ordinal;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            if (size < ordinals.length / 4) {
+                ordinals = Arrays.copyOf(ordinals, Math.max(4, size));
+                frequencies = Arrays.copyOf(frequencies, Math.max(4, size));
+            }
+            return size;
+        }
+
+        int liveCount(BitSet deleted) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (!deleted.get(ordinals[i])) {
+                    live++;
+                }
+            }
+            return live;
+        }
+    }
+}
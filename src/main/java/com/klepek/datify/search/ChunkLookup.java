@@ -0,0 +1,19 @@
+package com.klepek.datify.search;
+
+import org.springframework.ai.document.Document;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fetches stored chunks by id. The {@link Bm25Index} only keeps chunk ids, so lexical hits get their text and
+ * metadata from the vector store's records.
+ */
+@FunctionalInterface
+public interface ChunkLookup {
+
+    /**
+     * Chunks with the given ids, in the order given; ids that are no longer stored are skipped.
+     */
+    List<Document> findByIds(Collection<String> ids);
+}
@@ -0,0 +1,198 @@
+package com.klepek.datify.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Packs retrieved chunks into the prompt context under a token budget.
+ * <p>
+ * Chunks are taken whole, in retrieval order (best first); one that does not fit in the remaining budget is
+ * skipped, so a smaller, lower-ranked chunk may still fill the gap. A chunk is dropped as redundant when most
+ * of its word 5-grams already appear in the packed context, which catches repeated chunks, re-uploaded copies
+ * and the overlap the chunker carries between neighbours. Tokens are counted with the same estimator as the
+ * chunker; it is not Gemini's tokenizer, so budgets are approximate.
+ */
+@Component
+public class ContextAssembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContextAssembler.class);
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int SHINGLE_WORDS = 5;
+    private static final double REDUNDANT_SHARE = 0.8;
+    private static final String SEPARATOR = "\n\n";
+    private static final int MAX_CHARS_PER_TOKEN = 8;
+
+    private final TokenCountEstimator tokenEstimator;
+    private final int documentTokenBudget;
+    private final int globalTokenBudget;
+
+    @Autowired
+    public ContextAssembler(@Value("${datify.context.document-token-budget:800}") int documentTokenBudget,
+                            @Value("${datify.context.global-token-budget:1600}") int globalTokenBudget) {
+        this(new JTokkitTokenCountEstimator(), documentTokenBudget, globalTokenBudget);
+    }
+
+    public ContextAssembler(TokenCountEstimator tokenEstimator, int documentTokenBudget, int globalTokenBudget) {
+        if (documentTokenBudget <= 0 || globalTokenBudget <= 0) {
+            throw new IllegalArgumentException("Context token budgets must be positive");
+        }
+        this.tokenEstimator = tokenEstimator;
+        this.documentTokenBudget = documentTokenBudget;
+        this.globalTokenBudget = globalTokenBudget;
+    }
+
+    /**
+     * @param text      the packed chunks, separated by blank lines
+     * @param documents number of distinct documents the chunks come from
+     */
+    public record PackedContext(String text, int tokens, int chunks, int documents) {
+    }
+
+    /**
+     * Context for a question about a single document: chunk text only.
+     */
+    public PackedContext packDocument(List<Document> chunks) {
+        return pack(chunks, documentTokenBudget, false);
+    }
+
+    /**
+     * Context for a question across all documents: each chunk is preceded by a line naming its source.
+     * Chunks without a source are left out.
+     */
+    public PackedContext packGlobal(List<Document> chunks) {
+        return pack(chunks, globalTokenBudget, true);
+    }
+
+    /**
+     * The longest prefix of the text within the document budget, cut at whitespace.
+     * <p>
+     * Only the first {@code budget * 8} characters are considered, since no realistic tokenization fits more
+     * into the budget. Cut points are searched within that window, so a long document costs a few passes over
+     * the window rather than over the whole text.
+     */
+    public String truncate(String text) {
+        int window = (int) Math.min(text.length(), (long) documentTokenBudget * MAX_CHARS_PER_TOKEN);
+        if (window == text.length() && tokenEstimator.estimate(text) <= documentTokenBudget) {
+            return text;
+        }
+        // A cut at the window's end is valid when the text continues with whitespace
+        int last = Math.min(window, text.length() - 1);
+        int[] cuts = new int[last];
+        int cutCount = 0;
+        for (int i = 1; i <= last; i++) {
+            if (Character.isWhitespace(text.charAt(i)) && !Character.isWhitespace(text.charAt(i - 1))) {
+                cuts[cutCount++] = i;
+            }
+        }
+        int low = 0;
+        int high = cutCount - 1;
+        int best = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (tokenEstimator.estimate(text.substring(0, cuts[middle])) <= documentTokenBudget) {
+                best = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return best < 0 ? "" : text.substring(0, cuts[best]);
+    }
+
+    PackedContext pack(List<Document> chunks, int tokenBudget, boolean withSources) {
+        StringBuilder context = new StringBuilder();
+        Set<String> packedShingles = new HashSet<>();
+        Set<Object> documents = new HashSet<>();
+        int tokens = 0;
+        int packed = 0;
+        int redundant = 0;
+        int overBudget = 0;
+
+        for (Document chunk : chunks) {
+            String text = chunk.getText();
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            Object documentId = chunk.getMetadata().get("documentId");
+            Object filename = chunk.getMetadata().get("filename");
+            if (withSources && (documentId == null || filename == null)) {
+                continue;
+            }
+
+            Set<String> shingles = shingles(text);
+            if (isRedundant(shingles, packedShingles)) {
+                redundant++;
+                continue;
+            }
+
+            String piece = withSources
+                    ? String.format("[Source: %s (ID: %s)]\n%s", filename, documentId, text.strip())
+                    : text.strip();
+            int pieceTokens = tokenEstimator.estimate(piece) + (packed > 0 ? tokenEstimator.estimate(SEPARATOR) : 0);
+            if (tokens + pieceTokens > tokenBudget) {
+                overBudget++;
+                continue;
+            }
+
+            if (packed > 0) {
+                context.append(SEPARATOR);
+            }
+            context.append(piece);
+            tokens += pieceTokens;
+            packed++;
+            packedShingles.addAll(shingles);
+            if (documentId != null) {
+                documents.add(documentId);
+            }
+        }
+
+        logger.debug("Packed {} of {} chunks into {} of {} tokens ({} redundant, {} over budget)",
+                packed, chunks.size(), tokens, tokenBudget, redundant, overBudget);
+        return new PackedContext(context.toString(), tokens, packed, documents.size());
+    }
+
+    private static boolean isRedundant(Set<String> shingles, Set<String> packedShingles) {
+        if (packedShingles.isEmpty()) {
+            return false;
+        }
+        int covered = 0;
+        for (String shingle : shingles) {
+            if (packedShingles.contains(shingle)) {
+                covered++;
+            }
+        }
+        return covered >= REDUNDANT_SHARE * shingles.size();
+    }
+
+    private static Set<String> shingles(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        Set<String> shingles = new HashSet<>();
+        if (words.size() < SHINGLE_WORDS) {
+            shingles.add(String.join(" ", words));
+            return shingles;
+        }
+        for (int i = 0; i + SHINGLE_WORDS <= words.size(); i++) {
+            shingles.add(String.join(" ", words.subList(i, i + SHINGLE_WORDS)));
+        }
+        return shingles;
+    }
+}
@@ -0,0 +1,4 @@
+package com.klepek.datify.search;
+
+public record LexicalHit(String chunkId, double score) {
+}
@@ -0,0 +1,34 @@
+package com.klepek.datify.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compacts the {@link Bm25Index} on the vector store's compaction schedule and tombstone ratio, so postings of
+ * deleted chunks are dropped about when the vector shards reclaim their space.
+ */
+@Component
+public class LexicalIndexCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(LexicalIndexCompactor.class);
+
+    private final Bm25Index bm25Index;
+    private final double tombstoneRatio;
+
+    public LexicalIndexCompactor(Bm25Index bm25Index,
+                                 @Value("${datify.vectorstore.compaction.tombstone-ratio:0.2}") double tombstoneRatio) {
+        this.bm25Index = bm25Index;
+        this.tombstoneRatio = tombstoneRatio;
+    }
+
+    @Scheduled(fixedDelayString = "${datify.vectorstore.compaction.interval:PT10M}",
+            initialDelayString = "${datify.vectorstore.compaction.interval:PT10M}")
+    public void compact() {
+        if (bm25Index.compact(tombstoneRatio)) {
+            logger.info("Compacted the BM25 index to {} chunks", bm25Index.size());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.klepek.datify.search;
+
+import com.klepek.datify.vectorstore.MappedVectorStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refills the in-memory {@link Bm25Index} from the chunks persisted in the mapped vector store, so lexical
+ * search survives restarts without re-chunking documents. With the in-memory store there is nothing to reload.
+ */
+@Component
+public class LexicalIndexLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(LexicalIndexLoader.class);
+
+    private final Bm25Index bm25Index;
+    private final ObjectProvider<MappedVectorStore> vectorStore;
+
+    public LexicalIndexLoader(Bm25Index bm25Index, ObjectProvider<MappedVectorStore> vectorStore) {
+        this.bm25Index = bm25Index;
+        this.vectorStore = vectorStore;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        vectorStore.ifAvailable(store -> {
+            long start = System.nanoTime();
+            store.forEachRecord(record -> bm25Index.add(record.id(), record.text(), record.metadata()));
+            logger.info("Loaded {} chunks into the BM25 index in {} ms", bm25Index.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+}
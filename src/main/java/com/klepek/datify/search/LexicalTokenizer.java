@@ -0,0 +1,33 @@
+package com.klepek.datify.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lower-case, accent-free tokens of letters and digits, so "Faktura č. 2024-001" and
+ * "faktura c 2024 001" produce the same terms. Identifiers such as IBANs or invoice numbers without
+ * separators stay single tokens and match exactly.
+ */
+public final class LexicalTokenizer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private LexicalTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,63 @@
+package com.klepek.datify.search;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reciprocal rank fusion of semantic and lexical results: each chunk scores {@code sum(1 / (k + rank))} over
+ * the lists it appears in. Only ranks are used, so the incomparable cosine and BM25 scales never mix.
+ */
+public final class RankFusion {
+
+    private RankFusion() {
+    }
+
+    /**
+     * Lexical hits carry only chunk ids; those that make the top K without a semantic hit are fetched through
+     * the lookup in one call. A chunk deleted in the meantime is skipped, so fewer than topK may be returned.
+     */
+    public static List<Document> reciprocalRank(List<Document> semantic, List<LexicalHit> lexical, int topK, int k,
+                                                ChunkLookup lookup) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        Map<String, Double> scores = new LinkedHashMap<>();
+
+        for (int rank = 0; rank < semantic.size(); rank++) {
+            Document document = semantic.get(rank);
+            documents.put(document.getId(), document);
+            scores.merge(document.getId(), 1.0 / (k + rank + 1), Double::sum);
+        }
+        for (int rank = 0; rank < lexical.size(); rank++) {
+            scores.merge(lexical.get(rank).chunkId(), 1.0 / (k + rank + 1), Double::sum);
+        }
+
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()));
+        ranked = ranked.subList(0, Math.min(topK, ranked.size()));
+
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : ranked) {
+            if (!documents.containsKey(entry.getKey())) {
+                missing.add(entry.getKey());
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Document document : lookup.findByIds(missing)) {
+                documents.put(document.getId(), document);
+            }
+        }
+
+        List<Document> fused = new ArrayList<>(ranked.size());
+        for (Map.Entry<String, Double> entry : ranked) {
+            Document document = documents.get(entry.getKey());
+            if (document != null) {
+                fused.add(document.mutate().score(entry.getValue()).build());
+            }
+        }
+        return fused;
+    }
+}
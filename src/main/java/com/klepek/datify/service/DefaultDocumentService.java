@@ -1,22 +1,47 @@
 package com.klepek.datify.service;
 
+import com.klepek.datify.cache.SemanticAnswerCache;
+import com.klepek.datify.dto.AnswerResponse;
 import com.klepek.datify.entity.Document;
 import com.klepek.datify.entity.Invoice;
 import com.klepek.datify.exception.DocumentNotFoundException;
 import com.klepek.datify.exception.GeminiApiException;
+import com.klepek.datify.exception.IngestionRejectedException;
 import com.klepek.datify.exception.TextExtractionException;
+import com.klepek.datify.ingestion.ExtractedText;
+import com.klepek.datify.ingestion.IngestionJob;
+import com.klepek.datify.ingestion.IngestionJobRegistry;
+import com.klepek.datify.ingestion.IngestionStage;
+import com.klepek.datify.ingestion.TextExtractor;
+import com.klepek.datify.ingestion.UploadDeduplicator;
+import com.klepek.datify.ingestion.UploadSpool;
+import com.klepek.datify.ingestion.UploadSpool.SpooledUpload;
 import com.klepek.datify.repository.DocumentRepository;
 import com.klepek.datify.repository.InvoiceRepository;
-import org.apache.tika.Tika;
+import com.klepek.datify.search.ContextAssembler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-
-import java.util.HashMap;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class DefaultDocumentService implements DocumentService {
@@ -28,45 +53,78 @@ public class DefaultDocumentService implements DocumentService {
     private final GeminiService geminiService;
     private final DocumentVectorService vectorService;
     private final InvoiceExtractionService invoiceExtractionService;
-    private final Tika tika;
+    private final IngestionJobRegistry jobRegistry;
+    private final UploadSpool uploadSpool;
+    private final TaskExecutor ingestionExecutor;
+    private final TextExtractor textExtractor;
+    private final UploadDeduplicator uploadDeduplicator;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final ContextAssembler contextAssembler;
 
     public DefaultDocumentService(DocumentRepository documentRepository,
                           InvoiceRepository invoiceRepository,
                           GeminiService geminiService,
                           DocumentVectorService vectorService,
-                          InvoiceExtractionService invoiceExtractionService) {
+                          InvoiceExtractionService invoiceExtractionService,
+                          IngestionJobRegistry jobRegistry,
+                          UploadSpool uploadSpool,
+                          @Qualifier("ingestionExecutor") TaskExecutor ingestionExecutor,
+                          TextExtractor textExtractor,
+                          UploadDeduplicator uploadDeduplicator,
+                          SemanticAnswerCache semanticAnswerCache,
+                          ContextAssembler contextAssembler) {
         this.documentRepository = documentRepository;
         this.invoiceRepository = invoiceRepository;
         this.geminiService = geminiService;
         this.vectorService = vectorService;
         this.invoiceExtractionService = invoiceExtractionService;
-        this.tika = new Tika();
+        this.jobRegistry = jobRegistry;
+        this.uploadSpool = uploadSpool;
+        this.ingestionExecutor = ingestionExecutor;
+        this.textExtractor = textExtractor;
+        this.uploadDeduplicator = uploadDeduplicator;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.contextAssembler = contextAssembler;
     }
 
-    public Document uploadDocument(MultipartFile file) throws TextExtractionException {
+    public Document uploadDocument(MultipartFile file) throws IOException, TextExtractionException {
         logger.info("Starting document upload for file: {}", file.getOriginalFilename());
 
         try {
             validateFile(file);
             logger.debug("File validation passed");
 
-            String extractedText = extractText(file);
-            logger.debug("Text extraction completed, length: {}", extractedText.length());
-
-            Document document = new Document(
-                    file.getOriginalFilename(),
-                    file.getContentType(),
-                    extractedText
-            );
-
-            Document savedDocument = documentRepository.save(document);
-            logger.debug("Document saved with ID: {}", savedDocument.getId());
-
-            logger.debug("Storing document in vector database...");
-            vectorService.storeDocument(savedDocument);
-            logger.debug("Document successfully stored in vector database with chunking");
+            String contentHash;
+            try (InputStream inputStream = file.getInputStream()) {
+                contentHash = UploadDeduplicator.hash(inputStream);
+            }
+            Optional<Document> duplicate = uploadDeduplicator.findDuplicate(contentHash);
+            if (duplicate.isPresent()) {
+                return duplicate.get();
+            }
 
-            processInvoiceIfApplicable(savedDocument, extractedText);
+            boolean claimed = uploadDeduplicator.claim(contentHash);
+            Document savedDocument;
+            try {
+                Optional<Document> orphan = claimed ? uploadDeduplicator.findOrphan(contentHash) : Optional.empty();
+                try (ExtractedText extractedText = extractText(file)) {
+                    logger.debug("Text extraction completed, length: {}", extractedText.getLength());
+
+                    Optional<Document> saved = orphan.isPresent()
+                            ? Optional.of(reclaim(orphan.get(), extractedText))
+                            : saveDocument(file.getOriginalFilename(), file.getContentType(), contentHash, extractedText);
+                    if (saved.isEmpty()) {
+                        return uploadDeduplicator.resolveConflict(contentHash);
+                    }
+                    savedDocument = saved.get();
+                    indexOrDiscard(savedDocument, extractedText);
+                }
+            } finally {
+                if (claimed) {
+                    uploadDeduplicator.release(contentHash);
+                }
+            }
+            processInvoiceIfApplicable(savedDocument);
 
             logger.info("Document upload completed successfully for file: {}", file.getOriginalFilename());
             return savedDocument;
@@ -76,6 +134,107 @@ public class DefaultDocumentService implements DocumentService {
         }
     }
 
+    public IngestionJob submitDocument(MultipartFile file) throws IOException {
+        logger.info("Accepting document for asynchronous ingestion: {}", file.getOriginalFilename());
+        validateFile(file);
+
+        String filename = file.getOriginalFilename();
+        String contentType = file.getContentType();
+        SpooledUpload spooled = uploadSpool.spool(file);
+
+        Optional<Document> duplicate = uploadDeduplicator.findDuplicate(spooled.contentHash());
+        if (duplicate.isPresent()) {
+            uploadSpool.release(spooled.path());
+            return jobRegistry.completed(filename, duplicate.get().getId(),
+                    "Duplicate of document " + duplicate.get().getId());
+        }
+
+        IngestionJob job;
+        try {
+            job = jobRegistry.create(filename);
+        } catch (IngestionRejectedException e) {
+            uploadSpool.release(spooled.path());
+            throw e;
+        }
+        boolean claimed = uploadDeduplicator.claim(spooled.contentHash());
+
+        try {
+            CompletableFuture<ExtractedDocument> extraction = CompletableFuture
+                    .supplyAsync(() -> runStage(job, IngestionStage.EXTRACTION, () -> {
+                        ExtractedText extractedText;
+                        try (InputStream inputStream = Files.newInputStream(spooled.path())) {
+                            extractedText = textExtractor.extract(inputStream);
+                        }
+                        try {
+                            Optional<Document> orphan = claimed
+                                    ? uploadDeduplicator.findOrphan(spooled.contentHash())
+                                    : Optional.empty();
+                            Optional<Document> saved = orphan.isPresent()
+                                    ? Optional.of(reclaim(orphan.get(), extractedText))
+                                    : saveDocument(filename, contentType, spooled.contentHash(), extractedText);
+                            Document document = saved.orElseGet(() -> uploadDeduplicator.resolveConflict(spooled.contentHash()));
+                            job.setDocumentId(document.getId());
+                            if (saved.isEmpty()) {
+                                job.describe(IngestionStage.EXTRACTION, "Duplicate of document " + document.getId());
+                                return new ExtractedDocument(null, extractedText);
+                            }
+                            return new ExtractedDocument(document, extractedText);
+                        } catch (Exception e) {
+                            // never handed over, so whenComplete cannot close it
+                            extractedText.close();
+                            throw e;
+                        }
+                    }), ingestionExecutor);
+            extraction
+                    .thenApplyAsync(extracted -> extracted.document() == null ? extracted : runStage(job, IngestionStage.EMBEDDING, () -> {
+                        int chunkCount = indexOrDiscard(extracted.document(), extracted.text());
+                        job.describe(IngestionStage.EMBEDDING, chunkCount + " chunks embedded");
+                        return extracted;
+                    }), ingestionExecutor)
+                    .thenApplyAsync(extracted -> extracted.document() == null ? extracted : runStage(job, IngestionStage.INVOICE, () -> {
+                        processInvoiceIfApplicable(extracted.document());
+                        return extracted;
+                    }), ingestionExecutor)
+                    .whenComplete((ignored, error) -> {
+                        if (claimed) {
+                            uploadDeduplicator.release(spooled.contentHash());
+                        }
+                        uploadSpool.release(spooled.path());
+                        // every later stage depends on extraction, so it is done by now
+                        if (!extraction.isCompletedExceptionally()) {
+                            extraction.join().text().close();
+                        }
+                        jobRegistry.finish(job);
+                        if (error != null) {
+                            logger.error("Asynchronous ingestion failed for file: {}", filename, error);
+                        } else {
+                            logger.info("Asynchronous ingestion completed for file: {}", filename);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            if (claimed) {
+                uploadDeduplicator.release(spooled.contentHash());
+            }
+            uploadSpool.release(spooled.path());
+            jobRegistry.discard(job);
+            throw new IngestionRejectedException("Ingestion executor is saturated, please retry later");
+        }
+
+        return job;
+    }
+
+    /**
+     * What the extraction stage hands to the later ones: the saved document, or null when the upload turned out to
+     * duplicate one that won the race, and its text. The text and the spooled upload are released once, when the
+     * whole pipeline completes.
+     */
+    private record ExtractedDocument(Document document, ExtractedText text) {
+    }
+
+    public Optional<IngestionJob> getIngestionJob(String jobId) {
+        return jobRegistry.find(jobId);
+    }
+
     public List<Document> getAllDocuments() {
         logger.info("Getting all documents from repository");
         try {
@@ -92,18 +251,123 @@ public class DefaultDocumentService implements DocumentService {
         return documentRepository.findById(id);
     }
 
+    /**
+     * Deletes a document with its invoices. Its chunks are tombstoned first, so they stop appearing in answers
+     * even if removing the rows fails.
+     */
+    public void deleteDocument(Long id) {
+        Document document = documentRepository.findById(id)
+                .orElseThrow(() -> new DocumentNotFoundException(id));
+
+        int chunks = vectorService.deleteDocument(document);
+        List<Invoice> invoices = invoiceRepository.findAllByDocumentId(id);
+        invoiceRepository.deleteAll(invoices);
+        documentRepository.delete(document);
+        logger.info("Deleted document {} ({}) with {} chunks and {} invoices",
+                id, document.getFilename(), chunks, invoices.size());
+    }
+
     public String askQuestion(Long documentId, String question) throws GeminiApiException {
+        return answer(prepareQuestion(documentId, question));
+    }
+
+    public String askGlobalQuestion(String question) throws GeminiApiException {
+        logger.info("Processing global question across all documents: {}", question);
+        return answer(prepareGlobalQuestion(question));
+    }
+
+    /**
+     * Retrieval (database, embedding and index lookups) blocks, so it runs on the bounded elastic scheduler;
+     * the Gemini call that follows holds no thread while the answer is generated. The document is looked up
+     * there too, so an unknown id fails the returned Mono with {@link DocumentNotFoundException}.
+     */
+    public Mono<AnswerResponse> askQuestionAsync(Long documentId, String question) {
+        return Mono.fromCallable(() -> prepareQuestion(documentId, question))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(prepared -> answerAsync(prepared).map(answer -> new AnswerResponse(
+                        answer, question, documentId, prepared.document().getFilename())));
+    }
+
+    public Mono<String> askGlobalQuestionAsync(String question) {
+        logger.info("Processing global question across all documents: {}", question);
+        return Mono.fromCallable(() -> prepareGlobalQuestion(question))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(this::answerAsync);
+    }
+
+    public Flux<String> askQuestionStream(Long documentId, String question) {
+        return Mono.fromCallable(() -> prepareQuestion(documentId, question))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(this::streamAnswer);
+    }
+
+    public Flux<String> askGlobalQuestionStream(String question) {
+        logger.info("Streaming answer to global question across all documents: {}", question);
+        return Mono.fromCallable(() -> prepareGlobalQuestion(question))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(this::streamAnswer);
+    }
+
+    /**
+     * A question with either the answer to a paraphrase of it from the semantic cache, or the context retrieved
+     * for asking Gemini. The document is the one asked about, or null for a global question.
+     */
+    private record PreparedQuestion(Document document, String scope, String question, String cachedAnswer,
+                                    String context) {
+    }
+
+    private PreparedQuestion prepareQuestion(Long documentId, String question) {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new DocumentNotFoundException(documentId));
+        String scope = SemanticAnswerCache.documentScope(documentId);
+        return semanticAnswerCache.find(scope, question)
+                .map(answer -> new PreparedQuestion(document, scope, question, answer, null))
+                .orElseGet(() -> new PreparedQuestion(
+                        document, scope, question, null, findRelevantContext(question, document)));
+    }
 
-        String relevantContext = findRelevantContext(question, document);
-        return geminiService.generateAnswer(question, relevantContext);
+    private PreparedQuestion prepareGlobalQuestion(String question) {
+        String scope = SemanticAnswerCache.GLOBAL_SCOPE;
+        return semanticAnswerCache.find(scope, question)
+                .map(answer -> new PreparedQuestion(null, scope, question, answer, null))
+                .orElseGet(() -> new PreparedQuestion(null, scope, question, null, findGlobalRelevantContext(question)));
     }
 
-    public String askGlobalQuestion(String question) throws GeminiApiException {
-        logger.info("Processing global question across all documents: {}", question);
-        String relevantContext = findGlobalRelevantContext(question);
-        return geminiService.generateAnswer(question, relevantContext);
+    private String answer(PreparedQuestion prepared) throws GeminiApiException {
+        if (prepared.cachedAnswer() != null) {
+            return prepared.cachedAnswer();
+        }
+        String answer = geminiService.generateAnswer(prepared.question(), prepared.context());
+        remember(prepared, answer);
+        return answer;
+    }
+
+    private Mono<String> answerAsync(PreparedQuestion prepared) {
+        if (prepared.cachedAnswer() != null) {
+            return Mono.just(prepared.cachedAnswer());
+        }
+        return geminiService.generateAnswerAsync(prepared.question(), prepared.context())
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(answer -> remember(prepared, answer));
+    }
+
+    private Flux<String> streamAnswer(PreparedQuestion prepared) {
+        if (prepared.cachedAnswer() != null) {
+            return Flux.just(prepared.cachedAnswer());
+        }
+        return Flux.defer(() -> {
+            StringBuilder answer = new StringBuilder();
+            return geminiService.streamAnswer(prepared.question(), prepared.context())
+                    .doOnNext(answer::append)
+                    .publishOn(Schedulers.boundedElastic())
+                    .doOnComplete(() -> remember(prepared, answer.toString().trim()));
+        });
+    }
+
+    private void remember(PreparedQuestion prepared, String answer) {
+        if (!GeminiService.NO_ANSWER.equals(answer)) {
+            semanticAnswerCache.put(prepared.scope(), prepared.question(), answer);
+        }
     }
 
     private void validateFile(MultipartFile file) {
@@ -143,41 +407,105 @@ public class DefaultDocumentService implements DocumentService {
         return filename.toLowerCase();
     }
 
-    private String extractText(MultipartFile file) throws TextExtractionException {
-        try (var inputStream = file.getInputStream()) {
-            String text = tika.parseToString(inputStream);
-            if (text == null || text.trim().isEmpty()) {
-                throw new TextExtractionException("No text content found in the file");
+    private ExtractedText extractText(MultipartFile file) throws TextExtractionException {
+        try (InputStream inputStream = file.getInputStream()) {
+            return textExtractor.extract(inputStream);
+        } catch (IOException e) {
+            throw new TextExtractionException("Failed to read uploaded file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns an empty result when a concurrent upload of the same content was saved first.
+     * <p>
+     * Only the start of the text is stored with the document, never the whole of a large upload: invoice
+     * extraction and the whole-document context fallback each read a bounded start of it, while the chunks
+     * carry all of it.
+     */
+    private Optional<Document> saveDocument(String filename, String contentType, String contentHash,
+                                            ExtractedText extractedText) {
+        Document document = new Document(filename, contentType, extractedText.getPrefix());
+        document.setTextLength(extractedText.getLength());
+        document.setContentHash(contentHash);
+        try {
+            Document savedDocument = documentRepository.save(document);
+            logger.debug("Document saved with ID: {}", savedDocument.getId());
+            return Optional.of(savedDocument);
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Document with content hash {} was saved concurrently", contentHash);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Takes over a document whose ingestion died before it was indexed: whatever chunks it got are dropped and
+     * its text is replaced by the new extraction, so it is indexed again under its own id.
+     */
+    private Document reclaim(Document orphan, ExtractedText extractedText) {
+        vectorService.deleteDocument(orphan);
+        orphan.setExtractedText(extractedText.getPrefix());
+        orphan.setTextLength(extractedText.getLength());
+        return documentRepository.save(orphan);
+    }
+
+    private int indexDocument(Document document, ExtractedText extractedText) throws IOException {
+        logger.debug("Storing document in vector database...");
+        int chunkCount;
+        try (Reader reader = extractedText.openReader()) {
+            chunkCount = vectorService.storeDocument(document, reader);
+        }
+        document.setChunkCount(chunkCount);
+        documentRepository.save(document);
+        logger.debug("Document successfully stored in vector database as {} chunks", chunkCount);
+        return chunkCount;
+    }
+
+    /**
+     * Removes the document again when indexing fails, so a retry of the upload starts from scratch. Only an
+     * ingestion that dies outright leaves a document without chunks; the next upload {@link #reclaim}s it.
+     */
+    private int indexOrDiscard(Document document, ExtractedText extractedText) throws IOException {
+        try {
+            return indexDocument(document, extractedText);
+        } catch (IOException | RuntimeException e) {
+            try {
+                vectorService.deleteDocument(document);
+                documentRepository.delete(document);
+                logger.info("Discarded document {} after failed indexing", document.getId());
+            } catch (RuntimeException cleanup) {
+                e.addSuppressed(cleanup);
             }
-            return text.trim();
+            throw e;
+        }
+    }
+
+    private <T> T runStage(IngestionJob job, IngestionStage stage, Callable<T> work) {
+        job.start(stage);
+        try {
+            T result = work.call();
+            job.complete(stage);
+            return result;
         } catch (Exception e) {
-            throw new TextExtractionException("Failed to extract text from file: " + e.getMessage(), e);
+            job.fail(stage, e.getMessage());
+            throw new CompletionException(e);
         }
     }
 
     private String findRelevantContext(String question, Document document) {
-        logger.debug("Performing semantic search for question: {}", question);
+        logger.debug("Performing semantic search in document {} for question: {}", document.getId(), question);
+        Filter.Expression documentFilter = new FilterExpressionBuilder().eq("documentId", document.getId()).build();
         List<org.springframework.ai.document.Document> similarChunks =
-            vectorService.findSimilarContent(question, 5, 0.3);
-
-        StringBuilder contextBuilder = new StringBuilder();
-        for (org.springframework.ai.document.Document chunk : similarChunks) {
-            Object docId = chunk.getMetadata().get("documentId");
-            if (docId != null && docId.toString().equals(document.getId().toString())) {
-                contextBuilder.append(chunk.getFormattedContent()).append("\n\n");
-            }
-        }
+            vectorService.findSimilarContent(question, 5, 0.3, documentFilter);
 
-        String semanticContext = contextBuilder.toString().trim();
+        ContextAssembler.PackedContext context = contextAssembler.packDocument(similarChunks);
 
-        if (semanticContext.length() < 100) {
+        if (context.text().length() < 100) {
             logger.debug("Insufficient semantic search results, using full document text");
-            String documentText = document.getExtractedText();
-            return documentText.length() <= 2000 ? documentText : documentText.substring(0, 2000);
+            return contextAssembler.truncate(document.getExtractedText());
         }
 
-        logger.debug("Using semantic search context, length: {} characters", semanticContext.length());
-        return semanticContext.length() <= 2000 ? semanticContext : semanticContext.substring(0, 2000);
+        logger.debug("Using semantic search context of {} chunks, {} tokens", context.chunks(), context.tokens());
+        return context.text();
     }
 
     private String findGlobalRelevantContext(String question) {
@@ -190,43 +518,25 @@ public class DefaultDocumentService implements DocumentService {
             similarChunks = vectorService.findSimilarContent(question, 10, 0.1);
         }
 
-        StringBuilder contextBuilder = new StringBuilder();
-        Map<String, String> sourceDocuments = new HashMap<>();
-
-        for (org.springframework.ai.document.Document chunk : similarChunks) {
-            Object docId = chunk.getMetadata().get("documentId");
-            Object filename = chunk.getMetadata().get("filename");
+        ContextAssembler.PackedContext context = contextAssembler.packGlobal(similarChunks);
 
-            if (docId != null && filename != null) {
-                String docInfo = String.format("[Source: %s (ID: %s)]", filename, docId);
-                if (!sourceDocuments.containsKey(docId.toString())) {
-                    sourceDocuments.put(docId.toString(), filename.toString());
-                }
-                contextBuilder.append(docInfo).append("\n");
-                contextBuilder.append(chunk.getFormattedContent()).append("\n\n");
-            }
-        }
-
-        String globalContext = contextBuilder.toString().trim();
-
-        if (globalContext.length() < 100) {
+        if (context.text().length() < 100) {
             logger.debug("Insufficient semantic search results, returning empty context");
             return "No relevant information found in the document collection for this question.";
         }
 
-        logger.info("Found relevant content from {} documents", sourceDocuments.size());
-        logger.debug("Using global semantic search context, length: {} characters", globalContext.length());
-
-        return globalContext.length() <= 4000 ? globalContext : globalContext.substring(0, 4000);
+        logger.info("Found relevant content from {} documents", context.documents());
+        logger.debug("Using global semantic search context of {} chunks, {} tokens", context.chunks(), context.tokens());
+        return context.text();
     }
 
-    private void processInvoiceIfApplicable(Document document, String extractedText) {
+    private void processInvoiceIfApplicable(Document document) {
         try {
-            if (invoiceExtractionService.isInvoiceDocument(document.getFilename(), extractedText)) {
-                logger.info("Document appears to be an invoice, extracting structured data: {}", document.getFilename());
+            Optional<Invoice> invoice = invoiceExtractionService.detectAndExtract(document);
+            if (invoice.isPresent()) {
+                logger.info("Document appears to be an invoice, saving structured data: {}", document.getFilename());
 
-                Invoice invoice = invoiceExtractionService.extractInvoiceData(document);
-                Invoice savedInvoice = invoiceRepository.save(invoice);
+                Invoice savedInvoice = invoiceRepository.save(invoice.get());
 
                 logger.info("Invoice data extracted successfully: vendor={}, amount={}, confidence={}",
                     savedInvoice.getVendorName(),
@@ -1,40 +1,180 @@
 package com.klepek.datify.service;
 
+import com.klepek.datify.cache.SemanticAnswerCache;
 import com.klepek.datify.entity.Document;
+import com.klepek.datify.ingestion.TextChunker;
+import com.klepek.datify.search.Bm25Index;
+import com.klepek.datify.search.ChunkLookup;
+import com.klepek.datify.search.LexicalHit;
+import com.klepek.datify.search.RankFusion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class DefaultDocumentVectorService implements DocumentVectorService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DefaultDocumentVectorService.class);
+
     private final VectorStore vectorStore;
+    private final TextChunker textChunker;
+    private final Bm25Index bm25Index;
+    private final ChunkLookup chunkLookup;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final int maxBatchSize;
+    private final boolean hybridSearch;
+    private final int fusionDepth;
+    private final int rrfK;
 
-    public DefaultDocumentVectorService( VectorStore vectorStore) {
+    public DefaultDocumentVectorService(VectorStore vectorStore,
+                                        TextChunker textChunker,
+                                        Bm25Index bm25Index,
+                                        ChunkLookup chunkLookup,
+                                        SemanticAnswerCache semanticAnswerCache,
+                                        @Value("${datify.embedding.max-batch-size:250}") int maxBatchSize,
+                                        @Value("${datify.search.hybrid.enabled:true}") boolean hybridSearch,
+                                        @Value("${datify.search.hybrid.depth:20}") int fusionDepth,
+                                        @Value("${datify.search.hybrid.rrf-k:60}") int rrfK) {
         this.vectorStore = vectorStore;
+        this.textChunker = textChunker;
+        this.bm25Index = bm25Index;
+        this.chunkLookup = chunkLookup;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.maxBatchSize = maxBatchSize;
+        this.hybridSearch = hybridSearch;
+        this.fusionDepth = fusionDepth;
+        this.rrfK = rrfK;
     }
 
-    public void storeDocument(Document document) {
-        org.springframework.ai.document.Document aiDocument = new org.springframework.ai.document.Document(
-            document.getExtractedText(),
-            createDocumentMetadata(document)
-        );
+    /**
+     * Indexes the text stored with the document, which for a long upload is only its start; ingestion indexes
+     * the whole spooled text through {@link #storeDocument(Document, Reader)}.
+     */
+    public int storeDocument(Document document) {
+        try {
+            return storeDocument(document, new StringReader(document.getExtractedText()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A document that was indexed before loses its old chunks first, since a shorter text would otherwise
+     * leave the old chunks beyond its new chunk count in both indexes.
+     */
+    public int storeDocument(Document document, Reader text) throws IOException {
+        if (document.getChunkCount() != null) {
+            deleteDocument(document);
+        }
+        List<org.springframework.ai.document.Document> batch = new ArrayList<>(maxBatchSize);
+        int[] chunkCount = {0};
 
-        vectorStore.add(List.of(aiDocument));
+        textChunker.chunk(text, chunkText -> {
+            batch.add(createChunk(document, chunkCount[0]++, chunkText));
+            if (batch.size() >= maxBatchSize) {
+                addChunks(List.copyOf(batch));
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            addChunks(List.copyOf(batch));
+        }
+        semanticAnswerCache.invalidateDocument(document.getId());
+
+        logger.debug("Stored document {} as {} chunks", document.getId(), chunkCount[0]);
+        return chunkCount[0];
     }
 
     public List<org.springframework.ai.document.Document> findSimilarContent(String query, int topK, double threshold) {
-        return vectorStore.similaritySearch(
+        return findSimilarContent(query, topK, threshold, null);
+    }
+
+    /**
+     * The filter is handed to the vector store, which applies it during the search rather than to its results,
+     * so topK counts matching chunks only. With hybrid search enabled, the top {@code fusionDepth} semantic and
+     * BM25 hits are merged by reciprocal rank fusion, so exact tokens such as invoice numbers or IBANs are found
+     * even when their embedding is not close to the question's.
+     * <p>
+     * BM25 scores have no absolute scale to hold against {@code threshold}, so lexical hits are only fused when
+     * at least one chunk passed it. A question unrelated to every document still finds nothing, which lets
+     * callers fall back to a lower threshold.
+     */
+    public List<org.springframework.ai.document.Document> findSimilarContent(String query, int topK, double threshold,
+                                                                             Filter.Expression filter) {
+        List<org.springframework.ai.document.Document> semantic = vectorStore.similaritySearch(
             SearchRequest.builder()
                 .query(query)
-                .topK(topK)
+                .topK(hybridSearch ? Math.max(topK, fusionDepth) : topK)
                 .similarityThreshold(threshold)
+                .filterExpression(filter)
                 .build()
         );
+        if (!hybridSearch || semantic.isEmpty()) {
+            return semantic;
+        }
+        List<LexicalHit> lexical = bm25Index.search(query, Math.max(topK, fusionDepth), filter);
+        logger.debug("Fusing {} semantic and {} lexical hits", semantic.size(), lexical.size());
+        return RankFusion.reciprocalRank(semantic, lexical, topK, rrfK, chunkLookup);
+    }
+
+    /**
+     * Removes the document's chunks from the vector and lexical indexes. The vector store only tombstones
+     * them; their space is reclaimed by the background compactor. Cached answers drawn from the document
+     * are dropped as well.
+     */
+    public int deleteDocument(Document document) {
+        Filter.Expression documentFilter = new FilterExpressionBuilder().eq("documentId", document.getId()).build();
+        Integer chunkCount = document.getChunkCount();
+        if (chunkCount != null) {
+            List<String> ids = new ArrayList<>(chunkCount);
+            for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+                ids.add(chunkId(document.getId(), chunkIndex));
+            }
+            vectorStore.delete(ids);
+        } else {
+            vectorStore.delete(documentFilter);
+        }
+        int removed = bm25Index.remove(documentFilter);
+        semanticAnswerCache.invalidateDocument(document.getId());
+        logger.debug("Deleted {} chunks of document {}", removed, document.getId());
+        return removed;
+    }
+
+    private void addChunks(List<org.springframework.ai.document.Document> chunks) {
+        vectorStore.add(chunks);
+        for (org.springframework.ai.document.Document chunk : chunks) {
+            bm25Index.add(chunk.getId(), chunk.getText(), chunk.getMetadata());
+        }
+    }
+
+    private org.springframework.ai.document.Document createChunk(Document document, int chunkIndex, String text) {
+        Map<String, Object> metadata = createDocumentMetadata(document);
+        metadata.put("chunkIndex", chunkIndex);
+        return new org.springframework.ai.document.Document(chunkId(document.getId(), chunkIndex), text, metadata);
+    }
+
+    /**
+     * Chunk IDs are derived from the document ID and ordinal, so deleting a document's chunks needs only its
+     * chunk count.
+     */
+    static String chunkId(Long documentId, int chunkIndex) {
+        return UUID.nameUUIDFromBytes((documentId + ":" + chunkIndex).getBytes(StandardCharsets.UTF_8)).toString();
     }
 
     private Map<String, Object> createDocumentMetadata(Document document) {
@@ -42,7 +182,7 @@ public class DefaultDocumentVectorService implements DocumentVectorService {
         metadata.put("documentId", document.getId());
         metadata.put("filename", document.getFilename());
         metadata.put("contentType", document.getContentType());
-        metadata.put("uploadedAt", document.getUploadedAt());
+        metadata.put("uploadedAt", document.getUploadedAt().toString());
         return metadata;
     }
 }
@@ -1,37 +1,74 @@
 package com.klepek.datify.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.klepek.datify.cache.AnswerCache;
+import com.klepek.datify.dto.GeminiResponse;
+import com.klepek.datify.exception.GeminiApiException;
+import com.klepek.datify.resilience.CircuitBreaker;
+import com.klepek.datify.resilience.RateLimiter;
+import com.klepek.datify.resilience.RequestNotPermittedException;
+import com.klepek.datify.resilience.SingleFlight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 @Service
 public class DefaultGeminiService implements GeminiService {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultGeminiService.class);
 
+    private static final ParameterizedTypeReference<ServerSentEvent<GeminiResponse>> SSE_EVENT =
+            new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
-    private final ObjectMapper objectMapper;
+    private final AnswerCache answerCache;
+    private final CircuitBreaker circuitBreaker;
+    private final RateLimiter rateLimiter;
+    private final SingleFlight<List<String>, String> singleFlight;
+    private final int maxAttempts;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final Duration deadline;
 
     @Value("${gemini.api.key}")
     private String apiKey;
 
-    public DefaultGeminiService(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
+    public DefaultGeminiService(WebClient geminiWebClient, AnswerCache answerCache,
+                                CircuitBreaker geminiCircuitBreaker,
+                                RateLimiter geminiRateLimiter,
+                                SingleFlight<List<String>, String> geminiSingleFlight,
+                                @Value("${datify.gemini.retry.max-attempts:3}") int maxAttempts,
+                                @Value("${datify.gemini.retry.min-backoff:PT0.5S}") Duration minBackoff,
+                                @Value("${datify.gemini.retry.max-backoff:PT5S}") Duration maxBackoff,
+                                @Value("${datify.gemini.deadline:PT60S}") Duration deadline) {
         logger.info("Initializing GeminiService");
         try {
-            this.webClient = webClientBuilder
-                    .baseUrl("https://generativelanguage.googleapis.com/v1beta")
-                    .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                    .build();
-            this.objectMapper = objectMapper;
+            this.webClient = geminiWebClient;
+            this.answerCache = answerCache;
+            this.circuitBreaker = geminiCircuitBreaker;
+            this.rateLimiter = geminiRateLimiter;
+            this.singleFlight = geminiSingleFlight;
+            this.maxAttempts = maxAttempts;
+            this.minBackoff = minBackoff;
+            this.maxBackoff = maxBackoff;
+            this.deadline = deadline;
             logger.info("GeminiService initialized successfully");
         } catch (Exception e) {
             logger.error("Error initializing GeminiService", e);
@@ -39,50 +76,209 @@ public class DefaultGeminiService implements GeminiService {
         }
     }
 
-    public String generateAnswer(String question, String context) {
+    public String generateAnswer(String question, String context) throws GeminiApiException {
+        try {
+            return generateAnswerAsync(question, context).block();
+        } catch (RuntimeException e) {
+            if (Exceptions.unwrap(e) instanceof GeminiApiException geminiApiException) {
+                throw geminiApiException;
+            }
+            throw e;
+        }
+    }
+
+    public Mono<String> generateAnswerAsync(String question, String context) {
         logger.debug("Generating answer for question of length: {}", question.length());
 
         if (apiKey == null || apiKey.trim().isEmpty()) {
             logger.error("Gemini API key is not properly configured");
-            throw new RuntimeException("Gemini API key is not configured. Please set the GEMINI_API_KEY environment variable.");
+            return Mono.error(new RuntimeException("Gemini API key is not configured. Please set the GEMINI_API_KEY environment variable."));
         }
 
-        var requestBody = getRequestBody(question, context);
+        var cached = answerCache.get(question, context);
+        if (cached.isPresent()) {
+            logger.debug("Answer served from cache");
+            return Mono.just(cached.get());
+        }
 
-        try {
-            logger.debug("Sending request to Gemini API");
-            String response = webClient.post()
-                    .uri("/models/gemini-1.5-flash:generateContent?key=" + apiKey)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            logger.debug("Received response from Gemini API");
-            JsonNode jsonNode = objectMapper.readTree(response);
-
-            // Check if there are candidates
-            if (!jsonNode.has("candidates") || jsonNode.get("candidates").isEmpty()) {
-                logger.warn("No candidates in Gemini response");
-                return "Omlouváme se, nepodařilo se vygenerovat odpověď.";
+        // Identical prompts already in flight share one upstream call and its result
+        return singleFlight.execute(List.of(question, context), () -> {
+                    logger.debug("Sending request to Gemini API");
+                    Mono<GeminiResponse> call = webClient.post()
+                            .uri("/models/gemini-1.5-flash:generateContent?key=" + apiKey)
+                            .bodyValue(getRequestBody(question, context))
+                            .retrieve()
+                            .bodyToMono(GeminiResponse.class);
+                    return guarded(call)
+                            .map(this::extractAnswer)
+                            .doOnNext(answer -> cacheAnswer(question, context, answer));
+                })
+                .onErrorMap(e -> !(e instanceof GeminiApiException), e -> {
+                    logger.error("Failed to generate answer with Gemini", e);
+                    return new GeminiApiException("Failed to generate answer: " + e.getMessage(), e);
+                });
+    }
+
+    /**
+     * Proxies {@code streamGenerateContent} with {@code alt=sse}: every event carries a partial response whose
+     * candidate holds the next few tokens.
+     */
+    public Flux<String> streamAnswer(String question, String context) {
+        logger.debug("Streaming answer for question of length: {}", question.length());
+
+        if (apiKey == null || apiKey.trim().isEmpty()) {
+            logger.error("Gemini API key is not properly configured");
+            return Flux.error(new RuntimeException("Gemini API key is not configured. Please set the GEMINI_API_KEY environment variable."));
+        }
+
+        var cached = answerCache.get(question, context);
+        if (cached.isPresent()) {
+            logger.debug("Streamed answer served from cache");
+            return Flux.just(cached.get());
+        }
+
+        Flux<GeminiResponse> call = webClient.post()
+                .uri("/models/gemini-1.5-flash:streamGenerateContent?alt=sse&key=" + apiKey)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(getRequestBody(question, context))
+                .retrieve()
+                .bodyToFlux(SSE_EVENT)
+                .mapNotNull(ServerSentEvent::data);
+        return Flux.defer(() -> {
+                    StringBuilder answer = new StringBuilder();
+                    return guarded(call)
+                            .map(GeminiResponse::text)
+                            .filter(fragment -> !fragment.isEmpty())
+                            .doOnNext(answer::append)
+                            .doOnComplete(() -> cacheAnswer(question, context, answer.toString().trim()));
+                })
+                .onErrorMap(e -> !(e instanceof GeminiApiException), e -> {
+                    logger.error("Failed to stream answer from Gemini", e);
+                    return new GeminiApiException("Failed to generate answer: " + e.getMessage(), e);
+                });
+    }
+
+    /**
+     * Runs a call through the circuit breaker, retrying rate limits, server errors, timeouts and connection
+     * failures with jittered exponential backoff, all within the overall deadline. The breaker records one
+     * outcome per call, after its retries. Every attempt first waits for a permit from the rate limiter.
+     */
+    private <T> Mono<T> guarded(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquire()) {
+                return Mono.error(circuitOpen());
             }
+            return rateLimiter.acquire().then(call)
+                    .retryWhen(retrySpec(this::isTransient))
+                    .timeout(deadline)
+                    .doOnSuccess(result -> circuitBreaker.onSuccess())
+                    .doOnError(this::recordFailure)
+                    .doOnCancel(circuitBreaker::onIgnored);
+        });
+    }
 
-            JsonNode candidate = jsonNode.get("candidates").get(0);
-            if (!candidate.has("content") || !candidate.get("content").has("parts")) {
-                logger.warn("Invalid response structure from Gemini");
-                return "Omlouváme se, nepodařilo se vygenerovat odpověď.";
+    /**
+     * A stream is only retried before its first event; once tokens have been forwarded a retry would repeat
+     * them, so a later failure ends the stream. The deadline bounds the whole stream, not the gap between
+     * events: each event restarts the timer with what is left of it, so a stream that keeps trickling tokens
+     * still fails with a timeout, which the breaker counts as a failure.
+     */
+    private <T> Flux<T> guarded(Flux<T> call) {
+        return Flux.defer(() -> {
+            if (!circuitBreaker.tryAcquire()) {
+                return Flux.error(circuitOpen());
             }
+            long start = System.nanoTime();
+            AtomicBoolean started = new AtomicBoolean();
+            return rateLimiter.acquire().thenMany(call)
+                    .doOnNext(event -> started.set(true))
+                    .retryWhen(retrySpec(e -> !started.get() && isTransient(e)))
+                    .timeout(Mono.delay(deadline), event -> Mono.delay(remaining(start)))
+                    .doOnComplete(circuitBreaker::onSuccess)
+                    .doOnError(this::recordFailure)
+                    .doOnCancel(circuitBreaker::onIgnored);
+        });
+    }
 
-            String answer = candidate.get("content").get("parts").get(0).get("text").asText();
-            logger.debug("Successfully generated answer of length: {}", answer.length());
-            return answer.trim();
+    private Duration remaining(long startNanos) {
+        Duration left = deadline.minusNanos(System.nanoTime() - startNanos);
+        return left.isNegative() ? Duration.ZERO : left;
+    }
 
-        } catch (Exception e) {
-            logger.error("Failed to generate answer with Gemini", e);
-            throw new RuntimeException("Failed to generate answer: " + e.getMessage(), e);
+    private Retry retrySpec(Predicate<Throwable> retryable) {
+        return Retry.backoff(maxAttempts - 1, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(0.5)
+                .filter(retryable)
+                .doBeforeRetry(signal -> logger.warn("Gemini call failed with {}, retry {} of {}",
+                        describe(signal.failure()), signal.totalRetries() + 1, maxAttempts - 1))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    /**
+     * Other client errors (a malformed request, a bad key) say nothing about Gemini's health, so they count
+     * as successful calls for the breaker; a call refused by the rate limiter never reached Gemini.
+     */
+    private void recordFailure(Throwable e) {
+        if (e instanceof RequestNotPermittedException) {
+            circuitBreaker.onIgnored();
+        } else if (isTransient(e)) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
         }
     }
 
+    private boolean isTransient(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().value() == 429 || response.getStatusCode().is5xxServerError();
+        }
+        return e instanceof WebClientRequestException || e instanceof TimeoutException;
+    }
+
+    private GeminiApiException circuitOpen() {
+        return new GeminiApiException("Gemini is unavailable: circuit breaker " + circuitBreaker.getName() + " is open");
+    }
+
+    /**
+     * Failure summary for logs; the request URI carries the API key, so exception messages are not logged.
+     */
+    private static String describe(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return "HTTP " + response.getStatusCode().value();
+        }
+        return e.getClass().getSimpleName();
+    }
+
+    /**
+     * The apology returned when Gemini produced no candidate is not cached, so the question is retried.
+     */
+    private void cacheAnswer(String question, String context, String answer) {
+        if (!answer.isEmpty() && !NO_ANSWER.equals(answer)) {
+            answerCache.put(question, context, answer);
+        }
+    }
+
+    /**
+     * The response is decoded by the codec straight from the body buffers into {@link GeminiResponse}, without
+     * an intermediate String or tree.
+     */
+    private String extractAnswer(GeminiResponse response) {
+        logger.debug("Received response from Gemini API");
+        if (response.candidates() == null || response.candidates().isEmpty()) {
+            logger.warn("No candidates in Gemini response");
+            return NO_ANSWER;
+        }
+        if (!response.hasText()) {
+            logger.warn("Invalid response structure from Gemini");
+            return NO_ANSWER;
+        }
+
+        String answer = response.text();
+        logger.debug("Successfully generated answer of length: {}", answer.length());
+        return answer.trim();
+    }
+
     private static Map<String, Object> getRequestBody(String question, String context) {
         String prompt = String.format(
                 "Na základě následujícího kontextu z dokumentu odpovězte na otázku v češtině. " +
@@ -1,20 +1,25 @@
 package com.klepek.datify.service;
 
-import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.JsonToken;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.klepek.datify.dto.InvoiceExtractionDto;
 import com.klepek.datify.entity.Document;
 import com.klepek.datify.entity.Invoice;
 import com.klepek.datify.entity.InvoiceStatus;
+import com.klepek.datify.ingestion.InvoiceClassifier;
+import com.klepek.datify.ingestion.InvoiceFieldExtractor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Optional;
+
 
 @Service
 public class DefaultInvoiceExtractionService implements InvoiceExtractionService {
@@ -22,8 +27,12 @@ public class DefaultInvoiceExtractionService implements InvoiceExtractionService
     private static final Logger logger = LoggerFactory.getLogger(DefaultInvoiceExtractionService.class);
 
     private final GeminiService geminiService;
+    private final InvoiceClassifier invoiceClassifier;
+    private final InvoiceFieldExtractor invoiceFieldExtractor;
+    private final double rulesMinConfidence;
+    private final int promptMaxChars;
     private final ObjectMapper objectMapper;
-    private final JsonFactory jsonFactory;
+    private final boolean combinedDetection;
 
     private static final String EXTRACTION_PROMPT = """
         You are an expert invoice data extraction system. Extract the following information from this document text in any language.
@@ -55,11 +64,33 @@ public class DefaultInvoiceExtractionService implements InvoiceExtractionService
         Document text to analyze:
         """;
 
-    public DefaultInvoiceExtractionService(GeminiService geminiService) {
+    /**
+     * @param detectionMode      {@code combined} classifies and extracts unnamed documents in one Gemini call;
+     *                           {@code two-step} asks whether it is an invoice first and extracts in a second call
+     * @param rulesMinConfidence rule-based extractions at or above this confidence are used without Gemini;
+     *                           above 1 every extraction goes to Gemini
+     * @param promptMaxChars     characters of document text sent to Gemini; see {@link #promptText}
+     */
+    public DefaultInvoiceExtractionService(GeminiService geminiService, InvoiceClassifier invoiceClassifier,
+                                           InvoiceFieldExtractor invoiceFieldExtractor,
+                                           @Value("${datify.invoice.detection-mode:combined}") String detectionMode,
+                                           @Value("${datify.invoice.rules.min-confidence:0.8}") double rulesMinConfidence,
+                                           @Value("${datify.invoice.prompt-max-chars:16000}") int promptMaxChars) {
+        if (promptMaxChars <= 0) {
+            throw new IllegalArgumentException("Invoice prompt length must be positive");
+        }
         this.geminiService = geminiService;
+        this.invoiceClassifier = invoiceClassifier;
+        this.invoiceFieldExtractor = invoiceFieldExtractor;
+        this.rulesMinConfidence = rulesMinConfidence;
+        this.promptMaxChars = promptMaxChars;
+        this.combinedDetection = switch (detectionMode) {
+            case "combined" -> true;
+            case "two-step" -> false;
+            default -> throw new IllegalArgumentException("Unknown datify.invoice.detection-mode: " + detectionMode);
+        };
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
-        this.jsonFactory = new JsonFactory();
     }
 
     public Invoice extractInvoiceData(Document document) {
@@ -72,7 +103,15 @@ public class DefaultInvoiceExtractionService implements InvoiceExtractionService
                 return createEmptyInvoice(document, "No text content available");
             }
 
-            String prompt = EXTRACTION_PROMPT + "\n\n" + extractedText;
+            // Machine-generated layouts are read by the rules; Gemini only sees what they cannot read confidently
+            InvoiceExtractionDto ruled = invoiceFieldExtractor.extract(extractedText);
+            if (ruled.getConfidenceScore() >= rulesMinConfidence) {
+                return fromRules(document, ruled);
+            }
+            logger.debug("Rule-based extraction confidence {} is below {}, asking Gemini",
+                ruled.getConfidenceScore(), rulesMinConfidence);
+
+            String prompt = EXTRACTION_PROMPT + "\n\n" + promptText(extractedText);
             String geminiResponse = geminiService.generateAnswer("Extract invoice data", prompt);
 
             logger.debug("Gemini extraction response: {}", geminiResponse);
@@ -85,11 +124,36 @@ public class DefaultInvoiceExtractionService implements InvoiceExtractionService
         }
     }
 
+    /**
+     * Document text for a Gemini prompt, at most {@code promptMaxChars} long. A longer text keeps its start,
+     * which names the parties and the invoice number, and its last quarter, where the totals are printed; the
+     * item lines in between add tokens to every call but rarely change the answer.
+     */
+    private String promptText(String extractedText) {
+        if (extractedText.length() <= promptMaxChars) {
+            return extractedText;
+        }
+        int headEnd = promptMaxChars - promptMaxChars / 4;
+        int tailStart = extractedText.length() - promptMaxChars / 4;
+        if (Character.isHighSurrogate(extractedText.charAt(headEnd - 1))) {
+            headEnd--;
+        }
+        if (tailStart < extractedText.length() && Character.isLowSurrogate(extractedText.charAt(tailStart))) {
+            tailStart++;
+        }
+        return extractedText.substring(0, headEnd) + "\n[...]\n" + extractedText.substring(tailStart);
+    }
+
+    private Invoice fromRules(Document document, InvoiceExtractionDto ruled) {
+        Invoice invoice = Invoice.fromExtractionDto(document, ruled);
+        logger.info("Extracted invoice data by rules: vendor={}, amount={}, confidence={}",
+            invoice.getVendorName(), invoice.getTotalAmount(), ruled.getConfidenceScore());
+        return invoice;
+    }
+
     private Invoice parseGeminiResponse(Document document, String response) {
         try {
-            // Try to find JSON in the response (Gemini might include extra text)
-            String jsonResponse = extractJsonFromResponse(response);
-            InvoiceExtractionDto dto = objectMapper.readValue(jsonResponse, InvoiceExtractionDto.class);
+            InvoiceExtractionDto dto = readJson(response, InvoiceExtractionDto.class);
 
             Invoice invoice = Invoice.fromExtractionDto(document, dto);
 
@@ -98,49 +162,29 @@ public class DefaultInvoiceExtractionService implements InvoiceExtractionService
 
             return invoice;
 
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error("Failed to parse Gemini JSON response: {}", response, e);
             return createEmptyInvoice(document, "JSON parsing failed: " + e.getMessage());
         }
     }
 
-    private String extractJsonFromResponse(String response) {
-        String cleanedResponse = extractFromMarkdownCodeBlock(response);
-
-        try (JsonParser parser = jsonFactory.createParser(cleanedResponse)) {
-            while (parser.nextToken() != JsonToken.START_OBJECT && parser.currentToken() != null) {
-                // Continue searching for JSON start
-            }
-
-            if (parser.currentToken() == JsonToken.START_OBJECT) {
-                return objectMapper.writeValueAsString(objectMapper.readTree(parser));
-            }
-
-            return cleanedResponse.trim();
-        } catch (Exception e) {
-            logger.debug("Could not extract JSON using parser, falling back to cleaned response: {}", e.getMessage());
-            return cleanedResponse.trim();
+    /**
+     * Binds the first JSON object in the answer, skipping any prose or markdown fence Gemini puts around it.
+     * The parser reads the answer through a reader skipped to the object, without copying the JSON out or
+     * building a tree.
+     */
+    private <T> T readJson(String response, Class<T> type) throws IOException {
+        int start = response.indexOf('{');
+        if (start < 0) {
+            throw new IOException("No JSON object in Gemini response");
         }
-    }
-
-    private String extractFromMarkdownCodeBlock(String response) {
-        String cleaned = response.trim();
-
-        if (cleaned.startsWith("```json")) {
-            cleaned = cleaned.substring(7).trim();
-        } else if (cleaned.startsWith("```")) {
-            cleaned = cleaned.substring(3).trim();
+        StringReader reader = new StringReader(response);
+        reader.skip(start);
+        try (JsonParser parser = objectMapper.createParser(reader)) {
+            return objectMapper.readValue(parser, type);
         }
-
-        if (cleaned.endsWith("```")) {
-            cleaned = cleaned.substring(0, cleaned.length() - 3).trim();
-        }
-
-        return cleaned;
     }
 
-
-
     private Invoice createEmptyInvoice(Document document, String errorNote) {
         Invoice invoice = new Invoice();
         invoice.setDocument(document);
@@ -173,53 +217,174 @@ public class DefaultInvoiceExtractionService implements InvoiceExtractionService
         Document text to analyze:
         """;
 
+    private static final String DETECTION_AND_EXTRACTION_PROMPT = """
+        You are an expert invoice detection and data extraction system. Decide whether the following document text
+        represents an invoice, bill, or receipt in ANY language and, if it does, extract its data.
+
+        Return a JSON object with this structure:
+        {
+            "isInvoice": true/false,
+            "confidence": 0.0-1.0,
+            "invoice": null when isInvoice is false, otherwise an object with exactly these fields (use null if not found):
+            {
+                "invoiceNumber": "string",
+                "vendorName": "string",
+                "vendorAddress": "string",
+                "invoiceDate": "YYYY-MM-DD or null",
+                "dueDate": "YYYY-MM-DD or null",
+                "totalAmount": "number as decimal, no currency symbols",
+                "taxAmount": "number as decimal, no currency symbols or null",
+                "currency": "3-letter currency code like USD, EUR, CZK",
+                "description": "brief description of goods/services",
+                "purchaseOrderNumber": "string or null",
+                "confidenceScore": "number between 0.0 and 1.0"
+            }
+        }
+
+        An invoice typically contains vendor/supplier information, amounts or prices, dates, an invoice/bill number,
+        the goods or services provided, and payment terms or tax information.
+
+        Extraction guidelines:
+        - Extract dates in YYYY-MM-DD format only
+        - Remove all currency symbols from amounts (extract numbers only)
+        - Use standard currency codes (USD, EUR, GBP, CZK, etc.)
+        - Confidence score should reflect how certain you are about the extraction
+        - If information is clearly not present, use null
+        - Be conservative with amounts - only extract if you're confident
+
+        Document text to analyze:
+        """;
+
+    public Optional<Invoice> detectAndExtract(Document document) {
+        String extractedText = document.getExtractedText();
+        if (isNamedAsInvoice(document.getFilename())) {
+            return Optional.of(extractInvoiceData(document));
+        }
+        if (extractedText == null || extractedText.trim().isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Clear cases are decided locally; only ambiguous ones are sent to Gemini for classification
+        InvoiceClassifier.Classification classification = invoiceClassifier.classify(extractedText);
+        logger.debug("Local invoice classification of {}: {}", document.getFilename(), classification);
+        if (classification.verdict() == InvoiceClassifier.Verdict.INVOICE) {
+            return Optional.of(extractInvoiceData(document));
+        }
+        if (classification.verdict() == InvoiceClassifier.Verdict.NOT_INVOICE) {
+            return Optional.empty();
+        }
+        if (!combinedDetection) {
+            return askIsInvoice(extractedText, classification)
+                    ? Optional.of(extractInvoiceData(document))
+                    : Optional.empty();
+        }
+
+        // Labelled invoice number, total and dates read confidently by the rules settle the question as well
+        InvoiceExtractionDto ruled = invoiceFieldExtractor.extract(extractedText);
+        if (ruled.getConfidenceScore() >= rulesMinConfidence) {
+            return Optional.of(fromRules(document, ruled));
+        }
+
+        String response;
+        try {
+            String prompt = DETECTION_AND_EXTRACTION_PROMPT + "\n\n" + promptText(extractedText);
+            response = geminiService.generateAnswer("Detect and extract invoice data", prompt);
+        } catch (Exception e) {
+            logger.warn("Failed to use Gemini for invoice detection, falling back to basic detection", e);
+            return invoiceClassifier.leansInvoice(classification)
+                    ? Optional.of(createEmptyInvoice(document, e.getMessage()))
+                    : Optional.empty();
+        }
+        logger.debug("Invoice detection and extraction response: {}", response);
+
+        try {
+            DetectionAndExtraction result = readJson(response, DetectionAndExtraction.class);
+            logger.info("Invoice detection result: isInvoice={}, confidence={}", result.isInvoice(), result.confidence());
+            if (!result.isInvoice() || result.confidence() <= 0.5) {
+                return Optional.empty();
+            }
+            if (result.invoice() == null) {
+                return Optional.of(createEmptyInvoice(document, "Invoice detected but no data returned"));
+            }
+
+            Invoice invoice = Invoice.fromExtractionDto(document, result.invoice());
+            logger.info("Successfully extracted invoice data: vendor={}, amount={}, confidence={}",
+                invoice.getVendorName(), invoice.getTotalAmount(), result.invoice().getConfidenceScore());
+            return Optional.of(invoice);
+        } catch (IOException e) {
+            logger.error("Failed to parse Gemini JSON response: {}", response, e);
+            return invoiceClassifier.leansInvoice(classification)
+                    ? Optional.of(createEmptyInvoice(document, "JSON parsing failed: " + e.getMessage()))
+                    : Optional.empty();
+        }
+    }
+
     public boolean isInvoiceDocument(String filename, String extractedText) {
         if (filename == null && extractedText == null) {
             return false;
         }
 
         // Quick filename check first
-        if (filename != null) {
-            String lowerFilename = filename.toLowerCase();
-            if (lowerFilename.contains("invoice") || lowerFilename.contains("faktura") ||
-                lowerFilename.contains("bill") || lowerFilename.contains("receipt") ||
-                lowerFilename.contains("účet") || lowerFilename.contains("rechnung")) {
-                return true;
-            }
+        if (isNamedAsInvoice(filename)) {
+            return true;
         }
 
-        // Use Gemini for intelligent content analysis
-        if (extractedText != null && !extractedText.trim().isEmpty()) {
-            try {
-                String textSample = extractedText.length() > 1500 ?
-                    extractedText.substring(0, 1500) + "..." : extractedText;
-                String prompt = INVOICE_DETECTION_PROMPT + "\n\n" + textSample;
-                String response = geminiService.generateAnswer("Invoice detection", prompt);
+        if (extractedText == null || extractedText.trim().isEmpty()) {
+            return false;
+        }
+
+        InvoiceClassifier.Classification classification = invoiceClassifier.classify(extractedText);
+        logger.debug("Local invoice classification of {}: {}", filename, classification);
+        return switch (classification.verdict()) {
+            case INVOICE -> true;
+            case NOT_INVOICE -> false;
+            case AMBIGUOUS -> askIsInvoice(extractedText, classification);
+        };
+    }
+
+    /**
+     * Asks Gemini about a document the local classifier could not decide, falling back to the classifier's
+     * leaning when the call fails.
+     */
+    private boolean askIsInvoice(String extractedText, InvoiceClassifier.Classification classification) {
+        try {
+            String textSample = extractedText.length() > 1500 ?
+                extractedText.substring(0, 1500) + "..." : extractedText;
+            String prompt = INVOICE_DETECTION_PROMPT + "\n\n" + textSample;
+            String response = geminiService.generateAnswer("Invoice detection", prompt);
 
-                logger.debug("Invoice detection response: {}", response);
+            logger.debug("Invoice detection response: {}", response);
 
-                // Parse JSON response
-                String jsonResponse = extractJsonFromResponse(response);
-                JsonNode jsonNode = objectMapper.readTree(jsonResponse);
+            InvoiceDetection detection = readJson(response, InvoiceDetection.class);
+            boolean isInvoice = detection.isInvoice();
+            double confidence = detection.confidence();
 
-                boolean isInvoice = jsonNode.has("isInvoice") && jsonNode.get("isInvoice").asBoolean();
-                double confidence = jsonNode.has("confidence") ? jsonNode.get("confidence").asDouble() : 0.0;
+            logger.info("Invoice detection result: isInvoice={}, confidence={}", isInvoice, confidence);
 
-                logger.info("Invoice detection result: isInvoice={}, confidence={}", isInvoice, confidence);
+            return isInvoice && confidence > 0.5;
 
-                return isInvoice && confidence > 0.5;
+        } catch (Exception e) {
+            logger.warn("Failed to use Gemini for invoice detection, falling back to local classification", e);
+            return invoiceClassifier.leansInvoice(classification);
+        }
+    }
 
-            } catch (Exception e) {
-                logger.warn("Failed to use Gemini for invoice detection, falling back to basic detection", e);
-                // Fallback to basic keyword detection
-                String lowerContent = extractedText.toLowerCase();
-                return lowerContent.contains("invoice") || lowerContent.contains("faktura") ||
-                       lowerContent.contains("bill") || lowerContent.contains("účet") ||
-                       lowerContent.contains("rechnung") || lowerContent.contains("total") ||
-                       lowerContent.contains("celkem") || lowerContent.contains("amount");
-            }
+    private static boolean isNamedAsInvoice(String filename) {
+        if (filename == null) {
+            return false;
         }
+        String lowerFilename = filename.toLowerCase();
+        return lowerFilename.contains("invoice") || lowerFilename.contains("faktura") ||
+               lowerFilename.contains("bill") || lowerFilename.contains("receipt") ||
+               lowerFilename.contains("účet") || lowerFilename.contains("rechnung");
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record InvoiceDetection(@JsonProperty("isInvoice") boolean isInvoice, double confidence) {
+    }
 
-        return false;
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record DetectionAndExtraction(@JsonProperty("isInvoice") boolean isInvoice, double confidence,
+                                          InvoiceExtractionDto invoice) {
     }
 }
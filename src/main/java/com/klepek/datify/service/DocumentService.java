@@ -1,10 +1,14 @@
 package com.klepek.datify.service;
 
+import com.klepek.datify.dto.AnswerResponse;
 import com.klepek.datify.entity.Document;
 import com.klepek.datify.entity.Invoice;
 import com.klepek.datify.exception.GeminiApiException;
 import com.klepek.datify.exception.TextExtractionException;
+import com.klepek.datify.ingestion.IngestionJob;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.util.List;
@@ -12,10 +16,17 @@ import java.util.Optional;
 
 public interface DocumentService {
     Document uploadDocument(MultipartFile file) throws IOException, TextExtractionException;
+    IngestionJob submitDocument(MultipartFile file) throws IOException;
+    Optional<IngestionJob> getIngestionJob(String jobId);
     List<Document> getAllDocuments();
     Optional<Document> getDocumentById(Long id);
+    void deleteDocument(Long id);
     String askQuestion(Long documentId, String question) throws GeminiApiException;
     String askGlobalQuestion(String question) throws GeminiApiException;
+    Mono<AnswerResponse> askQuestionAsync(Long documentId, String question);
+    Mono<String> askGlobalQuestionAsync(String question);
+    Flux<String> askQuestionStream(Long documentId, String question);
+    Flux<String> askGlobalQuestionStream(String question);
     Optional<Invoice> getInvoiceByDocumentId(Long documentId);
     List<Invoice> getAllInvoices();
     List<Invoice> getOverdueInvoices();
@@ -1,10 +1,17 @@
 package com.klepek.datify.service;
 
 import com.klepek.datify.entity.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 
 public interface DocumentVectorService {
-    void storeDocument(Document document);
+    int storeDocument(Document document);
+    int storeDocument(Document document, Reader text) throws IOException;
     List<org.springframework.ai.document.Document> findSimilarContent(String query, int topK, double threshold);
-}
\ No newline at end of file
+    List<org.springframework.ai.document.Document> findSimilarContent(String query, int topK, double threshold,
+                                                                      Filter.Expression filter);
+    int deleteDocument(Document document);
+}
@@ -1,7 +1,27 @@
 package com.klepek.datify.service;
 
 import com.klepek.datify.exception.GeminiApiException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface GeminiService {
+
+    /**
+     * Returned when Gemini produced no candidate; callers should not cache it.
+     */
+    String NO_ANSWER = "Omlouváme se, nepodařilo se vygenerovat odpověď.";
+
     String generateAnswer(String question, String context) throws GeminiApiException;
+
+    /**
+     * Non-blocking variant: no thread is held while the model generates. Failures are signalled as
+     * {@link GeminiApiException}.
+     */
+    Mono<String> generateAnswerAsync(String question, String context);
+
+    /**
+     * Streams the answer as the model generates it, one text fragment per element. Fragments are untrimmed
+     * and concatenate to the full answer.
+     */
+    Flux<String> streamAnswer(String question, String context);
 }
\ No newline at end of file
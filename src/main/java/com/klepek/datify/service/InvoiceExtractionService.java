@@ -3,7 +3,14 @@ package com.klepek.datify.service;
 import com.klepek.datify.entity.Document;
 import com.klepek.datify.entity.Invoice;
 
+import java.util.Optional;
+
 public interface InvoiceExtractionService {
     Invoice extractInvoiceData(Document document);
     boolean isInvoiceDocument(String filename, String extractedText);
+
+    /**
+     * Extracted invoice data when the document is an invoice, empty otherwise.
+     */
+    Optional<Invoice> detectAndExtract(Document document);
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.klepek.datify.vectorstore;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Brute-force scan over every live vector. Always exact, and the reference that approximate indexes
+ * are measured against.
+ */
+public class ExactVectorIndex implements VectorIndex {
+
+    private final VectorPartition partition;
+
+    public ExactVectorIndex(VectorPartition partition) {
+        this.partition = partition;
+    }
+
+    @Override
+    public void add(int ordinal) {
+        // The scan reads the partition directly.
+    }
+
+    @Override
+    public List<ScoredOrdinal> search(float[] query, int topK, double threshold, IntPredicate filter) {
+        return partition.search(query, topK, threshold, filter);
+    }
+
+    @Override
+    public String name() {
+        return "exact";
+    }
+}
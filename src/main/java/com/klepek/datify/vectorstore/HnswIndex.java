@@ -0,0 +1,439 @@
+package com.klepek.datify.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph over the vectors of a {@link VectorPartition}.
+ * <p>
+ * Nodes are partition ordinals and the vectors themselves stay in the mapped segments; the graph only holds
+ * adjacency lists. Inserts are incremental. Deleted ordinals remain in the graph as routing nodes and are
+ * excluded from results, the same way filtered-out ordinals are. {@code m} bounds the out-degree (twice that
+ * on the bottom layer), {@code efConstruction} and {@code efSearch} the candidate list size while building
+ * and querying. The graph is written next to the partition at each {@link #checkpoint()} and on close, and
+ * reloaded on open, so only vectors appended after the last checkpoint are re-inserted, even after a crash.
+ */
+public class HnswIndex implements VectorIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(HnswIndex.class);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final Comparator<ScoredOrdinal> BY_SCORE = Comparator.comparingDouble(ScoredOrdinal::score);
+
+    private final VectorPartition partition;
+    private final Path file;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // links[ordinal][level] holds the neighbour count in slot 0 followed by the neighbour ordinals.
+    private int[][][] links = new int[1024][][];
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int nodeCount;
+    private int savedNodeCount = -1;
+
+    public HnswIndex(VectorPartition partition, Path file, int m, int efConstruction, int efSearch) {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW m must be at least 2");
+        }
+        this.partition = partition;
+        this.file = file;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    /**
+     * Loads the graph saved at {@code file} when it matches the parameters, then inserts every live ordinal
+     * the saved graph does not cover yet.
+     */
+    public static HnswIndex open(VectorPartition partition, Path file, int m, int efConstruction, int efSearch)
+            throws IOException {
+        HnswIndex index = new HnswIndex(partition, file, m, efConstruction, efSearch);
+        int covered = Files.exists(file) ? index.load() : 0;
+
+        long start = System.nanoTime();
+        int size = partition.size();
+        for (int ordinal = covered; ordinal < size; ordinal++) {
+            if (partition.isLive(ordinal)) {
+                index.add(ordinal);
+            }
+        }
+        logger.info("HNSW index ready with {} nodes ({} loaded, {} inserted in {} ms)",
+                index.nodeCount, covered, size - covered, (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    @Override
+    public void add(int ordinal) {
+        float[] vector = partition.vector(ordinal);
+        float[] scratch = new float[vector.length];
+
+        lock.writeLock().lock();
+        try {
+            if (ordinal >= links.length) {
+                links = Arrays.copyOf(links, Math.max(links.length * 2, ordinal + 1));
+            }
+            int level = randomLevel();
+            int[][] nodeLinks = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                nodeLinks[l] = new int[(l == 0 ? maxM0 : m) + 1];
+            }
+            links[ordinal] = nodeLinks;
+            nodeCount++;
+
+            if (entryPoint < 0) {
+                entryPoint = ordinal;
+                maxLevel = level;
+                return;
+            }
+
+            ScoredOrdinal current = new ScoredOrdinal(entryPoint, partition.score(vector, entryPoint, scratch));
+            for (int l = maxLevel; l > level; l--) {
+                current = greedy(vector, current, l, scratch);
+            }
+
+            List<ScoredOrdinal> entries = List.of(current);
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<ScoredOrdinal> candidates = sortedDescending(
+                        searchLayer(vector, entries, efConstruction, l, candidate -> true, scratch));
+                List<ScoredOrdinal> neighbours = selectNeighbours(candidates, m, scratch);
+                int[] own = nodeLinks[l];
+                for (ScoredOrdinal neighbour : neighbours) {
+                    own[++own[0]] = neighbour.ordinal();
+                    connect(neighbour.ordinal(), ordinal, neighbour.score(), l, scratch);
+                }
+                entries = candidates;
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = ordinal;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ScoredOrdinal> search(float[] query, int topK, double threshold, IntPredicate filter) {
+        float[] scratch = new float[query.length];
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || topK <= 0) {
+                return List.of();
+            }
+            ScoredOrdinal current = new ScoredOrdinal(entryPoint, partition.score(query, entryPoint, scratch));
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedy(query, current, l, scratch);
+            }
+            IntPredicate accept = ordinal -> partition.isLive(ordinal) && filter.test(ordinal);
+            List<ScoredOrdinal> results = sortedDescending(
+                    searchLayer(query, List.of(current), Math.max(efSearch, topK), 0, accept, scratch));
+
+            List<ScoredOrdinal> top = new ArrayList<>(Math.min(topK, results.size()));
+            for (ScoredOrdinal result : results) {
+                if (top.size() == topK || result.score() < threshold) {
+                    break;
+                }
+                top.add(result);
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String name() {
+        return "hnsw";
+    }
+
+    @Override
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) links.length * Integer.BYTES;
+            for (int[][] nodeLinks : links) {
+                if (nodeLinks != null) {
+                    for (int[] level : nodeLinks) {
+                        bytes += (long) level.length * Integer.BYTES;
+                    }
+                }
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the graph atomically and forces it to disk, unless no node was added since the last checkpoint.
+     * Ordinals appended afterwards are picked up by {@link #open} on the next start. Inserts wait while the
+     * graph is written; searches do not.
+     */
+    @Override
+    public synchronized void checkpoint() throws IOException {
+        if (file == null) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int saved;
+        lock.readLock().lock();
+        try {
+            if (nodeCount == savedNodeCount) {
+                return;
+            }
+            saved = nodeCount;
+            write(temp);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedNodeCount = saved;
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpoint();
+    }
+
+    private void write(Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            int covered = coveredOrdinals();
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(m);
+            output.writeInt(covered);
+            output.writeInt(entryPoint);
+            output.writeInt(maxLevel);
+            for (int ordinal = 0; ordinal < covered; ordinal++) {
+                int[][] nodeLinks = links[ordinal];
+                output.writeInt(nodeLinks == null ? 0 : nodeLinks.length);
+                if (nodeLinks == null) {
+                    continue;
+                }
+                for (int[] level : nodeLinks) {
+                    output.writeInt(level[0]);
+                    for (int i = 1; i <= level[0]; i++) {
+                        output.writeInt(level[i]);
+                    }
+                }
+            }
+            output.flush();
+            channel.force(true);
+        }
+    }
+
+    private int load() throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = input.readInt();
+            int savedM = input.readInt();
+            int covered = input.readInt();
+            if (version != FORMAT_VERSION || savedM != m || covered > partition.size()) {
+                logger.info("Discarding saved HNSW graph {} (format {}, m {}, {} nodes)", file, version, savedM, covered);
+                return 0;
+            }
+            entryPoint = input.readInt();
+            maxLevel = input.readInt();
+            links = new int[Math.max(covered, 1024)][][];
+            for (int ordinal = 0; ordinal < covered; ordinal++) {
+                int levels = input.readInt();
+                if (levels == 0) {
+                    continue;
+                }
+                int[][] nodeLinks = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int[] level = new int[(l == 0 ? maxM0 : m) + 1];
+                    level[0] = input.readInt();
+                    for (int i = 1; i <= level[0]; i++) {
+                        level[i] = input.readInt();
+                    }
+                    nodeLinks[l] = level;
+                }
+                links[ordinal] = nodeLinks;
+                nodeCount++;
+            }
+            savedNodeCount = nodeCount;
+            return covered;
+        } catch (IOException e) {
+            logger.warn("Failed to load HNSW graph {}, rebuilding", file, e);
+            links = new int[1024][][];
+            entryPoint = -1;
+            maxLevel = -1;
+            nodeCount = 0;
+            return 0;
+        }
+    }
+
+    private int coveredOrdinals() {
+        int covered = links.length;
+        while (covered > 0 && links[covered - 1] == null) {
+            covered--;
+        }
+        return covered;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private ScoredOrdinal greedy(float[] query, ScoredOrdinal start, int level, float[] scratch) {
+        ScoredOrdinal best = start;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[best.ordinal()][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float score = partition.score(query, neighbours[i], scratch);
+                if (score > best.score()) {
+                    best = new ScoredOrdinal(neighbours[i], score);
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Best-first search of one layer. Every reachable node is traversed, but only accepted ones are
+     * collected, so a selective filter widens the walk instead of starving the result list.
+     */
+    private PriorityQueue<ScoredOrdinal> searchLayer(float[] query, List<ScoredOrdinal> entries, int ef, int level,
+                                                     IntPredicate accept, float[] scratch) {
+        BitSet visited = new BitSet(links.length);
+        PriorityQueue<ScoredOrdinal> candidates = new PriorityQueue<>(BY_SCORE.reversed());
+        PriorityQueue<ScoredOrdinal> results = new PriorityQueue<>(BY_SCORE);
+        for (ScoredOrdinal entry : entries) {
+            visited.set(entry.ordinal());
+            candidates.add(entry);
+            if (accept.test(entry.ordinal())) {
+                offer(results, entry, ef);
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            ScoredOrdinal candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                break;
+            }
+            int[] neighbours = links[candidate.ordinal()][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = partition.score(query, neighbour, scratch);
+                if (results.size() < ef || score > results.peek().score()) {
+                    ScoredOrdinal scored = new ScoredOrdinal(neighbour, score);
+                    candidates.add(scored);
+                    if (accept.test(neighbour)) {
+                        offer(results, scored, ef);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic from the HNSW paper: a candidate is kept only if it is closer to the
+     * base node than to any neighbour already kept, which spreads edges across clusters.
+     */
+    private List<ScoredOrdinal> selectNeighbours(List<ScoredOrdinal> candidates, int limit, float[] scratch) {
+        List<ScoredOrdinal> selected = new ArrayList<>(limit);
+        float[] candidateVector = new float[scratch.length];
+        for (ScoredOrdinal candidate : candidates) {
+            if (selected.size() == limit) {
+                break;
+            }
+            partition.readVector(candidate.ordinal(), candidateVector);
+            boolean diverse = true;
+            for (ScoredOrdinal kept : selected) {
+                if (partition.score(candidateVector, kept.ordinal(), scratch) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            }
+        }
+        return selected;
+    }
+
+    private void connect(int node, int neighbour, float score, int level, float[] scratch) {
+        int[] nodeLinks = links[node][level];
+        int capacity = nodeLinks.length - 1;
+        if (nodeLinks[0] < capacity) {
+            nodeLinks[++nodeLinks[0]] = neighbour;
+            return;
+        }
+
+        float[] nodeVector = partition.vector(node);
+        List<ScoredOrdinal> candidates = new ArrayList<>(capacity + 1);
+        candidates.add(new ScoredOrdinal(neighbour, score));
+        for (int i = 1; i <= nodeLinks[0]; i++) {
+            candidates.add(new ScoredOrdinal(nodeLinks[i], partition.score(nodeVector, nodeLinks[i], scratch)));
+        }
+        candidates.sort(BY_SCORE.reversed());
+        List<ScoredOrdinal> kept = selectNeighbours(candidates, capacity, scratch);
+        nodeLinks[0] = kept.size();
+        for (int i = 0; i < kept.size(); i++) {
+            nodeLinks[i + 1] = kept.get(i).ordinal();
+        }
+    }
+
+    private static void offer(PriorityQueue<ScoredOrdinal> results, ScoredOrdinal scored, int ef) {
+        results.add(scored);
+        if (results.size() > ef) {
+            results.poll();
+        }
+    }
+
+    private static List<ScoredOrdinal> sortedDescending(PriorityQueue<ScoredOrdinal> queue) {
+        List<ScoredOrdinal> sorted = new ArrayList<>(queue);
+        sorted.sort(BY_SCORE.reversed());
+        return sorted;
+    }
+}
@@ -0,0 +1,145 @@
+package com.klepek.datify.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link VectorStore} backed by memory-mapped {@link VectorShards}. The index survives restarts, so startup
+ * only re-reads record headers instead of re-embedding the corpus. Each shard answers queries through its
+ * configured {@link VectorIndex}: a scan (exact, or over quantized codes with re-ranking) or an approximate
+ * graph; with several shards they are searched in parallel and their hits merged.
+ * <p>
+ * Adds and deletes are forced to disk before they return, so they also survive a crash of the machine.
+ */
+public class MappedVectorStore implements VectorStore, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedVectorStore.class);
+
+    private final EmbeddingModel embeddingModel;
+    private final BatchingStrategy batchingStrategy;
+    private final VectorShards shards;
+
+    public MappedVectorStore(EmbeddingModel embeddingModel, BatchingStrategy batchingStrategy, VectorShards shards) {
+        this.embeddingModel = embeddingModel;
+        this.batchingStrategy = batchingStrategy;
+        this.shards = shards;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        for (List<Document> batch : batchingStrategy.batch(documents)) {
+            List<float[]> embeddings = embeddingModel.embed(batch.stream().map(Document::getText).toList());
+            List<StoredRecord> records = new ArrayList<>(batch.size());
+            List<float[]> vectors = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Document document = batch.get(i);
+                records.add(new StoredRecord(document.getId(), document.getText(), document.getMetadata()));
+                vectors.add(VectorMath.normalize(embeddings.get(i)));
+            }
+            shards.add(records, vectors);
+        }
+        shards.flush();
+        logger.debug("Added {} documents to mapped vector store", documents.size());
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        for (String id : idList) {
+            shards.delete(id);
+        }
+        shards.flush();
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        int deleted = shards.delete(filterExpression);
+        shards.flush();
+        logger.debug("Deleted {} documents matching {}", deleted, filterExpression);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (shards.dimensions() == 0) {
+            return List.of();
+        }
+
+        float[] query = VectorMath.normalize(embeddingModel.embed(request.getQuery()));
+        List<ScoredRecord> hits = shards.search(query, request.getTopK(), request.getSimilarityThreshold(),
+                request.getFilterExpression());
+
+        List<Document> results = new ArrayList<>(hits.size());
+        for (ScoredRecord hit : hits) {
+            StoredRecord record = hit.record();
+            Map<String, Object> metadata = new HashMap<>(record.metadata());
+            metadata.put("distance", 1.0 - hit.score());
+            results.add(Document.builder()
+                    .id(record.id())
+                    .text(record.text())
+                    .metadata(metadata)
+                    .score((double) hit.score())
+                    .build());
+        }
+        return results;
+    }
+
+    /**
+     * Stored chunks with the given ids, in the order given; ids that are not stored are skipped. Lets callers
+     * that only keep chunk ids, such as the lexical index, fetch chunk text from the record log.
+     */
+    public List<Document> findByIds(Collection<String> ids) {
+        List<StoredRecord> records = shards.find(ids);
+        List<Document> documents = new ArrayList<>(records.size());
+        for (StoredRecord record : records) {
+            documents.add(new Document(record.id(), record.text(), new HashMap<>(record.metadata())));
+        }
+        return documents;
+    }
+
+    /**
+     * Streams every live record, shard by shard. Used to rebuild derived indexes on startup.
+     */
+    public void forEachRecord(Consumer<StoredRecord> consumer) {
+        shards.forEachRecord(consumer);
+    }
+
+    /**
+     * Rewrites shards whose share of deleted chunks has reached the threshold; searches continue meanwhile.
+     */
+    public int compact(double threshold) {
+        return shards.compact(threshold);
+    }
+
+    /**
+     * Saves the search indexes of every shard, so a restart after a crash does not rebuild them from scratch.
+     */
+    public void checkpoint() {
+        shards.checkpoint();
+    }
+
+    /**
+     * Recall of each shard's search index and, when quantization is enabled, of the scan used for selective
+     * filters.
+     */
+    public List<RecallReport> measureRecall(int queries, int topK) {
+        return shards.measureRecall(queries, topK);
+    }
+
+    @Override
+    public void close() throws IOException {
+        shards.close();
+    }
+}
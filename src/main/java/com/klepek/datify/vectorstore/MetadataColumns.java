@@ -0,0 +1,132 @@
+package com.klepek.datify.vectorstore;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-ordinal copies of the chunk metadata that searches filter on, kept in flat arrays so a filter can be
+ * evaluated inside the scan without touching the record log. Content types are dictionary-encoded; upload
+ * times are stored as epoch milliseconds (UTC).
+ */
+public class MetadataColumns {
+
+    public static final String DOCUMENT_ID = "documentId";
+    public static final String CONTENT_TYPE = "contentType";
+    public static final String UPLOADED_AT = "uploadedAt";
+
+    static final long MISSING = Long.MIN_VALUE;
+
+    private final Map<String, Integer> contentTypeCodes = new HashMap<>();
+
+    private long[] documentIds = new long[1024];
+    private int[] contentTypeOrdinals = new int[1024];
+    private long[] uploadedAt = new long[1024];
+
+    public void set(int ordinal, Map<String, Object> metadata) {
+        if (ordinal >= documentIds.length) {
+            int capacity = Math.max(documentIds.length * 2, ordinal + 1);
+            documentIds = Arrays.copyOf(documentIds, capacity);
+            contentTypeOrdinals = Arrays.copyOf(contentTypeOrdinals, capacity);
+            uploadedAt = Arrays.copyOf(uploadedAt, capacity);
+        }
+        documentIds[ordinal] = toLong(metadata.get(DOCUMENT_ID));
+        contentTypeOrdinals[ordinal] = encodeContentType(metadata.get(CONTENT_TYPE));
+        uploadedAt[ordinal] = toEpochMillis(metadata.get(UPLOADED_AT));
+    }
+
+    /**
+     * Copies an ordinal's values to another ordinal, for indexes that renumber their entries when compacting.
+     */
+    public void move(int from, int to) {
+        documentIds[to] = documentIds[from];
+        contentTypeOrdinals[to] = contentTypeOrdinals[from];
+        uploadedAt[to] = uploadedAt[from];
+    }
+
+    public long documentId(int ordinal) {
+        return documentIds[ordinal];
+    }
+
+    public long uploadedAt(int ordinal) {
+        return uploadedAt[ordinal];
+    }
+
+    /**
+     * Dictionary code of the ordinal's content type, comparable with {@link #contentTypeCode}.
+     */
+    public int contentType(int ordinal) {
+        return contentTypeOrdinals[ordinal];
+    }
+
+    /**
+     * Code for a content type, or -2 if no stored chunk has it (never equal to a stored code).
+     */
+    public synchronized int contentTypeCode(String contentType) {
+        return contentTypeCodes.getOrDefault(contentType, -2);
+    }
+
+    private synchronized int encodeContentType(Object value) {
+        if (value == null) {
+            return -1;
+        }
+        return contentTypeCodes.computeIfAbsent(value.toString(), type -> contentTypeCodes.size());
+    }
+
+    static long toLong(Object value) {
+        if (value == null) {
+            return MISSING;
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return MISSING;
+        }
+    }
+
+    /**
+     * Accepts the {@link LocalDateTime#toString()} form the chunks are stored with, ISO offset date-times,
+     * temporal objects and epoch milliseconds.
+     */
+    static long toEpochMillis(Object value) {
+        if (value == null) {
+            return MISSING;
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        if (value instanceof Instant instant) {
+            return instant.toEpochMilli();
+        }
+        if (value instanceof TemporalAccessor temporal) {
+            try {
+                return OffsetDateTime.from(temporal).toInstant().toEpochMilli();
+            } catch (DateTimeException e) {
+                return MISSING;
+            }
+        }
+        String text = value.toString();
+        try {
+            return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            try {
+                return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ignored) {
+                return MISSING;
+            }
+        }
+    }
+}
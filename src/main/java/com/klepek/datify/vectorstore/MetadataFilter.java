@@ -0,0 +1,125 @@
+package com.klepek.datify.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * Compiles a Spring AI {@link Filter.Expression} into a predicate over ordinals that reads
+ * {@link MetadataColumns} only. Supported keys are {@code documentId} and {@code uploadedAt} (all
+ * comparisons) and {@code contentType} (equality); a chunk without the key never matches a comparison.
+ */
+public final class MetadataFilter {
+
+    private MetadataFilter() {
+    }
+
+    public static IntPredicate compile(Filter.Expression expression, MetadataColumns columns) {
+        return switch (expression.type()) {
+            case AND -> operand(expression.left(), columns).and(operand(expression.right(), columns));
+            case OR -> operand(expression.left(), columns).or(operand(expression.right(), columns));
+            case NOT -> operand(expression.left(), columns).negate();
+            case EQ, NE, GT, GTE, LT, LTE -> comparison(expression, columns);
+            case IN -> membership(expression, columns);
+            case NIN -> membership(expression, columns).negate();
+            default -> throw new UnsupportedOperationException("Unsupported filter operator " + expression.type());
+        };
+    }
+
+    private static IntPredicate operand(Filter.Operand operand, MetadataColumns columns) {
+        if (operand instanceof Filter.Expression expression) {
+            return compile(expression, columns);
+        }
+        if (operand instanceof Filter.Group group) {
+            return compile(group.content(), columns);
+        }
+        throw new IllegalArgumentException("Expected a filter expression but got " + operand);
+    }
+
+    private static IntPredicate comparison(Filter.Expression expression, MetadataColumns columns) {
+        String key = key(expression);
+        Object value = value(expression);
+        return switch (key) {
+            case MetadataColumns.DOCUMENT_ID -> {
+                LongPredicate test = compare(expression.type(), parse(key, MetadataColumns.toLong(value), value));
+                yield ordinal -> matches(columns.documentId(ordinal), test);
+            }
+            case MetadataColumns.UPLOADED_AT -> {
+                LongPredicate test = compare(expression.type(), parse(key, MetadataColumns.toEpochMillis(value), value));
+                yield ordinal -> matches(columns.uploadedAt(ordinal), test);
+            }
+            case MetadataColumns.CONTENT_TYPE -> {
+                int code = columns.contentTypeCode(String.valueOf(value));
+                yield switch (expression.type()) {
+                    case EQ -> ordinal -> columns.contentType(ordinal) == code;
+                    case NE -> ordinal -> columns.contentType(ordinal) != code;
+                    default -> throw new UnsupportedOperationException(
+                            "contentType only supports equality, not " + expression.type());
+                };
+            }
+            default -> throw unsupportedKey(key);
+        };
+    }
+
+    private static IntPredicate membership(Filter.Expression expression, MetadataColumns columns) {
+        String key = key(expression);
+        Object value = value(expression);
+        Collection<?> values = value instanceof Collection<?> collection ? collection : List.of(value);
+
+        IntPredicate any = ordinal -> false;
+        for (Object element : values) {
+            any = any.or(comparison(new Filter.Expression(Filter.ExpressionType.EQ, new Filter.Key(key),
+                    new Filter.Value(element)), columns));
+        }
+        return any;
+    }
+
+    private static LongPredicate compare(Filter.ExpressionType type, long operand) {
+        return switch (type) {
+            case EQ -> value -> value == operand;
+            case NE -> value -> value != operand;
+            case GT -> value -> value > operand;
+            case GTE -> value -> value >= operand;
+            case LT -> value -> value < operand;
+            case LTE -> value -> value <= operand;
+            default -> throw new IllegalArgumentException("Not a comparison: " + type);
+        };
+    }
+
+    private static boolean matches(long value, LongPredicate test) {
+        return value != MetadataColumns.MISSING && test.test(value);
+    }
+
+    private static long parse(String key, long parsed, Object raw) {
+        if (parsed == MetadataColumns.MISSING) {
+            throw new IllegalArgumentException("Invalid value for " + key + " filter: " + raw);
+        }
+        return parsed;
+    }
+
+    private static String key(Filter.Expression expression) {
+        if (!(expression.left() instanceof Filter.Key key)) {
+            throw new IllegalArgumentException("Expected a metadata key on the left of " + expression.type());
+        }
+        String name = key.key();
+        if (name.length() > 1 && (name.startsWith("\"") || name.startsWith("'")) && name.endsWith(name.substring(0, 1))) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    private static Object value(Filter.Expression expression) {
+        if (!(expression.right() instanceof Filter.Value value)) {
+            throw new IllegalArgumentException("Expected a value on the right of " + expression.type());
+        }
+        return value.value();
+    }
+
+    private static UnsupportedOperationException unsupportedKey(String key) {
+        return new UnsupportedOperationException("Filtering on '" + key + "' is not supported; filterable keys are "
+                + MetadataColumns.DOCUMENT_ID + ", " + MetadataColumns.CONTENT_TYPE + " and " + MetadataColumns.UPLOADED_AT);
+    }
+}
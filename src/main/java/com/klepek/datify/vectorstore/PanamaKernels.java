@@ -0,0 +1,84 @@
+package com.klepek.datify.vectorstore;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels on the incubating JDK Vector API, sized to the widest vector shape the CPU supports. Only
+ * loaded reflectively by {@link VectorMath} after it has checked that {@code jdk.incubator.vector} is in the
+ * boot layer, so the application still starts without {@code --add-modules}.
+ */
+final class PanamaKernels implements SimilarityKernels {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES =
+            ByteVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(Math.max(64, FLOATS.vectorBitSize() / 4)));
+
+    /**
+     * The int8 kernel widens one byte lane per float lane, which needs at least 64-bit byte vectors.
+     */
+    static boolean supported() {
+        return FLOATS.vectorBitSize() >= 256;
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + FLOATS.vectorBitSize();
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        int step = FLOATS.length();
+        int bound = FLOATS.loopBound(a.length);
+        FloatVector first = FloatVector.zero(FLOATS);
+        FloatVector second = FloatVector.zero(FLOATS);
+        int i = 0;
+        // Two accumulators hide the latency of dependent fused multiply-adds.
+        for (; i + step < bound; i += 2 * step) {
+            first = FloatVector.fromArray(FLOATS, a, i).fma(FloatVector.fromArray(FLOATS, b, i), first);
+            second = FloatVector.fromArray(FLOATS, a, i + step).fma(FloatVector.fromArray(FLOATS, b, i + step), second);
+        }
+        for (; i < bound; i += step) {
+            first = FloatVector.fromArray(FLOATS, a, i).fma(FloatVector.fromArray(FLOATS, b, i), first);
+        }
+        float sum = first.add(second).reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dotInt8(float[] query, byte[] codes, int offset) {
+        int step = FLOATS.length();
+        int bound = FLOATS.loopBound(query.length);
+        FloatVector sum = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (; i < bound; i += step) {
+            FloatVector code = (FloatVector) ByteVector.fromArray(BYTES, codes, offset + i)
+                    .convertShape(VectorOperators.B2F, FLOATS, 0);
+            sum = FloatVector.fromArray(FLOATS, query, i).fma(code, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < query.length; i++) {
+            result += query[i] * codes[offset + i];
+        }
+        return result;
+    }
+
+    /**
+     * Scalar on purpose: {@link Long#bitCount} compiles to POPCNT, while a lane-wise BIT_COUNT is emulated
+     * unless the CPU has AVX-512 VPOPCNTDQ and measured several times slower.
+     */
+    @Override
+    public int hamming(long[] bits, long[] codes, int offset) {
+        int distance = 0;
+        for (int i = 0; i < bits.length; i++) {
+            distance += Long.bitCount(bits[i] ^ codes[offset + i]);
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,208 @@
+package com.klepek.datify.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Brute-force scan over compact codes of the stored vectors, followed by a full-precision re-rank of the best
+ * {@code topK * oversample} candidates read from the partition.
+ * <p>
+ * {@link Encoding#INT8} keeps one signed byte per dimension plus a per-vector scale (4x smaller than floats)
+ * and scores asymmetrically against the float query. {@link Encoding#BINARY} keeps only the sign of each
+ * dimension (32x smaller) and ranks by Hamming distance to the query's signs, so it needs a larger
+ * oversample. A non-positive oversample selects the encoding's default. Codes live on the heap and are
+ * rebuilt from the mapped vectors on startup; the float vectors are only paged in for re-ranking.
+ */
+public class QuantizedVectorIndex implements VectorIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuantizedVectorIndex.class);
+
+    private static final int PAGE_VECTORS = 4096;
+
+    public enum Encoding {
+        INT8(4), BINARY(16);
+
+        private final int defaultOversample;
+
+        Encoding(int defaultOversample) {
+            this.defaultOversample = defaultOversample;
+        }
+    }
+
+    private final VectorPartition partition;
+    private final Encoding encoding;
+    private final int oversample;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<byte[]> int8Pages = new ArrayList<>();
+    private final List<long[]> binaryPages = new ArrayList<>();
+    private float[] scales = new float[PAGE_VECTORS];
+    private int dimensions;
+    private int words;
+    private int capacity;
+
+    public QuantizedVectorIndex(VectorPartition partition, Encoding encoding, int oversample) {
+        this.partition = partition;
+        this.encoding = encoding;
+        this.oversample = oversample > 0 ? oversample : encoding.defaultOversample;
+    }
+
+    /**
+     * Encodes every live vector already in the partition.
+     */
+    public static QuantizedVectorIndex open(VectorPartition partition, Encoding encoding, int oversample) {
+        QuantizedVectorIndex index = new QuantizedVectorIndex(partition, encoding, oversample);
+        long start = System.nanoTime();
+        int size = partition.size();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (partition.isLive(ordinal)) {
+                index.add(ordinal);
+            }
+        }
+        logger.info("Encoded {} vectors as {} in {} ms", partition.liveCount(), encoding,
+                (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    @Override
+    public void add(int ordinal) {
+        float[] vector = partition.vector(ordinal);
+        lock.writeLock().lock();
+        try {
+            if (dimensions == 0) {
+                dimensions = vector.length;
+                words = (dimensions + Long.SIZE - 1) / Long.SIZE;
+            }
+            while (ordinal >= capacity) {
+                if (encoding == Encoding.INT8) {
+                    int8Pages.add(new byte[PAGE_VECTORS * dimensions]);
+                } else {
+                    binaryPages.add(new long[PAGE_VECTORS * words]);
+                }
+                capacity += PAGE_VECTORS;
+            }
+
+            int offset = ordinal % PAGE_VECTORS;
+            if (encoding == Encoding.INT8) {
+                if (ordinal >= scales.length) {
+                    scales = Arrays.copyOf(scales, Math.max(scales.length * 2, capacity));
+                }
+                scales[ordinal] = encodeInt8(vector, int8Pages.get(ordinal / PAGE_VECTORS), offset * dimensions);
+            } else {
+                encodeBinary(vector, binaryPages.get(ordinal / PAGE_VECTORS), offset * words);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ScoredOrdinal> search(float[] query, int topK, double threshold, IntPredicate filter) {
+        BitSet accepted = partition.select(filter);
+        int candidateCount = topK * oversample;
+        PriorityQueue<ScoredOrdinal> candidates = new PriorityQueue<>(Comparator.comparingDouble(ScoredOrdinal::score));
+
+        lock.readLock().lock();
+        try {
+            // A partition reopened with every vector deleted has dimensions but nothing encoded
+            if (capacity == 0) {
+                return List.of();
+            }
+            long[] queryBits = encoding == Encoding.BINARY ? signBits(query) : null;
+            for (int ordinal = accepted.nextSetBit(0); ordinal >= 0 && ordinal < capacity;
+                 ordinal = accepted.nextSetBit(ordinal + 1)) {
+                float score = encoding == Encoding.INT8 ? int8Score(query, ordinal) : binaryScore(queryBits, ordinal);
+                if (candidates.size() < candidateCount) {
+                    candidates.add(new ScoredOrdinal(ordinal, score));
+                } else if (score > candidates.peek().score()) {
+                    candidates.poll();
+                    candidates.add(new ScoredOrdinal(ordinal, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        float[] scratch = new float[query.length];
+        List<ScoredOrdinal> reranked = new ArrayList<>(candidates.size());
+        for (ScoredOrdinal candidate : candidates) {
+            float score = partition.score(query, candidate.ordinal(), scratch);
+            if (score >= threshold) {
+                reranked.add(new ScoredOrdinal(candidate.ordinal(), score));
+            }
+        }
+        reranked.sort(Comparator.comparingDouble(ScoredOrdinal::score).reversed());
+        return reranked.size() > topK ? List.copyOf(reranked.subList(0, topK)) : reranked;
+    }
+
+    @Override
+    public String name() {
+        return encoding.name().toLowerCase();
+    }
+
+    @Override
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            return encoding == Encoding.INT8
+                    ? (long) int8Pages.size() * PAGE_VECTORS * dimensions + (long) scales.length * Float.BYTES
+                    : (long) binaryPages.size() * PAGE_VECTORS * words * Long.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private float int8Score(float[] query, int ordinal) {
+        byte[] page = int8Pages.get(ordinal / PAGE_VECTORS);
+        return VectorMath.dotInt8(query, page, (ordinal % PAGE_VECTORS) * dimensions) * scales[ordinal];
+    }
+
+    /**
+     * Maps Hamming distance onto [-1, 1] so candidates are ranked on the same scale as cosine similarity.
+     */
+    private float binaryScore(long[] queryBits, int ordinal) {
+        long[] page = binaryPages.get(ordinal / PAGE_VECTORS);
+        int distance = VectorMath.hamming(queryBits, page, (ordinal % PAGE_VECTORS) * words);
+        return 1f - 2f * distance / dimensions;
+    }
+
+    private static float encodeInt8(float[] vector, byte[] target, int offset) {
+        float max = 0f;
+        for (float value : vector) {
+            max = Math.max(max, Math.abs(value));
+        }
+        if (max == 0f) {
+            return 0f;
+        }
+        float scale = max / 127f;
+        for (int i = 0; i < vector.length; i++) {
+            target[offset + i] = (byte) Math.round(vector[i] / scale);
+        }
+        return scale;
+    }
+
+    private void encodeBinary(float[] vector, long[] target, int offset) {
+        long[] bits = signBits(vector);
+        System.arraycopy(bits, 0, target, offset, words);
+    }
+
+    private long[] signBits(float[] vector) {
+        long[] bits = new long[words];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0f) {
+                bits[i / Long.SIZE] |= 1L << (i % Long.SIZE);
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,62 @@
+package com.klepek.datify.vectorstore;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Measures an index against the exact scan. Queries are the normalized sum of two randomly sampled stored
+ * vectors, so they sit near the data without trivially matching a stored vector.
+ */
+public final class RecallBenchmark {
+
+    private RecallBenchmark() {
+    }
+
+    public static RecallReport run(VectorPartition partition, VectorIndex index, int queries, int topK) {
+        int size = partition.size();
+        int live = partition.liveCount();
+        long vectorBytes = (long) live * partition.dimensions() * Float.BYTES;
+        if (live == 0 || queries <= 0) {
+            return new RecallReport(index.name(), live, 0, topK, 1.0, 0, 0, vectorBytes, index.memoryBytes());
+        }
+
+        Random random = new Random(17);
+        long indexNanos = 0;
+        long exactNanos = 0;
+        long found = 0;
+        long expected = 0;
+        int sampled = 0;
+        for (int attempt = 0; sampled < queries && attempt < queries * 10; attempt++) {
+            int first = random.nextInt(size);
+            int second = random.nextInt(size);
+            if (!partition.isLive(first) || !partition.isLive(second)) {
+                continue;
+            }
+            float[] query = partition.vector(first);
+            float[] other = partition.vector(second);
+            for (int i = 0; i < query.length; i++) {
+                query[i] += other[i];
+            }
+            query = VectorMath.normalize(query);
+
+            long start = System.nanoTime();
+            List<ScoredOrdinal> exact = partition.search(query, topK, -1.0, candidate -> true);
+            exactNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<ScoredOrdinal> approximate = index.search(query, topK, -1.0, candidate -> true);
+            indexNanos += System.nanoTime() - start;
+
+            Set<Integer> truth = exact.stream().map(ScoredOrdinal::ordinal).collect(Collectors.toSet());
+            found += approximate.stream().filter(hit -> truth.contains(hit.ordinal())).count();
+            expected += truth.size();
+            sampled++;
+        }
+        double recall = expected == 0 ? 1.0 : (double) found / expected;
+        return new RecallReport(index.name(), live, sampled, topK, recall,
+                sampled == 0 ? 0 : indexNanos / 1e6 / sampled, sampled == 0 ? 0 : exactNanos / 1e6 / sampled,
+                vectorBytes, index.memoryBytes());
+    }
+}
@@ -0,0 +1,9 @@
+package com.klepek.datify.vectorstore;
+
+/**
+ * Recall@K of an index against the exact scan, with mean query latency of both and the heap the index
+ * needs next to the {@code vectorBytes} of mapped float vectors.
+ */
+public record RecallReport(String index, int vectors, int queries, int topK, double recall,
+                           double indexMillis, double exactMillis, long vectorBytes, long indexBytes) {
+}
@@ -0,0 +1,36 @@
+package com.klepek.datify.vectorstore;
+
+final class ScalarKernels implements SimilarityKernels {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dotInt8(float[] query, byte[] codes, int offset) {
+        float sum = 0f;
+        for (int i = 0; i < query.length; i++) {
+            sum += query[i] * codes[offset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int hamming(long[] bits, long[] codes, int offset) {
+        int distance = 0;
+        for (int i = 0; i < bits.length; i++) {
+            distance += Long.bitCount(bits[i] ^ codes[offset + i]);
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,7 @@
+package com.klepek.datify.vectorstore;
+
+/**
+ * A search hit: the position of a vector in its partition and its similarity to the query.
+ */
+public record ScoredOrdinal(int ordinal, float score) {
+}
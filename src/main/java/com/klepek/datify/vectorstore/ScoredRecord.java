@@ -0,0 +1,7 @@
+package com.klepek.datify.vectorstore;
+
+/**
+ * A search hit with its stored record and similarity to the query.
+ */
+public record ScoredRecord(StoredRecord record, float score) {
+}
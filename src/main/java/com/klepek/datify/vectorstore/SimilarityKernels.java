@@ -0,0 +1,23 @@
+package com.klepek.datify.vectorstore;
+
+/**
+ * Inner loops of vector scoring. {@link VectorMath} picks the SIMD implementation when the JDK Vector API is
+ * available and falls back to {@link ScalarKernels} otherwise.
+ */
+interface SimilarityKernels {
+
+    String name();
+
+    float dot(float[] a, float[] b);
+
+    /**
+     * Dot product of a float query with {@code query.length} int8 codes starting at {@code offset}.
+     */
+    float dotInt8(float[] query, byte[] codes, int offset);
+
+    /**
+     * Number of differing bits between {@code bits} and the same number of words of {@code codes} at
+     * {@code offset}.
+     */
+    int hamming(long[] bits, long[] codes, int offset);
+}
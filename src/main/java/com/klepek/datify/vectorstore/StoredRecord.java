@@ -0,0 +1,9 @@
+package com.klepek.datify.vectorstore;
+
+import java.util.Map;
+
+/**
+ * The id, text and metadata kept next to a vector in the record log.
+ */
+public record StoredRecord(String id, String text, Map<String, Object> metadata) {
+}
@@ -0,0 +1,37 @@
+package com.klepek.datify.vectorstore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Search structure over the vectors of a {@link VectorPartition}. Ordinals are registered after they
+ * have been appended to the partition; deleted ordinals are skipped at query time.
+ */
+public interface VectorIndex extends Closeable {
+
+    void add(int ordinal);
+
+    List<ScoredOrdinal> search(float[] query, int topK, double threshold, IntPredicate filter);
+
+    String name();
+
+    /**
+     * Heap held by the index structure itself, excluding the mapped vectors.
+     */
+    default long memoryBytes() {
+        return 0;
+    }
+
+    /**
+     * Persists state the index cannot cheaply rebuild from the partition, so a restart after a crash only
+     * catches up on what was added since.
+     */
+    default void checkpoint() throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,26 @@
+package com.klepek.datify.vectorstore;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Exposes {@code /actuator/vectorindex}, reporting recall against the exact scan and index memory so that
+ * {@code m}, {@code ef-search} and quantization can be tuned on the live corpus.
+ */
+@Endpoint(id = "vectorindex")
+public class VectorIndexEndpoint {
+
+    private final MappedVectorStore vectorStore;
+
+    public VectorIndexEndpoint(MappedVectorStore vectorStore) {
+        this.vectorStore = vectorStore;
+    }
+
+    @ReadOperation
+    public List<RecallReport> recall(@Nullable Integer queries, @Nullable Integer topK) {
+        return vectorStore.measureRecall(queries != null ? queries : 100, topK != null ? topK : 10);
+    }
+}
@@ -0,0 +1,78 @@
+package com.klepek.datify.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Similarity kernels used by the vector index. Stored vectors are unit length, so the dot product
+ * is their cosine similarity.
+ * <p>
+ * The inner loops run on the JDK Vector API when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector} and the CPU has at least 256-bit vectors; otherwise, or with
+ * {@code -Ddatify.simd=false}, plain scalar loops are used.
+ */
+public final class VectorMath {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorMath.class);
+
+    private static final SimilarityKernels KERNELS = selectKernels();
+
+    private VectorMath() {
+    }
+
+    public static String kernels() {
+        return KERNELS.name();
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return KERNELS.dot(a, b);
+    }
+
+    public static float dotInt8(float[] query, byte[] codes, int offset) {
+        return KERNELS.dotInt8(query, codes, offset);
+    }
+
+    public static int hamming(long[] bits, long[] codes, int offset) {
+        return KERNELS.hamming(bits, codes, offset);
+    }
+
+    public static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    static SimilarityKernels selectKernels() {
+        if (!Boolean.parseBoolean(System.getProperty("datify.simd", "true"))) {
+            logger.info("SIMD similarity kernels disabled, using scalar loops");
+            return new ScalarKernels();
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            logger.info("jdk.incubator.vector not enabled (--add-modules), using scalar similarity kernels");
+            return new ScalarKernels();
+        }
+        try {
+            Class<?> type = Class.forName("com.klepek.datify.vectorstore.PanamaKernels");
+            if (!(boolean) type.getDeclaredMethod("supported").invoke(null)) {
+                logger.info("CPU vectors too narrow for SIMD similarity kernels, using scalar loops");
+                return new ScalarKernels();
+            }
+            SimilarityKernels kernels = (SimilarityKernels) type.getDeclaredConstructor().newInstance();
+            logger.info("Using {} similarity kernels", kernels.name());
+            return kernels;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("Failed to load SIMD similarity kernels, using scalar loops", e);
+            return new ScalarKernels();
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.klepek.datify.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * A directory of append-only, memory-mapped vector segments plus a record log holding each vector's id, text
+ * and metadata.
+ * <p>
+ * Vectors live in fixed-capacity segment files mapped into memory, so they are paged in by the OS rather than
+ * held on the heap. The record log is the commit point: a vector only exists once its record is appended, and
+ * on open only record headers (ids, offsets and the metadata kept in {@link MetadataColumns}) are read back;
+ * chunk text is skipped. Deletes and overwrites are recorded in a tombstone log. Searches run under a read lock and never block each other; writes take the write lock.
+ * <p>
+ * Writes reach the OS page cache, which outlives a crash of the process; {@link #flush()} forces them to the
+ * storage device, vectors before the records that commit them.
+ */
+public class VectorPartition implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorPartition.class);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {};
+
+    private final Path directory;
+    private final int segmentCapacity;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<FloatBuffer> segments = new CopyOnWriteArrayList<>();
+    private final List<MappedByteBuffer> mappedSegments = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private final MetadataColumns columns = new MetadataColumns();
+    private final FileChannel records;
+    private final FileChannel tombstones;
+
+    private long[] offsets = new long[1024];
+    private int size;
+    private int dimensions;
+
+    private VectorPartition(Path directory, int segmentCapacity) throws IOException {
+        this.directory = directory;
+        this.records = FileChannel.open(directory.resolve("records.log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.tombstones = FileChannel.open(directory.resolve("tombstones.log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        Properties manifest = readManifest();
+        this.segmentCapacity = manifest != null
+                ? Integer.parseInt(manifest.getProperty("segmentCapacity"))
+                : segmentCapacity;
+        this.dimensions = manifest != null ? Integer.parseInt(manifest.getProperty("dimensions")) : 0;
+    }
+
+    public static VectorPartition open(Path directory, int segmentCapacity) throws IOException {
+        Files.createDirectories(directory);
+        VectorPartition partition = new VectorPartition(directory, segmentCapacity);
+        try {
+            partition.load();
+        } catch (IOException | RuntimeException e) {
+            partition.close();
+            throw e;
+        }
+        return partition;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int liveCount() {
+        lock.readLock().lock();
+        try {
+            return size - deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Filterable metadata of every ordinal, maintained alongside the record log.
+     */
+    public MetadataColumns columns() {
+        return columns;
+    }
+
+    /**
+     * Appends a unit-length vector with its record and returns its ordinal. An existing entry with the
+     * same id is tombstoned.
+     */
+    public int add(String id, float[] vector, String text, Map<String, Object> metadata) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (dimensions == 0) {
+                dimensions = vector.length;
+                writeManifest();
+            } else if (vector.length != dimensions) {
+                throw new IllegalArgumentException(
+                        "Vector has " + vector.length + " dimensions, index expects " + dimensions);
+            }
+
+            int ordinal = size;
+            segmentFor(ordinal).put((ordinal % segmentCapacity) * dimensions, vector);
+            long offset = appendRecord(id, text, metadata);
+            columns.set(ordinal, metadata);
+
+            if (ordinal == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[ordinal] = offset;
+            size++;
+
+            Integer previous = ordinalsById.put(id, ordinal);
+            if (previous != null) {
+                tombstone(previous);
+            }
+            return ordinal;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean delete(String id) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsById.remove(id);
+            if (ordinal == null) {
+                return false;
+            }
+            tombstone(ordinal);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Exact top-K scan over all live vectors accepted by the filter.
+     */
+    public List<ScoredOrdinal> search(float[] query, int topK, double threshold, IntPredicate filter) {
+        lock.readLock().lock();
+        try {
+            PriorityQueue<ScoredOrdinal> best = new PriorityQueue<>(Comparator.comparingDouble(ScoredOrdinal::score));
+            float[] vector = new float[dimensions];
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                if (deleted.get(ordinal) || !filter.test(ordinal)) {
+                    continue;
+                }
+                readVector(ordinal, vector);
+                float score = VectorMath.dot(query, vector);
+                if (score < threshold) {
+                    continue;
+                }
+                if (best.size() < topK) {
+                    best.add(new ScoredOrdinal(ordinal, score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new ScoredOrdinal(ordinal, score));
+                }
+            }
+            List<ScoredOrdinal> results = new ArrayList<>(best);
+            results.sort(Comparator.comparingDouble(ScoredOrdinal::score).reversed());
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Live ordinals accepted by the filter. Runs under the read lock, so filters may read {@link #columns()}.
+     */
+    public BitSet select(IntPredicate filter) {
+        lock.readLock().lock();
+        try {
+            BitSet selected = new BitSet(size);
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                if (!deleted.get(ordinal) && filter.test(ordinal)) {
+                    selected.set(ordinal);
+                }
+            }
+            return selected;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLive(int ordinal) {
+        lock.readLock().lock();
+        try {
+            return ordinal < size && !deleted.get(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public float[] vector(int ordinal) {
+        float[] vector = new float[dimensions];
+        readVector(ordinal, vector);
+        return vector;
+    }
+
+    /**
+     * Similarity of an already written vector to the query. Used by graph indexes, which only visit
+     * ordinals handed to them after {@link #add} returned, so no lock is taken.
+     */
+    float score(float[] query, int ordinal, float[] scratch) {
+        readVector(ordinal, scratch);
+        return VectorMath.dot(query, scratch);
+    }
+
+    public StoredRecord record(int ordinal) throws IOException {
+        lock.readLock().lock();
+        try {
+            long offset = offsets[ordinal];
+            ByteBuffer header = readFully(offset, Integer.BYTES);
+            int length = header.getInt();
+            ByteBuffer body = readFully(offset + Integer.BYTES, length);
+
+            String id = readString(body);
+            int metadataLength = body.getInt();
+            Map<String, Object> metadata = objectMapper.readValue(
+                    body.array(), body.position(), metadataLength, METADATA_TYPE);
+            body.position(body.position() + metadataLength);
+            String text = new String(body.array(), body.position(), body.remaining(), StandardCharsets.UTF_8);
+            return new StoredRecord(id, text, metadata);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The live record with this id, or null if it was never stored or has been deleted.
+     */
+    public StoredRecord find(String id) throws IOException {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinalsById.get(id);
+            return ordinal == null ? null : record(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the vector segments, then the record and tombstone logs, to the storage device.
+     */
+    public void flush() throws IOException {
+        lock.readLock().lock();
+        try {
+            for (MappedByteBuffer segment : mappedSegments) {
+                segment.force();
+            }
+            records.force(false);
+            tombstones.force(false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try (records; tombstones) {
+            if (records.isOpen()) {
+                flush();
+            }
+        } finally {
+            segments.clear();
+            mappedSegments.clear();
+            lock.writeLock().unlock();
+        }
+    }
+
+    void readVector(int ordinal, float[] target) {
+        segments.get(ordinal / segmentCapacity).get((ordinal % segmentCapacity) * dimensions, target);
+    }
+
+    private FloatBuffer segmentFor(int ordinal) throws IOException {
+        int segment = ordinal / segmentCapacity;
+        while (segments.size() <= segment) {
+            mapSegment(segments.size());
+        }
+        return segments.get(segment);
+    }
+
+    private void mapSegment(int index) throws IOException {
+        long bytes = (long) segmentCapacity * dimensions * Float.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Segment of " + segmentCapacity + " vectors exceeds 2GB");
+        }
+        Path file = directory.resolve(String.format("vectors-%05d.seg", index));
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            mappedSegments.add(mapped);
+            segments.add(mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+        }
+    }
+
+    private long appendRecord(String id, String text, Map<String, Object> metadata) throws IOException {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] metadataBytes = objectMapper.writeValueAsBytes(metadata);
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        int length = Integer.BYTES + idBytes.length + Integer.BYTES + metadataBytes.length + textBytes.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + length);
+        buffer.putInt(length)
+                .putInt(idBytes.length).put(idBytes)
+                .putInt(metadataBytes.length).put(metadataBytes)
+                .put(textBytes)
+                .flip();
+
+        long offset = records.size();
+        writeFully(records, buffer, offset);
+        return offset;
+    }
+
+    private void tombstone(int ordinal) throws IOException {
+        deleted.set(ordinal);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).putInt(ordinal).flip();
+        writeFully(tombstones, buffer, tombstones.size());
+    }
+
+    private void load() throws IOException {
+        long fileSize = records.size();
+        long offset = 0;
+        // Not closed: closing a channel-backed stream would close the record log itself.
+        InputStream input = new BufferedInputStream(Channels.newInputStream(records.position(0)));
+        try {
+            byte[] header = new byte[Integer.BYTES * 2];
+            while (offset + header.length <= fileSize) {
+                if (input.readNBytes(header, 0, header.length) < header.length) {
+                    break;
+                }
+                ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+                int length = headerBuffer.getInt();
+                int idLength = headerBuffer.getInt();
+                if (offset + Integer.BYTES + length > fileSize) {
+                    break;
+                }
+                String id = new String(input.readNBytes(idLength), StandardCharsets.UTF_8);
+                int metadataLength = ByteBuffer.wrap(input.readNBytes(Integer.BYTES)).getInt();
+                Map<String, Object> metadata = objectMapper.readValue(input.readNBytes(metadataLength), METADATA_TYPE);
+                input.skipNBytes(length - 2 * Integer.BYTES - idLength - metadataLength);
+                columns.set(size, metadata);
+
+                if (size == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[size] = offset;
+                Integer previous = ordinalsById.put(id, size);
+                if (previous != null) {
+                    deleted.set(previous);
+                }
+                size++;
+                offset += Integer.BYTES + length;
+            }
+        } catch (EOFException e) {
+            // Incomplete record at the end of the log; truncated below.
+        }
+        if (offset < fileSize) {
+            logger.warn("Truncating {} bytes of incomplete vector records in {}", fileSize - offset, directory);
+            records.truncate(offset);
+        }
+
+        ByteBuffer tombstoneBuffer = readFully(tombstones, 0, (int) (tombstones.size() / Integer.BYTES * Integer.BYTES));
+        while (tombstoneBuffer.hasRemaining()) {
+            int ordinal = tombstoneBuffer.getInt();
+            if (ordinal < size) {
+                deleted.set(ordinal);
+            }
+        }
+        ordinalsById.values().removeIf(deleted::get);
+
+        if (dimensions > 0) {
+            int segmentCount = (size + segmentCapacity - 1) / segmentCapacity;
+            for (int i = 0; i < segmentCount; i++) {
+                mapSegment(i);
+            }
+        }
+        logger.info("Opened vector partition {} with {} live of {} vectors", directory, size - deleted.cardinality(), size);
+    }
+
+    private Properties readManifest() throws IOException {
+        Path file = directory.resolve("manifest.properties");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties manifest = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            manifest.load(input);
+        }
+        int version = Integer.parseInt(manifest.getProperty("formatVersion", "0"));
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported vector partition format " + version + " in " + directory);
+        }
+        return manifest;
+    }
+
+    private void writeManifest() throws IOException {
+        Properties manifest = new Properties();
+        manifest.setProperty("formatVersion", String.valueOf(FORMAT_VERSION));
+        manifest.setProperty("dimensions", String.valueOf(dimensions));
+        manifest.setProperty("segmentCapacity", String.valueOf(segmentCapacity));
+        try (OutputStream output = Files.newOutputStream(directory.resolve("manifest.properties"))) {
+            manifest.store(output, "Datify vector partition");
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        return readFully(records, position, length);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of " + channel + " at " + position);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,389 @@
+package com.klepek.datify.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * One partition with its search index and scan. Shards are independent: each owns its directory, locks and
+ * graph, so they can be searched and written concurrently.
+ * <p>
+ * Deleted chunks are only tombstoned, so they keep their space and are still visited (and skipped) by scans
+ * and graph walks. {@link #compact(double)} copies the live chunks into a new generation directory, builds
+ * fresh indexes for it and then swaps it in. Searches keep running on the old generation during the rebuild;
+ * writes to the shard wait for it. The {@code CURRENT} file names the active generation; without it the
+ * partition files sit directly in the shard directory (generation 0).
+ */
+public class VectorShard implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorShard.class);
+
+    static final String CURRENT_FILE = "CURRENT";
+
+    @FunctionalInterface
+    public interface IndexOpener {
+        Indexes open(VectorPartition partition, Path directory) throws IOException;
+    }
+
+    /**
+     * @param index     answers unfiltered and broadly filtered searches
+     * @param scanIndex brute-force scan, exact or over quantized codes; may be the same as {@code index}
+     */
+    public record Indexes(VectorIndex index, VectorIndex scanIndex) {
+    }
+
+    private record Generation(int number, Path directory, VectorPartition partition, VectorIndex index,
+                              VectorIndex scanIndex) {
+
+        void close() throws IOException {
+            try (partition; scanIndex) {
+                index.close();
+            }
+        }
+    }
+
+    private final Path directory;
+    private final int segmentCapacity;
+    private final int exactScanLimit;
+    private final IndexOpener opener;
+    private final ReadWriteLock generationLock = new ReentrantReadWriteLock();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Generation current;
+
+    private VectorShard(Path directory, int segmentCapacity, int exactScanLimit, IndexOpener opener) {
+        this.directory = directory;
+        this.segmentCapacity = segmentCapacity;
+        this.exactScanLimit = exactScanLimit;
+        this.opener = opener;
+    }
+
+    /**
+     * @param exactScanLimit filtered searches matching at most this many chunks use the scan instead of
+     *                       walking the index, which would have to traverse mostly rejected nodes
+     */
+    public static VectorShard open(Path directory, int segmentCapacity, int exactScanLimit, IndexOpener opener)
+            throws IOException {
+        Files.createDirectories(directory);
+        VectorShard shard = new VectorShard(directory, segmentCapacity, exactScanLimit, opener);
+        Path currentFile = directory.resolve(CURRENT_FILE);
+        int number = Files.exists(currentFile) ? Integer.parseInt(Files.readString(currentFile).trim()) : 0;
+        shard.deleteStaleGenerations(number);
+        shard.current = shard.openGeneration(number);
+        return shard;
+    }
+
+    public int dimensions() {
+        return current.partition().dimensions();
+    }
+
+    public int liveCount() {
+        return current.partition().liveCount();
+    }
+
+    /**
+     * Share of the stored vectors that are deleted or overwritten.
+     */
+    public double tombstoneRatio() {
+        VectorPartition partition = current.partition();
+        int size = partition.size();
+        return size == 0 ? 0 : (double) (size - partition.liveCount()) / size;
+    }
+
+    void add(String id, float[] vector, String text, Map<String, Object> metadata) throws IOException {
+        writeLock.lock();
+        try {
+            Generation generation = current;
+            int ordinal = generation.partition().add(id, vector, text, metadata);
+            generation.index().add(ordinal);
+            if (generation.scanIndex() != generation.index()) {
+                generation.scanIndex().add(ordinal);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void flush() throws IOException {
+        writeLock.lock();
+        try {
+            current.partition().flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Persists the current generation's indexes; see {@link VectorIndex#checkpoint()}.
+     */
+    void checkpoint() throws IOException {
+        writeLock.lock();
+        try {
+            Generation generation = current;
+            generation.index().checkpoint();
+            if (generation.scanIndex() != generation.index()) {
+                generation.scanIndex().checkpoint();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    boolean delete(String id) throws IOException {
+        writeLock.lock();
+        try {
+            return current.partition().delete(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    int delete(Filter.Expression filterExpression) throws IOException {
+        writeLock.lock();
+        try {
+            VectorPartition partition = current.partition();
+            BitSet matches = matching(partition, filterExpression);
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                partition.delete(partition.record(ordinal).id());
+            }
+            return matches.cardinality();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Top hits with their records, read in the same generation as the search.
+     */
+    List<ScoredRecord> search(float[] query, int topK, double threshold, Filter.Expression filterExpression)
+            throws IOException {
+        generationLock.readLock().lock();
+        try {
+            Generation generation = current;
+            List<ScoredOrdinal> hits = searchOrdinals(generation, query, topK, threshold, filterExpression);
+            List<ScoredRecord> results = new ArrayList<>(hits.size());
+            for (ScoredOrdinal hit : hits) {
+                results.add(new ScoredRecord(generation.partition().record(hit.ordinal()), hit.score()));
+            }
+            return results;
+        } finally {
+            generationLock.readLock().unlock();
+        }
+    }
+
+    StoredRecord find(String id) throws IOException {
+        generationLock.readLock().lock();
+        try {
+            return current.partition().find(id);
+        } finally {
+            generationLock.readLock().unlock();
+        }
+    }
+
+    void forEachRecord(Consumer<StoredRecord> consumer) throws IOException {
+        generationLock.readLock().lock();
+        try {
+            VectorPartition partition = current.partition();
+            int size = partition.size();
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                if (partition.isLive(ordinal)) {
+                    consumer.accept(partition.record(ordinal));
+                }
+            }
+        } finally {
+            generationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recall of the search index and, when quantization is enabled, of the scan used for selective filters.
+     */
+    List<RecallReport> measureRecall(int queries, int topK) {
+        generationLock.readLock().lock();
+        try {
+            Generation generation = current;
+            List<RecallReport> reports = new ArrayList<>(2);
+            reports.add(RecallBenchmark.run(generation.partition(), generation.index(), queries, topK));
+            if (generation.scanIndex() != generation.index() && !(generation.scanIndex() instanceof ExactVectorIndex)) {
+                reports.add(RecallBenchmark.run(generation.partition(), generation.scanIndex(), queries, topK));
+            }
+            return reports;
+        } finally {
+            generationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the shard without its tombstoned vectors once they make up at least {@code threshold} of it.
+     * Returns whether a compaction ran.
+     */
+    public boolean compact(double threshold) throws IOException {
+        writeLock.lock();
+        try {
+            Generation old = current;
+            double ratio = tombstoneRatio();
+            if (ratio == 0 || ratio < threshold) {
+                return false;
+            }
+
+            long start = System.nanoTime();
+            int number = old.number() + 1;
+            Path target = generationDirectory(number);
+            deleteRecursively(target);
+            Generation compacted = copyLive(old, number, target);
+
+            Path currentFile = directory.resolve(CURRENT_FILE);
+            Path temporary = directory.resolve(CURRENT_FILE + ".tmp");
+            Files.writeString(temporary, Integer.toString(number));
+            Files.move(temporary, currentFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            generationLock.writeLock().lock();
+            try {
+                current = compacted;
+            } finally {
+                generationLock.writeLock().unlock();
+            }
+            old.close();
+            deleteGeneration(old);
+
+            logger.info("Compacted vector shard {} from {} to {} vectors ({} tombstoned) in {} ms", directory,
+                    old.partition().size(), compacted.partition().size(), String.format("%.0f%%", ratio * 100),
+                    (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Generation copyLive(Generation source, int number, Path target) throws IOException {
+        VectorPartition partition = VectorPartition.open(target, segmentCapacity);
+        try {
+            VectorPartition from = source.partition();
+            int size = from.size();
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                if (from.isLive(ordinal)) {
+                    StoredRecord record = from.record(ordinal);
+                    partition.add(record.id(), from.vector(ordinal), record.text(), record.metadata());
+                }
+            }
+            Indexes indexes = opener.open(partition, target);
+            // On disk before CURRENT names it, since the old generation is deleted right after
+            partition.flush();
+            indexes.index().checkpoint();
+            if (indexes.scanIndex() != indexes.index()) {
+                indexes.scanIndex().checkpoint();
+            }
+            return new Generation(number, target, partition, indexes.index(), indexes.scanIndex());
+        } catch (IOException | RuntimeException e) {
+            partition.close();
+            deleteRecursively(target);
+            throw e;
+        }
+    }
+
+    private Generation openGeneration(int number) throws IOException {
+        Path generationDirectory = generationDirectory(number);
+        VectorPartition partition = VectorPartition.open(generationDirectory, segmentCapacity);
+        try {
+            Indexes indexes = opener.open(partition, generationDirectory);
+            return new Generation(number, generationDirectory, partition, indexes.index(), indexes.scanIndex());
+        } catch (IOException | RuntimeException e) {
+            partition.close();
+            throw e;
+        }
+    }
+
+    private Path generationDirectory(int number) {
+        return number == 0 ? directory : directory.resolve("gen-" + number);
+    }
+
+    private List<ScoredOrdinal> searchOrdinals(Generation generation, float[] query, int topK, double threshold,
+                                               Filter.Expression filterExpression) {
+        if (generation.partition().dimensions() == 0) {
+            return List.of();
+        }
+        if (filterExpression == null) {
+            return generation.index().search(query, topK, threshold, ordinal -> true);
+        }
+        BitSet matches = matching(generation.partition(), filterExpression);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        VectorIndex searched = matches.cardinality() <= exactScanLimit ? generation.scanIndex() : generation.index();
+        return searched.search(query, topK, threshold, matches::get);
+    }
+
+    /**
+     * Evaluates the filter against the metadata columns of every live ordinal. This touches a few primitive
+     * arrays per chunk and no vectors, so it is cheap next to the search it narrows.
+     */
+    private static BitSet matching(VectorPartition partition, Filter.Expression filterExpression) {
+        return partition.select(MetadataFilter.compile(filterExpression, partition.columns()));
+    }
+
+    /**
+     * Removes generation directories left behind by a compaction that did not finish.
+     */
+    private void deleteStaleGenerations(int currentNumber) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "gen-*")) {
+            for (Path entry : entries) {
+                if (!entry.equals(generationDirectory(currentNumber))) {
+                    logger.info("Removing unfinished vector shard generation {}", entry);
+                    deleteRecursively(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Generation 0 shares the shard directory with later generations, so only its own files are removed.
+     */
+    private void deleteGeneration(Generation generation) throws IOException {
+        if (generation.number() > 0) {
+            deleteRecursively(generation.directory());
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory,
+                "{records.log,tombstones.log,manifest.properties,hnsw.graph,hnsw.graph.tmp,vectors-*.seg}")) {
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path entry : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(entry);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            current.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.klepek.datify.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Splits the vector index into shards by a hash of {@code documentId}, so all chunks of a document live in
+ * the same shard. Searches fan out to every shard on a dedicated fork-join pool and the per-shard top-K lists
+ * are merged; appends are grouped by shard and written concurrently.
+ * <p>
+ * A single shard keeps the original layout (partition files directly in the store directory) and runs on the
+ * calling thread. With more shards each gets a {@code shard-N} subdirectory, and the count is recorded in
+ * {@code shards.properties}; opening a store with a different count fails rather than silently missing
+ * chunks, since ids would route to other shards.
+ */
+public class VectorShards implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorShards.class);
+
+    private static final String LAYOUT_FILE = "shards.properties";
+
+    @FunctionalInterface
+    public interface ShardOpener {
+        VectorShard open(Path directory) throws IOException;
+    }
+
+    private final List<VectorShard> shards;
+    private final ExecutorService executor;
+
+    public VectorShards(List<VectorShard> shards, int parallelism) {
+        this.shards = List.copyOf(shards);
+        this.executor = shards.size() > 1
+                ? new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors())
+                : null;
+    }
+
+    /**
+     * Opens {@code count} shards under the directory; {@code parallelism} caps the search threads, with 0
+     * meaning one per available processor.
+     */
+    public static VectorShards open(Path directory, int count, int parallelism, ShardOpener opener) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("Shard count must be positive, got " + count);
+        }
+        Files.createDirectories(directory);
+        checkLayout(directory, count);
+
+        List<VectorShard> shards = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                shards.add(opener.open(count == 1 ? directory : directory.resolve("shard-" + i)));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (VectorShard shard : shards) {
+                try {
+                    shard.close();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+            }
+            throw e;
+        }
+        VectorShards opened = new VectorShards(shards, parallelism);
+        logger.info("Opened {} vector shard(s) in {} holding {} vectors", count, directory, opened.liveCount());
+        return opened;
+    }
+
+    public int count() {
+        return shards.size();
+    }
+
+    public int dimensions() {
+        int dimensions = 0;
+        for (VectorShard shard : shards) {
+            dimensions = Math.max(dimensions, shard.dimensions());
+        }
+        return dimensions;
+    }
+
+    public int liveCount() {
+        int live = 0;
+        for (VectorShard shard : shards) {
+            live += shard.liveCount();
+        }
+        return live;
+    }
+
+    /**
+     * Shard of a chunk: by {@code documentId} when present, otherwise by chunk id.
+     */
+    public int shardOf(String id, Map<String, Object> metadata) {
+        long documentId = MetadataColumns.toLong(metadata.get(MetadataColumns.DOCUMENT_ID));
+        int hash = documentId != MetadataColumns.MISSING ? Long.hashCode(documentId) : id.hashCode();
+        return Math.floorMod(hash, shards.size());
+    }
+
+    /**
+     * Appends unit-length vectors with their records, writing each shard's share on its own thread.
+     */
+    public void add(List<StoredRecord> records, List<float[]> vectors) {
+        List<List<Integer>> byShard = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < records.size(); i++) {
+            byShard.get(shardOf(records.get(i).id(), records.get(i).metadata())).add(i);
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>(shards.size());
+        for (int s = 0; s < shards.size(); s++) {
+            VectorShard shard = shards.get(s);
+            List<Integer> positions = byShard.get(s);
+            if (positions.isEmpty()) {
+                continue;
+            }
+            tasks.add(() -> {
+                for (int position : positions) {
+                    StoredRecord record = records.get(position);
+                    shard.add(record.id(), vectors.get(position), record.text(), record.metadata());
+                }
+                return null;
+            });
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * Forces every shard's vectors and logs to the storage device.
+     */
+    public void flush() {
+        try {
+            for (VectorShard shard : shards) {
+                shard.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush vector index", e);
+        }
+    }
+
+    public void checkpoint() {
+        try {
+            for (VectorShard shard : shards) {
+                shard.checkpoint();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to checkpoint vector index", e);
+        }
+    }
+
+    public boolean delete(String id) {
+        try {
+            for (VectorShard shard : shards) {
+                if (shard.delete(id)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete from vector index", e);
+        }
+    }
+
+    public int delete(Filter.Expression filterExpression) {
+        int deleted = 0;
+        try {
+            for (VectorShard shard : shards) {
+                deleted += shard.delete(filterExpression);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete from vector index", e);
+        }
+        return deleted;
+    }
+
+    /**
+     * Searches every shard concurrently and merges their top-K lists into the global top-K.
+     */
+    public List<ScoredRecord> search(float[] query, int topK, double threshold, Filter.Expression filterExpression) {
+        List<Callable<List<ScoredRecord>>> tasks = new ArrayList<>(shards.size());
+        for (VectorShard shard : shards) {
+            tasks.add(() -> shard.search(query, topK, threshold, filterExpression));
+        }
+
+        PriorityQueue<ScoredRecord> best = new PriorityQueue<>(Comparator.comparingDouble(ScoredRecord::score));
+        for (List<ScoredRecord> hits : invokeAll(tasks)) {
+            for (ScoredRecord hit : hits) {
+                if (best.size() < topK) {
+                    best.add(hit);
+                } else if (hit.score() > best.peek().score()) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+        }
+        List<ScoredRecord> merged = new ArrayList<>(best);
+        merged.sort(Comparator.comparingDouble(ScoredRecord::score).reversed());
+        return merged;
+    }
+
+    /**
+     * Live records with the given ids, in the order given; ids that are not stored are skipped. Routing needs
+     * a chunk's metadata, so each id is looked up shard by shard.
+     */
+    public List<StoredRecord> find(Collection<String> ids) {
+        List<StoredRecord> found = new ArrayList<>(ids.size());
+        try {
+            for (String id : ids) {
+                for (VectorShard shard : shards) {
+                    StoredRecord record = shard.find(id);
+                    if (record != null) {
+                        found.add(record);
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read vector records", e);
+        }
+        return found;
+    }
+
+    public void forEachRecord(Consumer<StoredRecord> consumer) {
+        try {
+            for (VectorShard shard : shards) {
+                shard.forEachRecord(consumer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read vector records", e);
+        }
+    }
+
+    /**
+     * Compacts, one at a time, the shards whose tombstone ratio has reached the threshold, so at most one
+     * shard's writes wait on a rebuild. Returns the number of shards compacted.
+     */
+    public int compact(double threshold) {
+        int compacted = 0;
+        try {
+            for (VectorShard shard : shards) {
+                if (shard.compact(threshold)) {
+                    compacted++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact vector index", e);
+        }
+        return compacted;
+    }
+
+    public List<RecallReport> measureRecall(int queries, int topK) {
+        List<RecallReport> reports = new ArrayList<>();
+        for (int s = 0; s < shards.size(); s++) {
+            for (RecallReport report : shards.get(s).measureRecall(queries, topK)) {
+                reports.add(shards.size() == 1 ? report : new RecallReport("shard-" + s + "/" + report.index(),
+                        report.vectors(), report.queries(), report.topK(), report.recall(), report.indexMillis(),
+                        report.exactMillis(), report.vectorBytes(), report.indexBytes()));
+            }
+        }
+        return reports;
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            if (executor == null || tasks.size() == 1) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+                return results;
+            }
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for vector shards", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (Exception e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        if (failure instanceof IOException io) {
+            return new UncheckedIOException("Vector shard operation failed", io);
+        }
+        return new IllegalStateException("Vector shard operation failed", failure);
+    }
+
+    private static void checkLayout(Path directory, int count) throws IOException {
+        Path layout = directory.resolve(LAYOUT_FILE);
+        Integer existing = null;
+        if (Files.exists(layout)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(layout)) {
+                properties.load(in);
+            }
+            existing = Integer.parseInt(properties.getProperty("count"));
+        } else if (Files.exists(directory.resolve("records.log"))
+                || Files.exists(directory.resolve(VectorShard.CURRENT_FILE))) {
+            existing = 1;
+        }
+
+        if (existing != null && existing != count) {
+            throw new IllegalStateException("Vector store in " + directory + " was written with " + existing
+                    + " shard(s) but datify.vectorstore.shards=" + count + "; restore the setting or re-index into an empty directory");
+        }
+        if (existing == null && count > 1) {
+            Properties properties = new Properties();
+            properties.setProperty("count", Integer.toString(count));
+            try (OutputStream out = Files.newOutputStream(layout)) {
+                properties.store(out, "Vector store shard layout");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        IOException failure = null;
+        for (VectorShard shard : shards) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
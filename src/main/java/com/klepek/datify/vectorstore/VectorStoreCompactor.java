@@ -0,0 +1,41 @@
+package com.klepek.datify.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Periodically reclaims the space of deleted chunks and checkpoints the search indexes. Shards below the
+ * tombstone ratio are left alone and unchanged indexes are not rewritten, so an idle store costs one size check
+ * per shard and run.
+ */
+public class VectorStoreCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorStoreCompactor.class);
+
+    private final MappedVectorStore vectorStore;
+    private final double tombstoneRatio;
+
+    public VectorStoreCompactor(MappedVectorStore vectorStore, double tombstoneRatio) {
+        this.vectorStore = vectorStore;
+        this.tombstoneRatio = tombstoneRatio;
+    }
+
+    @Scheduled(fixedDelayString = "${datify.vectorstore.compaction.interval:PT10M}",
+            initialDelayString = "${datify.vectorstore.compaction.interval:PT10M}")
+    public void compact() {
+        try {
+            int compacted = vectorStore.compact(tombstoneRatio);
+            if (compacted > 0) {
+                logger.info("Compacted {} vector shard(s)", compacted);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Vector store compaction failed", e);
+        }
+        try {
+            vectorStore.checkpoint();
+        } catch (RuntimeException e) {
+            logger.error("Vector index checkpoint failed", e);
+        }
+    }
+}
@@ -8,7 +8,10 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
 @SpringBootTest
 @TestPropertySource(properties = {
-    "gemini.api.key=test-key"
+    "gemini.api.key=test-key",
+    "spring.datasource.url=jdbc:h2:mem:datify",
+    "datify.vectorstore.dir=build/test-data/vectors",
+    "datify.embedding.cache.dir=build/test-data/embedding-cache"
 })
 class DatifyApplicationTests {
 
@@ -0,0 +1,41 @@
+package com.klepek.datify.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AnswerCache cache = new AnswerCache(true, 100, Duration.ofMinutes(10), now::get,
+            new SimpleMeterRegistry());
+
+    @Test
+    void get_ShouldMatchNormalizedQuestionWithSameContext() {
+        cache.put("Kdo je dodavatel?", "Dodavatel: ACME s.r.o.", "ACME s.r.o.");
+
+        assertEquals(Optional.of("ACME s.r.o."), cache.get("  kdo JE   dodavatel ", "Dodavatel: ACME s.r.o."));
+    }
+
+    @Test
+    void get_ShouldMissWhenContextChanged() {
+        cache.put("Kdo je dodavatel?", "Dodavatel: ACME s.r.o.", "ACME s.r.o.");
+
+        assertEquals(Optional.empty(), cache.get("Kdo je dodavatel?", "Dodavatel: Beta a.s."));
+    }
+
+    @Test
+    void get_ShouldExpireEntriesAfterTtl() {
+        cache.put("Kdo je dodavatel?", "context", "ACME s.r.o.");
+
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        assertEquals(Optional.empty(), cache.get("Kdo je dodavatel?", "context"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,75 @@
+package com.klepek.datify.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SemanticAnswerCacheTest {
+
+    private static final Map<String, float[]> EMBEDDINGS = Map.of(
+            "Kdo je dodavatel?", new float[]{1, 0, 0},
+            "Která firma fakturu vystavila?", new float[]{0.96f, 0.28f, 0},
+            "Jaká je celková částka?", new float[]{0, 1, 0});
+
+    private final SemanticAnswerCache cache = new SemanticAnswerCache(new FixedModel(), true, 0.9, 100,
+            Duration.ofHours(1), System::nanoTime, new SimpleMeterRegistry());
+
+    @Test
+    void find_ShouldReturnAnswerForParaphraseInSameScope() {
+        cache.put(SemanticAnswerCache.documentScope(1L), "Kdo je dodavatel?", "ACME s.r.o.");
+
+        assertEquals(Optional.of("ACME s.r.o."),
+                cache.find(SemanticAnswerCache.documentScope(1L), "Která firma fakturu vystavila?"));
+        assertEquals(1, cache.savedCalls());
+    }
+
+    @Test
+    void find_ShouldMissForDissimilarQuestionOrOtherScope() {
+        cache.put(SemanticAnswerCache.documentScope(1L), "Kdo je dodavatel?", "ACME s.r.o.");
+
+        assertEquals(Optional.empty(), cache.find(SemanticAnswerCache.documentScope(1L), "Jaká je celková částka?"));
+        assertEquals(Optional.empty(), cache.find(SemanticAnswerCache.documentScope(2L), "Kdo je dodavatel?"));
+        assertEquals(0, cache.savedCalls());
+    }
+
+    @Test
+    void invalidateDocument_ShouldDropDocumentAndGlobalAnswers() {
+        cache.put(SemanticAnswerCache.documentScope(1L), "Kdo je dodavatel?", "ACME s.r.o.");
+        cache.put(SemanticAnswerCache.documentScope(2L), "Kdo je dodavatel?", "Beta a.s.");
+        cache.put(SemanticAnswerCache.GLOBAL_SCOPE, "Kdo je dodavatel?", "ACME s.r.o. a Beta a.s.");
+
+        cache.invalidateDocument(1L);
+
+        assertEquals(1, cache.size());
+        assertEquals(Optional.of("Beta a.s."), cache.find(SemanticAnswerCache.documentScope(2L), "Kdo je dodavatel?"));
+    }
+
+    private static class FixedModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(EMBEDDINGS.get(text), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return EMBEDDINGS.get(document.getText());
+        }
+    }
+}
@@ -1,24 +1,38 @@
 package com.klepek.datify.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.klepek.datify.dto.AnswerResponse;
 import com.klepek.datify.dto.QuestionRequest;
 import com.klepek.datify.entity.Document;
 import com.klepek.datify.exception.DocumentNotFoundException;
+import com.klepek.datify.exception.GeminiApiException;
+import com.klepek.datify.ingestion.IngestionJob;
 import com.klepek.datify.service.DocumentService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
-import static org.mockito.ArgumentMatchers.eq;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -54,17 +68,168 @@ class DocumentControllerSimpleTest {
         QuestionRequest request = new QuestionRequest();
         request.setQuestion("What is this document about?");
 
-        when(documentService.askQuestion(eq(999L), eq(request.getQuestion())))
-                .thenThrow(new DocumentNotFoundException(999L));
+        when(documentService.askQuestionAsync(999L, request.getQuestion()))
+                .thenReturn(Mono.error(new DocumentNotFoundException(999L)));
 
-        mockMvc.perform(post("/api/documents/999/ask")
+        MvcResult result = mockMvc.perform(post("/api/documents/999/ask")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isNotFound())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.error").value("Document not found"));
     }
 
+    @Test
+    void askQuestion_ShouldAnswerAsynchronously() throws Exception {
+        QuestionRequest request = new QuestionRequest();
+        request.setQuestion("Kdo je dodavatel?");
+
+        when(documentService.askQuestionAsync(1L, request.getQuestion()))
+                .thenReturn(Mono.just(new AnswerResponse("ACME s.r.o.", request.getQuestion(), 1L, "invoice.pdf")));
+
+        MvcResult result = mockMvc.perform(post("/api/documents/1/ask")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.answer").value("ACME s.r.o."))
+                .andExpect(jsonPath("$.documentFilename").value("invoice.pdf"));
+    }
+
+    @Test
+    void askGlobalQuestion_ShouldWaitLongerThanGeminiDeadlineAndRateLimitWait() throws Exception {
+        QuestionRequest request = new QuestionRequest();
+        request.setQuestion("Which invoices are overdue?");
+
+        when(documentService.askGlobalQuestionAsync(request.getQuestion())).thenReturn(Mono.never());
+
+        MvcResult result = mockMvc.perform(post("/api/documents/ask")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // datify.gemini.deadline (60 s) plus datify.gemini.rate-limit.max-wait (10 s) plus retrieval
+        assertEquals(85_000L, result.getRequest().getAsyncContext().getTimeout());
+    }
+
+    @Test
+    void askGlobalQuestion_ShouldReturn503WhenGeminiFails() throws Exception {
+        QuestionRequest request = new QuestionRequest();
+        request.setQuestion("Which invoices are overdue?");
+
+        when(documentService.askGlobalQuestionAsync(request.getQuestion()))
+                .thenReturn(Mono.error(new GeminiApiException("quota exceeded")));
+
+        MvcResult result = mockMvc.perform(post("/api/documents/ask")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.errorCode").value("AI_SERVICE_ERROR"));
+    }
+
+    @Test
+    void askQuestionStream_ShouldSendTokensAsServerSentEvents() throws Exception {
+        QuestionRequest request = new QuestionRequest();
+        request.setQuestion("Kdo je dodavatel?");
+
+        when(documentService.askQuestionStream(1L, request.getQuestion())).thenReturn(Flux.just("Dodavatel je", " ACME"));
+
+        MvcResult result = mockMvc.perform(post("/api/documents/1/ask/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("event:token\ndata:{\"text\":\" ACME\"}")))
+                .andExpect(content().string(containsString("event:done")));
+    }
+
+    @Test
+    void askGlobalQuestionStream_ShouldSendErrorEventWhenGeminiFails() throws Exception {
+        QuestionRequest request = new QuestionRequest();
+        request.setQuestion("Which invoices are overdue?");
+
+        when(documentService.askGlobalQuestionStream(request.getQuestion()))
+                .thenReturn(Flux.error(new GeminiApiException("quota exceeded")));
+
+        MvcResult result = mockMvc.perform(post("/api/documents/ask/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().string(containsString("event:error\ndata:{\"text\":\"AI service is currently unavailable. Please try again later.\"}")));
+    }
+
+    @Test
+    void askQuestionStream_ShouldSendErrorEventForNonExistentDocument() throws Exception {
+        QuestionRequest request = new QuestionRequest();
+        request.setQuestion("What is this document about?");
+
+        when(documentService.askQuestionStream(999L, request.getQuestion()))
+                .thenReturn(Flux.error(new DocumentNotFoundException(999L)));
+
+        MvcResult result = mockMvc.perform(post("/api/documents/999/ask/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().string(containsString("event:error\ndata:{\"text\":\"Document not found.\"}")));
+    }
+
+    @Test
+    void uploadDocument_AsyncShouldReturnAcceptedWithJob() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "content".getBytes());
+        IngestionJob job = new IngestionJob("test.txt");
+
+        when(documentService.submitDocument(any())).thenReturn(job);
+
+        mockMvc.perform(multipart("/api/documents/upload").file(file).param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/documents/jobs/" + job.getId()))
+                .andExpect(jsonPath("$.jobId").value(job.getId()))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andExpect(jsonPath("$.stages.length()").value(3));
+    }
+
+    @Test
+    void deleteDocument_ShouldReturnNoContent() throws Exception {
+        mockMvc.perform(delete("/api/documents/1"))
+                .andExpect(status().isNoContent());
+
+        verify(documentService).deleteDocument(1L);
+    }
+
+    @Test
+    void deleteDocument_ShouldReturn404ForNonExistentDocument() throws Exception {
+        doThrow(new DocumentNotFoundException(999L)).when(documentService).deleteDocument(999L);
+
+        mockMvc.perform(delete("/api/documents/999"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Document not found"));
+    }
+
     private Document createTestDocument(Long id, String filename) {
         Document document = new Document();
         document.setId(id);
@@ -0,0 +1,41 @@
+package com.klepek.datify.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeminiResponseTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void text_ShouldJoinPartsOfFirstCandidateAndSkipUnknownFields() throws Exception {
+        String body = """
+                {
+                  "candidates": [{
+                    "content": {"role": "model", "parts": [{"text": "Dodavatel je "}, {"text": "ACME s.r.o."}]},
+                    "finishReason": "STOP",
+                    "safetyRatings": [{"category": "HARM_CATEGORY_HARASSMENT", "probability": "NEGLIGIBLE"}]
+                  }],
+                  "usageMetadata": {"promptTokenCount": 812, "candidatesTokenCount": 9},
+                  "modelVersion": "gemini-1.5-flash"
+                }
+                """;
+
+        GeminiResponse response = objectMapper.readValue(body, GeminiResponse.class);
+
+        assertTrue(response.hasText());
+        assertEquals("Dodavatel je ACME s.r.o.", response.text());
+        assertEquals("STOP", response.candidates().get(0).finishReason());
+    }
+
+    @Test
+    void text_ShouldBeEmptyWithoutCandidates() throws Exception {
+        GeminiResponse response = objectMapper.readValue("{\"promptFeedback\": {\"blockReason\": \"SAFETY\"}}",
+                GeminiResponse.class);
+
+        assertFalse(response.hasText());
+        assertEquals("", response.text());
+    }
+}
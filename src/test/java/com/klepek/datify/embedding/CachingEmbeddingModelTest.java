@@ -0,0 +1,71 @@
+package com.klepek.datify.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingEmbeddingModelTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void call_ShouldOnlySendMissingTextsToDelegateOnce() throws Exception {
+        RecordingModel delegate = new RecordingModel();
+        EmbeddingCache cache = new EmbeddingCache(directory, 100, "text-embedding-004", new SimpleMeterRegistry());
+        try {
+            cache.put("alpha", new float[]{42f});
+            CachingEmbeddingModel model = cache.wrap(delegate);
+
+            List<float[]> vectors = model.embed(List.of("alpha", "beta", "beta", "gamma"));
+
+            assertEquals(List.of(List.of("beta", "gamma")), delegate.requests);
+            assertArrayEquals(new float[]{42f}, vectors.get(0));
+            assertArrayEquals(new float[]{4f}, vectors.get(1));
+            assertArrayEquals(new float[]{4f}, vectors.get(2));
+            assertArrayEquals(new float[]{5f}, vectors.get(3));
+
+            List<float[]> cached = model.embed(List.of("gamma", "alpha"));
+
+            assertEquals(1, delegate.requests.size());
+            assertArrayEquals(new float[]{5f}, cached.get(0));
+            assertArrayEquals(new float[]{42f}, cached.get(1));
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * Embeds each text as a one-dimensional vector holding its length and records every request.
+     */
+    private static class RecordingModel implements EmbeddingModel {
+
+        final List<List<String>> requests = new ArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            requests.add(List.copyOf(request.getInstructions()));
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(new float[]{text.length()}, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.klepek.datify.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void get_ShouldReturnVectorsPutBeforeReopen() throws Exception {
+        EmbeddingCache cache = open("text-embedding-004");
+        cache.put("Faktura 2024117", new float[]{0.25f, -0.5f, 1f});
+        cache.put("Celkem k úhradě 12 100 Kč", new float[]{0.75f, 0f, -1f});
+        cache.close();
+
+        EmbeddingCache reopened = open("text-embedding-004");
+        try {
+            assertEquals(2, reopened.size());
+            assertArrayEquals(new float[]{0.25f, -0.5f, 1f}, reopened.get("Faktura 2024117"));
+            assertArrayEquals(new float[]{0.75f, 0f, -1f}, reopened.get("Celkem k úhradě 12 100 Kč"));
+            assertNull(reopened.get("Dodavatel ACME s.r.o."));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void open_ShouldTruncatePartiallyWrittenLastRecord() throws Exception {
+        EmbeddingCache cache = open("text-embedding-004");
+        cache.put("Faktura 2024117", new float[]{0.25f, -0.5f, 1f});
+        cache.close();
+        Path log = directory.resolve("embeddings.log");
+        long complete = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // Key and header of a three-dimensional record with only one of its floats written
+            ByteBuffer torn = ByteBuffer.allocate(32 + Integer.BYTES + Float.BYTES);
+            torn.position(32);
+            torn.putInt(3).putFloat(0.5f).flip();
+            channel.write(torn);
+        }
+
+        EmbeddingCache reopened = open("text-embedding-004");
+        try {
+            assertEquals(complete, Files.size(log));
+            assertEquals(1, reopened.size());
+            reopened.put("Celkem k úhradě 12 100 Kč", new float[]{0.75f, 0f, -1f});
+            assertArrayEquals(new float[]{0.75f, 0f, -1f}, reopened.get("Celkem k úhradě 12 100 Kč"));
+            assertArrayEquals(new float[]{0.25f, -0.5f, 1f}, reopened.get("Faktura 2024117"));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void get_ShouldNotReuseVectorsOfAnotherModel() throws Exception {
+        EmbeddingCache cache = open("text-embedding-004");
+        cache.put("Faktura 2024117", new float[]{0.25f, -0.5f, 1f});
+        cache.close();
+
+        EmbeddingCache otherModel = open("all-MiniLM-L6-v2");
+        try {
+            assertNull(otherModel.get("Faktura 2024117"));
+        } finally {
+            otherModel.close();
+        }
+        EmbeddingCache sameModel = open("text-embedding-004");
+        try {
+            assertArrayEquals(new float[]{0.25f, -0.5f, 1f}, sameModel.get("Faktura 2024117"));
+        } finally {
+            sameModel.close();
+        }
+    }
+
+    private EmbeddingCache open(String modelName) throws Exception {
+        return new EmbeddingCache(directory, 1, modelName, new SimpleMeterRegistry());
+    }
+}
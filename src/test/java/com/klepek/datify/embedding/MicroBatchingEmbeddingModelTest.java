@@ -0,0 +1,128 @@
+package com.klepek.datify.embedding;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroBatchingEmbeddingModelTest {
+
+    @Test
+    void call_ShouldCoalesceRequestsQueuedWhileWorkerIsBusy() throws Exception {
+        CountDownLatch firstCallStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstCall = new CountDownLatch(1);
+        RecordingModel delegate = new RecordingModel(firstCallStarted, releaseFirstCall);
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+
+        try (MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, executor, 1, 64, 16)) {
+            ExecutorService callers = Executors.newFixedThreadPool(4);
+            Future<List<float[]>> first = callers.submit(() -> model.embed(List.of("a")));
+            assertTrue(firstCallStarted.await(5, TimeUnit.SECONDS));
+
+            List<Future<List<float[]>>> queued = new ArrayList<>();
+            queued.add(callers.submit(() -> model.embed(List.of("bb", "ccc"))));
+            queued.add(callers.submit(() -> model.embed(List.of("dddd"))));
+            queued.add(callers.submit(() -> model.embed(List.of("eeeee"))));
+            Thread.sleep(200);
+            releaseFirstCall.countDown();
+
+            assertEquals(1f, first.get(5, TimeUnit.SECONDS).get(0)[0]);
+            assertEquals(2f, queued.get(0).get(5, TimeUnit.SECONDS).get(0)[0]);
+            assertEquals(3f, queued.get(0).get(5, TimeUnit.SECONDS).get(1)[0]);
+            assertEquals(4f, queued.get(1).get(5, TimeUnit.SECONDS).get(0)[0]);
+            assertEquals(5f, queued.get(2).get(5, TimeUnit.SECONDS).get(0)[0]);
+            assertEquals(List.of(1, 4), delegate.batchSizes);
+            callers.shutdown();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void call_ShouldPropagateDelegateFailure() {
+        EmbeddingModel failing = new RecordingModel(null, null) {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                throw new IllegalArgumentException("model failed");
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+
+        try (MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(failing, executor, 1, 64, 16)) {
+            IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                    () -> model.embed(List.of("text")));
+            assertEquals("model failed", thrown.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void call_ShouldFailInsteadOfWaitingAfterClose() {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(new RecordingModel(null, null), executor,
+                1, 64, 16);
+
+        try {
+            model.close();
+
+            IllegalStateException thrown = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> assertThrows(IllegalStateException.class, () -> model.embed(List.of("text"))));
+            assertEquals("Embedding model is shut down", thrown.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Embeds each text as a one-dimensional vector holding its length; the first call can be held open.
+     */
+    private static class RecordingModel implements EmbeddingModel {
+
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        RecordingModel(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            batchSizes.add(request.getInstructions().size());
+            if (batchSizes.size() == 1 && started != null) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(new float[]{text.length()}, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
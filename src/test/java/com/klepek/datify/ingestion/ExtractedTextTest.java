@@ -0,0 +1,46 @@
+package com.klepek.datify.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractedTextTest {
+
+    @TempDir
+    Path spoolDir;
+
+    @Test
+    void openReader_ShouldStreamSpooledTextAndCloseShouldDeleteIt() throws Exception {
+        UploadSpool spool = new UploadSpool(spoolDir);
+        Path file = spool.newFile("text-", ".txt");
+        Files.writeString(file, "Dodavatel: ACME s.r.o.\nCelkem: 1 210 Kč", StandardCharsets.UTF_8);
+
+        ExtractedText extractedText = new ExtractedText(file, 39, "Dodavatel: ACME s.r.o.\nCelkem: 1 210 Kč", spool);
+        try (BufferedReader reader = new BufferedReader(extractedText.openReader())) {
+            assertEquals("Dodavatel: ACME s.r.o.", reader.readLine());
+            assertEquals("Celkem: 1 210 Kč", reader.readLine());
+        }
+        assertFalse(extractedText.isTruncated());
+
+        extractedText.close();
+
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void isTruncated_ShouldReportPrefixShorterThanText() throws Exception {
+        UploadSpool spool = new UploadSpool(spoolDir);
+        Path file = spool.newFile("text-", ".txt");
+
+        try (ExtractedText extractedText = new ExtractedText(file, 39, "Dodavatel", spool)) {
+            assertTrue(extractedText.isTruncated());
+            assertEquals("Dodavatel", extractedText.getPrefix());
+        }
+    }
+}
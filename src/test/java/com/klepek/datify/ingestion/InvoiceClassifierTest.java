@@ -0,0 +1,41 @@
+package com.klepek.datify.ingestion;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoiceClassifierTest {
+
+    private final InvoiceClassifier classifier = new InvoiceClassifier(8, 3, 20000, new SimpleMeterRegistry());
+
+    @Test
+    void classify_ShouldRecognizeCzechInvoice() {
+        String text = """
+                Faktura - daňový doklad č. 2024117
+                Dodavatel: ACME s.r.o., IČO: 12345678, DIČ: CZ12345678
+                Datum vystavení: 01.03.2024  Datum splatnosti: 15.03.2024
+                Variabilní symbol: 2024117  IBAN: CZ65 0800 0000 1920 0014 5399
+                Celkem k úhradě: 12 100,00 Kč
+                """;
+
+        assertEquals(InvoiceClassifier.Verdict.INVOICE, classifier.classify(text).verdict());
+    }
+
+    @Test
+    void classify_ShouldRejectTextWithoutInvoiceSignals() {
+        String text = "Zápis z porady týmu. Totally agreed to move the release; notes by Billie.";
+
+        InvoiceClassifier.Classification classification = classifier.classify(text);
+
+        assertEquals(InvoiceClassifier.Verdict.NOT_INVOICE, classification.verdict());
+        assertEquals(0.0, classification.score());
+    }
+
+    @Test
+    void classify_ShouldLeaveWeakSignalsToTheModel() {
+        String text = "Objednávka č. 55, dodavatel ACME, celkem 12 100 Kč, dodání 01.03.2024";
+
+        assertEquals(InvoiceClassifier.Verdict.AMBIGUOUS, classifier.classify(text).verdict());
+    }
+}
@@ -0,0 +1,76 @@
+package com.klepek.datify.ingestion;
+
+import com.klepek.datify.dto.InvoiceExtractionDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoiceFieldExtractorTest {
+
+    private final InvoiceFieldExtractor extractor = new InvoiceFieldExtractor(50000);
+
+    @Test
+    void extract_ShouldReadCzechInvoiceLayout() {
+        String text = """
+                Faktura - daňový doklad č. 2024117
+                Dodavatel: ACME s.r.o., Průmyslová 12, 110 00 Praha 1, IČO: 12345678, DIČ: CZ12345678
+                Odběratel: Beta a.s., Dlouhá 5, 602 00 Brno
+                Datum vystavení: 01.03.2024  Datum splatnosti: 15.03.2024
+                Objednávka č. OBJ-2024/55
+                Položka                    Množství   Cena       DPH    Celkem
+                Konzultační služby         10 h       1 000,00   21 %   10 000,00
+                Základ daně 10 000,00 Kč, DPH 21 % 2 100,00 Kč
+                Celkem k úhradě: 12 100,00 Kč
+                """;
+
+        InvoiceExtractionDto dto = extractor.extract(text);
+
+        assertEquals("2024117", dto.getInvoiceNumber());
+        assertEquals("ACME s.r.o.", dto.getVendorName());
+        assertEquals("Průmyslová 12, 110 00 Praha 1", dto.getVendorAddress());
+        assertEquals(LocalDate.of(2024, 3, 1), dto.getInvoiceDate());
+        assertEquals(LocalDate.of(2024, 3, 15), dto.getDueDate());
+        assertEquals(new BigDecimal("12100.00"), dto.getTotalAmount());
+        assertEquals(new BigDecimal("2100.00"), dto.getTaxAmount());
+        assertEquals("CZK", dto.getCurrency());
+        assertEquals("OBJ-2024/55", dto.getPurchaseOrderNumber());
+        assertEquals(1.0, dto.getConfidenceScore());
+    }
+
+    @Test
+    void extract_ShouldReadEnglishInvoiceWithMonthFirstDates() {
+        String text = """
+                Invoice Number: INV-2024-0042
+                Invoice Date: 03/14/2024
+                Due Date: 04/13/2024
+                PO Number: PO-7781
+                Total 3 items
+                Subtotal: $1,000.00
+                Sales Tax (8%): $80.00
+                Total Due: $1,080.00
+                """;
+
+        InvoiceExtractionDto dto = extractor.extract(text);
+
+        assertEquals("INV-2024-0042", dto.getInvoiceNumber());
+        assertEquals(LocalDate.of(2024, 3, 14), dto.getInvoiceDate());
+        assertEquals(LocalDate.of(2024, 4, 13), dto.getDueDate());
+        assertEquals(new BigDecimal("1080.00"), dto.getTotalAmount());
+        assertEquals(new BigDecimal("80.00"), dto.getTaxAmount());
+        assertEquals("USD", dto.getCurrency());
+        assertEquals("PO-7781", dto.getPurchaseOrderNumber());
+        assertEquals(0.9, dto.getConfidenceScore());
+    }
+
+    @Test
+    void extract_ShouldReportLowConfidenceForUnlabelledText() {
+        InvoiceExtractionDto dto = extractor.extract("Posíláme vyúčtování za březen, celkem 1 250,00 a zbytek příště.");
+
+        assertNull(dto.getInvoiceNumber());
+        assertEquals(new BigDecimal("1250.00"), dto.getTotalAmount());
+        assertTrue(dto.getConfidenceScore() < 0.5);
+    }
+}
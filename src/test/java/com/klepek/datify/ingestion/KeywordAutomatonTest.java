@@ -0,0 +1,32 @@
+package com.klepek.datify.ingestion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeywordAutomatonTest {
+
+    @Test
+    void scan_ShouldReportOverlappingMatchesWithPositions() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("he", "she", "his", "hers"));
+        List<String> matches = new ArrayList<>();
+
+        automaton.scan("ushers", Integer.MAX_VALUE, (keyword, start, end) ->
+                matches.add(keyword + "@" + start + "-" + end));
+
+        assertEquals(List.of("1@1-4", "0@2-4", "3@2-6"), matches);
+    }
+
+    @Test
+    void scan_ShouldIgnoreCaseAndStopAtLimit() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("daňový doklad", "celkem"));
+        List<Integer> matches = new ArrayList<>();
+
+        automaton.scan("DAŇOVÝ DOKLAD ... Celkem", 14, (keyword, start, end) -> matches.add(keyword));
+
+        assertEquals(List.of(0), matches);
+    }
+}
@@ -0,0 +1,87 @@
+package com.klepek.datify.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextChunkerTest {
+
+    private final TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+
+    @Test
+    void chunk_ShouldReturnSingleChunkForShortText() {
+        TextChunker chunker = new TextChunker(estimator, 50, 10);
+
+        List<String> chunks = chunker.chunk("Faktura č. 2024-001. Celkem k úhradě 1 210 Kč.");
+
+        assertEquals(1, chunks.size());
+        assertEquals("Faktura č. 2024-001. Celkem k úhradě 1 210 Kč.", chunks.get(0));
+    }
+
+    @Test
+    void chunk_ShouldKeepChunksWithinTokenBudget() {
+        TextChunker chunker = new TextChunker(estimator, 40, 8);
+
+        List<String> chunks = chunker.chunk(sampleText(60));
+
+        assertTrue(chunks.size() > 1);
+        chunks.forEach(chunk -> assertTrue(estimator.estimate(chunk) <= 40, "Chunk exceeds budget: " + chunk));
+    }
+
+    @Test
+    void chunk_ShouldOverlapConsecutiveChunks() {
+        TextChunker chunker = new TextChunker(estimator, 40, 8);
+
+        List<String> chunks = chunker.chunk(sampleText(60));
+
+        for (int i = 1; i < chunks.size(); i++) {
+            String previous = chunks.get(i - 1);
+            String firstWord = chunks.get(i).split("\\s+")[0];
+            assertTrue(previous.contains(firstWord), "Chunk " + i + " does not overlap its predecessor");
+        }
+        assertTrue(chunks.get(chunks.size() - 1).contains("Line 59"));
+    }
+
+    @Test
+    void chunk_ShouldKeepDigitHeavyAndCjkTextWithoutSpacesWithinTokenBudget() {
+        TextChunker chunker = new TextChunker(estimator, 64, 0);
+
+        for (String text : List.of("4207193".repeat(1000), "这是一张发票请在月底之前付款".repeat(200))) {
+            List<String> chunks = chunker.chunk(text);
+
+            assertTrue(chunks.size() > 1);
+            chunks.forEach(chunk -> assertTrue(estimator.estimate(chunk) <= 64, "Chunk exceeds budget: " + chunk));
+            assertEquals(text, String.join("", chunks));
+        }
+    }
+
+    @Test
+    void chunk_ShouldNotCutBetweenSurrogatePairs() {
+        TextChunker chunker = new TextChunker(estimator, 16, 0);
+
+        List<String> chunks = chunker.chunk("📄🧾".repeat(500));
+
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertFalse(Character.isLowSurrogate(chunk.charAt(0)), "Chunk starts inside a surrogate pair");
+            assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)), "Chunk ends inside a surrogate pair");
+        }
+    }
+
+    @Test
+    void constructor_ShouldRejectOverlapLargerThanChunk() {
+        assertThrows(IllegalArgumentException.class, () -> new TextChunker(estimator, 10, 10));
+    }
+
+    private static String sampleText(int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("Line ").append(i).append(" describes item ").append(i * 7).append(" on the invoice.\n");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.klepek.datify.ingestion;
+
+import com.klepek.datify.exception.TextExtractionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextExtractorTest {
+
+    @TempDir
+    Path spoolDir;
+
+    @Test
+    void extract_ShouldSpoolTrimmedTextAndKeepOnlyItsStartInMemory() throws Exception {
+        TextExtractor extractor = new TextExtractor(new UploadSpool(spoolDir), 10);
+        String content = "\n\n  Faktura 2024117\n\nCelkem k úhradě:      12 100 Kč  \n\n";
+
+        try (ExtractedText extractedText = extractor.extract(stream(content));
+             Reader reader = extractedText.openReader()) {
+            String spooled = new String(readAll(reader));
+            assertEquals("Faktura 2024117\n\nCelkem k úhradě: 12 100 Kč", spooled);
+            assertEquals(spooled.length(), extractedText.getLength());
+            assertEquals("Faktura 20", extractedText.getPrefix());
+            assertTrue(extractedText.isTruncated());
+        }
+    }
+
+    @Test
+    void extract_ShouldRejectWhitespaceOnlyContentAndReleaseSpoolFile() throws Exception {
+        TextExtractor extractor = new TextExtractor(new UploadSpool(spoolDir), 10);
+
+        assertThrows(TextExtractionException.class, () -> extractor.extract(stream(" \n\t \n")));
+        try (var files = Files.list(spoolDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static char[] readAll(Reader reader) throws Exception {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[1024];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            text.append(buffer, 0, read);
+        }
+        return text.toString().toCharArray();
+    }
+}
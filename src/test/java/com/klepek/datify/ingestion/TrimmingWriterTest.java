@@ -0,0 +1,44 @@
+package com.klepek.datify.ingestion;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrimmingWriterTest {
+
+    @Test
+    void write_ShouldDropLeadingAndTrailingWhitespace() throws Exception {
+        StringWriter target = new StringWriter();
+        try (TrimmingWriter writer = new TrimmingWriter(target, 100)) {
+            writer.write("\n\t  Faktura 2024117  ");
+            writer.write(" \n\n");
+            assertEquals(15, writer.getLength());
+        }
+
+        assertEquals("Faktura 2024117", target.toString());
+    }
+
+    @Test
+    void write_ShouldCollapseWhitespaceRunsKeepingLineAndParagraphBreaks() throws Exception {
+        StringWriter target = new StringWriter();
+        try (TrimmingWriter writer = new TrimmingWriter(target, 100)) {
+            writer.write("Celkem" + " ".repeat(10_000) + "12 100 Kč\r\n   DPH 21 %\n \n\n\nDodavatel\tACME");
+        }
+
+        assertEquals("Celkem 12 100 Kč\nDPH 21 %\n\nDodavatel\tACME", target.toString());
+    }
+
+    @Test
+    void getPrefix_ShouldKeepStartWithoutSplittingSurrogatePair() throws Exception {
+        StringWriter target = new StringWriter();
+        TrimmingWriter writer = new TrimmingWriter(target, 4);
+        writer.write("abc📄 invoice");
+        writer.close();
+
+        assertEquals("abc", writer.getPrefix());
+        assertEquals(13, writer.getLength());
+        assertEquals("abc📄 invoice", target.toString());
+    }
+}
@@ -0,0 +1,116 @@
+package com.klepek.datify.ingestion;
+
+import com.klepek.datify.entity.Document;
+import com.klepek.datify.repository.DocumentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UploadDeduplicatorTest {
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private UploadDeduplicator deduplicator;
+
+    private Document document;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = new UploadDeduplicator(documentRepository, meterRegistry);
+        document = new Document("invoice.pdf", "application/pdf", "Faktura 2024117");
+        document.setId(1L);
+        document.setContentHash(HASH);
+    }
+
+    @Test
+    void hash_ShouldBeHexSha256OfContent() throws Exception {
+        String hash = UploadDeduplicator.hash(new ByteArrayInputStream("test".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(HASH, hash);
+    }
+
+    @Test
+    void findDuplicate_ShouldReturnIndexedDocumentWithSameHash() {
+        document.setChunkCount(3);
+        when(documentRepository.findByContentHash(HASH)).thenReturn(Optional.of(document));
+
+        assertEquals(Optional.of(document), deduplicator.findDuplicate(HASH));
+        assertEquals(1, meterRegistry.counter("datify.upload.dedup", "result", "hit").count());
+    }
+
+    @Test
+    void findDuplicate_ShouldMissForUnknownHash() {
+        when(documentRepository.findByContentHash(HASH)).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), deduplicator.findDuplicate(HASH));
+        assertEquals(1, meterRegistry.counter("datify.upload.dedup", "result", "miss").count());
+    }
+
+    @Test
+    void findDuplicate_ShouldIgnoreDocumentThatWasNeverIndexed() {
+        when(documentRepository.findByContentHash(HASH)).thenReturn(Optional.of(document));
+
+        assertEquals(Optional.empty(), deduplicator.findDuplicate(HASH));
+        assertEquals(1, meterRegistry.counter("datify.upload.dedup", "result", "miss").count());
+    }
+
+    @Test
+    void findDuplicate_ShouldReturnDocumentStillBeingIngested() {
+        when(documentRepository.findByContentHash(HASH)).thenReturn(Optional.of(document));
+        assertTrue(deduplicator.claim(HASH));
+
+        assertEquals(Optional.of(document), deduplicator.findDuplicate(HASH));
+        assertEquals(1, meterRegistry.counter("datify.upload.dedup", "result", "hit").count());
+    }
+
+    @Test
+    void findOrphan_ShouldHandOverDocumentLeftWithoutChunksToOneClaimant() {
+        when(documentRepository.findByContentHash(HASH)).thenReturn(Optional.of(document));
+
+        assertEquals(Optional.empty(), deduplicator.findDuplicate(HASH));
+        assertTrue(deduplicator.claim(HASH));
+        assertEquals(Optional.of(document), deduplicator.findOrphan(HASH));
+        assertFalse(deduplicator.claim(HASH));
+
+        deduplicator.release(HASH);
+        assertTrue(deduplicator.claim(HASH));
+    }
+
+    @Test
+    void findOrphan_ShouldIgnoreIndexedDocument() {
+        document.setChunkCount(3);
+        when(documentRepository.findByContentHash(HASH)).thenReturn(Optional.of(document));
+
+        assertEquals(Optional.empty(), deduplicator.findOrphan(HASH));
+    }
+
+    @Test
+    void resolveConflict_ShouldReturnDocumentSavedByConcurrentUpload() {
+        when(documentRepository.findByContentHash(HASH)).thenReturn(Optional.of(document));
+
+        assertEquals(document, deduplicator.resolveConflict(HASH));
+    }
+
+    @Test
+    void resolveConflict_ShouldFailWhenWinnerIsGone() {
+        when(documentRepository.findByContentHash(HASH)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> deduplicator.resolveConflict(HASH));
+    }
+}
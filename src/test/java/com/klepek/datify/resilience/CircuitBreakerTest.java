@@ -0,0 +1,74 @@
+package com.klepek.datify.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 4, 4, 0.5, Duration.ofSeconds(30), 2,
+            now::get, new SimpleMeterRegistry());
+
+    @Test
+    void onFailure_ShouldOpenOnceFailureRateReachesThreshold() {
+        call(true);
+        call(false);
+        call(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        call(false);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void tryAcquire_ShouldCloseAfterSuccessfulTrialCalls() {
+        openBreaker();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void onFailure_ShouldReopenWhenTrialCallFails() {
+        openBreaker();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            call(false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private void call(boolean succeeds) {
+        assertTrue(breaker.tryAcquire());
+        if (succeeds) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+}
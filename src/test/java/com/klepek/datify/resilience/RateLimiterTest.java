@@ -0,0 +1,51 @@
+package com.klepek.datify.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final RateLimiter limiter = new RateLimiter("test", 60, 2, Duration.ofSeconds(2), now::get,
+            new SimpleMeterRegistry());
+
+    @Test
+    void reserve_ShouldQueueCallersOnceBurstIsUsed() {
+        assertEquals(Optional.of(Duration.ZERO), limiter.reserve());
+        assertEquals(Optional.of(Duration.ZERO), limiter.reserve());
+
+        assertEquals(Optional.of(Duration.ofSeconds(1)), limiter.reserve());
+        assertEquals(Optional.of(Duration.ofSeconds(2)), limiter.reserve());
+    }
+
+    @Test
+    void reserve_ShouldRejectWhenWaitExceedsMaximum() {
+        limiter.reserve();
+        limiter.reserve();
+        limiter.reserve();
+        limiter.reserve();
+
+        assertEquals(Optional.empty(), limiter.reserve());
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals(Optional.of(Duration.ofSeconds(2)), limiter.reserve());
+    }
+
+    @Test
+    void reserve_ShouldRefillUpToBurst() {
+        limiter.reserve();
+        limiter.reserve();
+
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        assertEquals(Optional.of(Duration.ZERO), limiter.reserve());
+        assertEquals(Optional.of(Duration.ZERO), limiter.reserve());
+        assertEquals(Optional.of(Duration.ofSeconds(1)), limiter.reserve());
+    }
+}
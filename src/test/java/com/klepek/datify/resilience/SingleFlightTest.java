@@ -0,0 +1,49 @@
+package com.klepek.datify.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", new SimpleMeterRegistry());
+
+    @Test
+    void execute_ShouldShareOneCallBetweenConcurrentCallers() throws Exception {
+        Sinks.One<String> upstream = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> first = singleFlight.execute("question", () -> {
+            calls.incrementAndGet();
+            return upstream.asMono();
+        }).toFuture();
+        CompletableFuture<String> second = singleFlight.execute("question", () -> {
+            calls.incrementAndGet();
+            return upstream.asMono();
+        }).toFuture();
+        upstream.tryEmitValue("answer");
+
+        assertEquals("answer", first.get(1, TimeUnit.SECONDS));
+        assertEquals("answer", second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void execute_ShouldStartNewCallAfterPreviousCompleted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("question", () -> Mono.fromCallable(calls::incrementAndGet).map(String::valueOf)).block();
+        String second = singleFlight.execute("question",
+                () -> Mono.fromCallable(calls::incrementAndGet).map(String::valueOf)).block();
+
+        assertEquals("2", second);
+    }
+}
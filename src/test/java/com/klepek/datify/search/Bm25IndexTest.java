@@ -0,0 +1,100 @@
+package com.klepek.datify.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.Filter.ExpressionType;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Bm25IndexTest {
+
+    @Test
+    void search_ShouldRankExactIdentifierFirst() {
+        Bm25Index index = indexWithInvoices();
+
+        List<LexicalHit> hits = index.search("Which invoice has number FV-2024-0117?", 3, null);
+
+        assertFalse(hits.isEmpty());
+        assertEquals("2_0", hits.get(0).chunkId());
+        assertTrue(hits.get(0).score() > hits.get(hits.size() - 1).score());
+    }
+
+    @Test
+    void search_ShouldIgnoreCaseAndDiacritics() {
+        Bm25Index index = indexWithInvoices();
+
+        List<LexicalHit> hits = index.search("ZPŮSOB úhrady", 1, null);
+
+        assertEquals("3_0", hits.get(0).chunkId());
+    }
+
+    @Test
+    void search_ShouldApplyMetadataFilter() {
+        Bm25Index index = indexWithInvoices();
+        Filter.Expression filter = new Filter.Expression(ExpressionType.EQ, new Filter.Key("documentId"),
+                new Filter.Value(1L));
+
+        List<LexicalHit> hits = index.search("invoice total", 10, filter);
+
+        assertEquals(1, hits.size());
+        assertEquals("1_0", hits.get(0).chunkId());
+    }
+
+    @Test
+    void addAndRemove_ShouldReplaceAndDropChunks() {
+        Bm25Index index = indexWithInvoices();
+
+        index.add("2_0", "Credit note for returned goods", Map.of("documentId", 2L));
+        assertTrue(index.search("0117", 5, null).isEmpty());
+        assertEquals("2_0", index.search("credit note", 1, null).get(0).chunkId());
+
+        assertTrue(index.remove("2_0"));
+        assertFalse(index.remove("2_0"));
+        assertTrue(index.search("credit note", 5, null).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void remove_ShouldDropAllChunksMatchingFilter() {
+        Bm25Index index = indexWithInvoices();
+        index.add("2_1", "Second page of invoice FV-2024-0117", Map.of("documentId", 2L));
+
+        int removed = index.remove(new Filter.Expression(ExpressionType.EQ, new Filter.Key("documentId"),
+                new Filter.Value(2L)));
+
+        assertEquals(2, removed);
+        assertTrue(index.search("0117", 5, null).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void compact_ShouldDropDeletedChunksAndKeepLiveOnesSearchable() {
+        Bm25Index index = indexWithInvoices();
+        index.remove("1_0");
+
+        assertFalse(index.compact(0.5));
+        assertTrue(index.compact(0.2));
+
+        assertEquals(2, index.size());
+        assertEquals("2_0", index.search("FV-2024-0117", 1, null).get(0).chunkId());
+        assertEquals("3_0", index.search("IBAN", 1, new Filter.Expression(ExpressionType.EQ,
+                new Filter.Key("documentId"), new Filter.Value(3L))).get(0).chunkId());
+        assertTrue(index.search("consulting", 5, null).isEmpty());
+        assertTrue(index.remove("3_0"));
+        assertFalse(index.compact(0.6));
+    }
+
+    private Bm25Index indexWithInvoices() {
+        Bm25Index index = new Bm25Index(1.2, 0.75);
+        index.add("1_0", "Invoice total 1 250 EUR due on 2024-03-01 for consulting services",
+                Map.of("documentId", 1L));
+        index.add("2_0", "Invoice number FV-2024-0117 issued by ACME s.r.o. total 980 EUR",
+                Map.of("documentId", 2L));
+        index.add("3_0", "Způsob úhrady: bankovní převod, IBAN CZ65 0800 0000 1920 0014 5399",
+                Map.of("documentId", 3L));
+        return index;
+    }
+}
@@ -0,0 +1,78 @@
+package com.klepek.datify.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextAssemblerTest {
+
+    // Counts whitespace-separated words, so budgets in these tests are word counts
+    private final ContextAssembler assembler = new ContextAssembler(
+            text -> text.isBlank() ? 0 : text.strip().split("\\s+").length, 12, 30);
+
+    @Test
+    void packDocument_ShouldSkipChunksThatDoNotFitAndKeepSmallerOnes() {
+        List<Document> chunks = List.of(
+                chunk("a", 1L, "Faktura FV-2024-0117 vystavena dne 3. 5. 2024"),
+                chunk("b", 1L, "Dodavatel ACME s.r.o. Praha IČO 12345678 DIČ CZ12345678"),
+                chunk("c", 1L, "Splatnost 30 dní"));
+
+        ContextAssembler.PackedContext context = assembler.packDocument(chunks);
+
+        assertEquals("Faktura FV-2024-0117 vystavena dne 3. 5. 2024\n\nSplatnost 30 dní", context.text());
+        assertEquals(2, context.chunks());
+        assertTrue(context.tokens() <= 12);
+    }
+
+    @Test
+    void packDocument_ShouldDropDuplicateAndOverlappingChunks() {
+        List<Document> chunks = List.of(
+                chunk("a", 1L, "celkem k úhradě 12 100 Kč včetně DPH"),
+                chunk("b", 2L, "Celkem k úhradě: 12 100 Kč, včetně DPH."),
+                chunk("c", 1L, "Splatnost 30 dní"));
+
+        ContextAssembler.PackedContext context = assembler.packDocument(chunks);
+
+        assertEquals("celkem k úhradě 12 100 Kč včetně DPH\n\nSplatnost 30 dní", context.text());
+    }
+
+    @Test
+    void packGlobal_ShouldLabelChunksWithTheirSource() {
+        ContextAssembler.PackedContext context = assembler.packGlobal(List.of(
+                chunk("a", 7L, "Dodavatel ACME s.r.o."),
+                new Document("b", "Chunk without source", Map.of())));
+
+        assertEquals("[Source: invoice-7.pdf (ID: 7)]\nDodavatel ACME s.r.o.", context.text());
+        assertEquals(1, context.documents());
+    }
+
+    @Test
+    void truncate_ShouldCutAtWhitespaceWithinBudget() {
+        String text = "one two three four five six seven eight nine ten eleven twelve thirteen fourteen";
+
+        assertEquals("one two three four five six seven eight nine ten eleven twelve", assembler.truncate(text));
+        assertEquals("short text", assembler.truncate("short text"));
+    }
+
+    @Test
+    void truncate_ShouldOnlyMeasureTextWithinWindowOfBudget() {
+        int[] longest = {0};
+        ContextAssembler measured = new ContextAssembler(text -> {
+            longest[0] = Math.max(longest[0], text.length());
+            return text.isBlank() ? 0 : text.strip().split("\\s+").length;
+        }, 12, 30);
+        String text = "word ".repeat(100_000);
+
+        assertEquals(String.join(" ", Collections.nCopies(12, "word")), measured.truncate(text));
+        assertTrue(longest[0] <= 12 * 8, "measured " + longest[0] + " chars");
+    }
+
+    private static Document chunk(String id, long documentId, String text) {
+        return new Document(id, text, Map.of("documentId", documentId, "filename", "invoice-" + documentId + ".pdf"));
+    }
+}
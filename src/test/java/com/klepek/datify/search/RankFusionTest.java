@@ -0,0 +1,54 @@
+package com.klepek.datify.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankFusionTest {
+
+    @Test
+    void reciprocalRank_ShouldPreferChunksFoundByBothRetrievers() {
+        List<Document> semantic = List.of(document("a"), document("b"), document("c"));
+        List<LexicalHit> lexical = List.of(hit("c", 12.0), hit("d", 9.0));
+
+        List<Document> fused = RankFusion.reciprocalRank(semantic, lexical, 3, 60, RankFusionTest::lookup);
+
+        assertEquals(List.of("c", "a", "b"), fused.stream().map(Document::getId).toList());
+        assertEquals(1.0 / 63 + 1.0 / 61, fused.get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    void reciprocalRank_ShouldFetchLexicalOnlyHits() {
+        List<Document> fused = RankFusion.reciprocalRank(List.of(document("a")), List.of(hit("x", 3.0)), 5, 60,
+                RankFusionTest::lookup);
+
+        assertEquals(List.of("a", "x"), fused.stream().map(Document::getId).toList());
+        assertEquals("text x", fused.get(1).getText());
+        assertEquals(7L, fused.get(1).getMetadata().get("documentId"));
+    }
+
+    @Test
+    void reciprocalRank_ShouldSkipLexicalHitsNoLongerStored() {
+        List<Document> fused = RankFusion.reciprocalRank(List.of(document("a")), List.of(hit("gone", 3.0)), 5, 60,
+                ids -> List.of());
+
+        assertEquals(List.of("a"), fused.stream().map(Document::getId).toList());
+    }
+
+    private static Document document(String id) {
+        return new Document(id, "text " + id, Map.of("documentId", 7L));
+    }
+
+    private static LexicalHit hit(String id, double score) {
+        return new LexicalHit(id, score);
+    }
+
+    private static List<Document> lookup(Collection<String> ids) {
+        return ids.stream().map(RankFusionTest::document).toList();
+    }
+}
@@ -1,24 +1,38 @@
 package com.klepek.datify.service;
 
+import com.klepek.datify.cache.SemanticAnswerCache;
 import com.klepek.datify.entity.Document;
+import com.klepek.datify.entity.Invoice;
 import com.klepek.datify.exception.DocumentNotFoundException;
+import com.klepek.datify.ingestion.ExtractedText;
+import com.klepek.datify.ingestion.TextExtractor;
+import com.klepek.datify.ingestion.UploadDeduplicator;
 import com.klepek.datify.repository.DocumentRepository;
 import com.klepek.datify.repository.InvoiceRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.Reader;
+import java.io.StringReader;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +53,15 @@ class DocumentServiceSimpleTest {
     @Mock
     private InvoiceExtractionService invoiceExtractionService;
 
+    @Mock
+    private SemanticAnswerCache semanticAnswerCache;
+
+    @Mock
+    private TextExtractor textExtractor;
+
+    @Mock
+    private UploadDeduplicator uploadDeduplicator;
+
     @InjectMocks
     private DefaultDocumentService documentService;
 
@@ -93,6 +116,37 @@ class DocumentServiceSimpleTest {
             documentService.askQuestion(999L, "Test question"));
     }
 
+    @Test
+    void askQuestion_ShouldReuseAnswerToParaphrasedQuestion() throws Exception {
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(semanticAnswerCache.find("document:1", "Who issued the invoice?")).thenReturn(Optional.of("ACME s.r.o."));
+
+        assertEquals("ACME s.r.o.", documentService.askQuestion(1L, "Who issued the invoice?"));
+        verifyNoInteractions(vectorService, geminiService);
+    }
+
+    @Test
+    void deleteDocument_ShouldRemoveChunksInvoicesAndDocument() {
+        Invoice invoice = new Invoice();
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(invoiceRepository.findAllByDocumentId(1L)).thenReturn(List.of(invoice));
+
+        documentService.deleteDocument(1L);
+
+        InOrder order = inOrder(vectorService, invoiceRepository, documentRepository);
+        order.verify(vectorService).deleteDocument(testDocument);
+        order.verify(invoiceRepository).deleteAll(List.of(invoice));
+        order.verify(documentRepository).delete(testDocument);
+    }
+
+    @Test
+    void deleteDocument_ShouldThrowExceptionForNonExistentDocument() {
+        when(documentRepository.findById(999L)).thenReturn(Optional.empty());
+
+        assertThrows(DocumentNotFoundException.class, () -> documentService.deleteDocument(999L));
+        verifyNoInteractions(vectorService);
+    }
+
     @Test
     void uploadDocument_ShouldThrowExceptionForEmptyFile() {
         MockMultipartFile emptyFile = new MockMultipartFile("file", "empty.txt", "text/plain", new byte[0]);
@@ -108,4 +162,53 @@ class DocumentServiceSimpleTest {
         assertThrows(IllegalArgumentException.class, () ->
             documentService.uploadDocument(unsupportedFile));
     }
+
+    @Test
+    void uploadDocument_ShouldDiscardDocumentWhenIndexingFailsSoRetryIsIngested() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "Test document content".getBytes());
+        ExtractedText extractedText = mock(ExtractedText.class);
+        when(uploadDeduplicator.findDuplicate(anyString())).thenReturn(Optional.empty());
+        when(uploadDeduplicator.claim(anyString())).thenReturn(true);
+        when(textExtractor.extract(any())).thenReturn(extractedText);
+        when(extractedText.getPrefix()).thenReturn("Test document content");
+        when(extractedText.openReader()).thenAnswer(invocation -> new StringReader("Test document content"));
+        when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(vectorService.storeDocument(any(Document.class), any(Reader.class)))
+                .thenThrow(new IllegalStateException("Embedding service unavailable"))
+                .thenReturn(1);
+
+        assertThrows(IllegalStateException.class, () -> documentService.uploadDocument(file));
+        verify(vectorService).deleteDocument(any(Document.class));
+        verify(documentRepository).delete(any(Document.class));
+
+        Document retried = documentService.uploadDocument(file);
+
+        assertEquals(1, retried.getChunkCount());
+    }
+
+    @Test
+    void uploadDocument_ShouldReindexDocumentOrphanedByInterruptedIngestion() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "Test document content".getBytes());
+        ExtractedText extractedText = mock(ExtractedText.class);
+        when(uploadDeduplicator.findDuplicate(anyString())).thenReturn(Optional.empty());
+        when(uploadDeduplicator.claim(anyString())).thenReturn(true);
+        when(uploadDeduplicator.findOrphan(anyString())).thenReturn(Optional.of(testDocument));
+        when(textExtractor.extract(any())).thenReturn(extractedText);
+        when(extractedText.getPrefix()).thenReturn("Test document content");
+        when(extractedText.getLength()).thenReturn(21L);
+        when(extractedText.openReader()).thenAnswer(invocation -> new StringReader("Test document content"));
+        when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(vectorService.storeDocument(any(Document.class), any(Reader.class))).thenReturn(1);
+
+        Document uploaded = documentService.uploadDocument(file);
+
+        assertSame(testDocument, uploaded);
+        assertEquals(1, uploaded.getChunkCount());
+        assertEquals(21L, uploaded.getTextLength());
+        InOrder order = inOrder(vectorService, uploadDeduplicator);
+        order.verify(vectorService).deleteDocument(testDocument);
+        order.verify(vectorService).storeDocument(any(Document.class), any(Reader.class));
+        order.verify(uploadDeduplicator).release(anyString());
+        verify(uploadDeduplicator, never()).resolveConflict(anyString());
+    }
 }
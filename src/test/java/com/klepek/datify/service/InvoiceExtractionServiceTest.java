@@ -0,0 +1,156 @@
+package com.klepek.datify.service;
+
+import com.klepek.datify.entity.Document;
+import com.klepek.datify.entity.Invoice;
+import com.klepek.datify.ingestion.InvoiceClassifier;
+import com.klepek.datify.ingestion.InvoiceFieldExtractor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InvoiceExtractionServiceTest {
+
+    @Mock
+    private GeminiService geminiService;
+
+    private final InvoiceClassifier invoiceClassifier = new InvoiceClassifier(8, 3, 20000, new SimpleMeterRegistry());
+
+    private final InvoiceFieldExtractor invoiceFieldExtractor = new InvoiceFieldExtractor(50000);
+
+    private Document document;
+
+    @BeforeEach
+    void setUp() {
+        document = new Document();
+        document.setId(1L);
+        document.setFilename("scan-0042.pdf");
+        document.setExtractedText("ACME s.r.o., Daňový doklad 2024-117, celkem k úhradě 12 100 CZK");
+    }
+
+    @Test
+    void detectAndExtract_ShouldClassifyAndExtractInOneCall() {
+        when(geminiService.generateAnswer(eq("Detect and extract invoice data"), anyString())).thenReturn("""
+                ```json
+                {"isInvoice": true, "confidence": 0.93, "invoice": {"invoiceNumber": "2024-117",
+                 "vendorName": "ACME s.r.o.", "invoiceDate": "2024-03-01", "totalAmount": 12100,
+                 "currency": "CZK", "confidenceScore": 0.9}}
+                ```
+                """);
+        InvoiceExtractionService service = service("combined");
+
+        Optional<Invoice> invoice = service.detectAndExtract(document);
+
+        assertTrue(invoice.isPresent());
+        assertEquals("2024-117", invoice.get().getInvoiceNumber());
+        assertEquals(LocalDate.of(2024, 3, 1), invoice.get().getInvoiceDate());
+        assertEquals(0, new BigDecimal("12100").compareTo(invoice.get().getTotalAmount()));
+        verify(geminiService, times(1)).generateAnswer(anyString(), anyString());
+    }
+
+    @Test
+    void detectAndExtract_ShouldSendOnlyStartAndEndOfLongTextToGemini() {
+        String text = document.getExtractedText() + " lorem ipsum".repeat(5000) + " Konec dokladu.";
+        document.setExtractedText(text);
+        when(geminiService.generateAnswer(anyString(), anyString()))
+                .thenReturn("{\"isInvoice\": false, \"confidence\": 0.9, \"invoice\": null}");
+
+        service("combined").detectAndExtract(document);
+
+        ArgumentCaptor<String> prompt = ArgumentCaptor.forClass(String.class);
+        verify(geminiService).generateAnswer(eq("Detect and extract invoice data"), prompt.capture());
+        assertTrue(prompt.getValue().contains("Daňový doklad 2024-117"));
+        assertTrue(prompt.getValue().endsWith("Konec dokladu."));
+        assertFalse(prompt.getValue().contains(" lorem ipsum".repeat(100)));
+    }
+
+    @Test
+    void detectAndExtract_ShouldReturnEmptyWhenNotAnInvoice() {
+        when(geminiService.generateAnswer(anyString(), anyString()))
+                .thenReturn("{\"isInvoice\": false, \"confidence\": 0.97, \"invoice\": null}");
+        InvoiceExtractionService service = service("combined");
+
+        assertTrue(service.detectAndExtract(document).isEmpty());
+    }
+
+    @Test
+    void detectAndExtract_ShouldDetectThenExtractInTwoStepMode() {
+        when(geminiService.generateAnswer(eq("Invoice detection"), anyString()))
+                .thenReturn("{\"isInvoice\": true, \"confidence\": 0.9}");
+        when(geminiService.generateAnswer(eq("Extract invoice data"), anyString()))
+                .thenReturn("{\"invoiceNumber\": \"2024-117\", \"confidenceScore\": 0.9}");
+        InvoiceExtractionService service = service("two-step");
+
+        Optional<Invoice> invoice = service.detectAndExtract(document);
+
+        assertTrue(invoice.isPresent());
+        assertEquals("2024-117", invoice.get().getInvoiceNumber());
+        verify(geminiService, times(2)).generateAnswer(anyString(), anyString());
+    }
+
+    @Test
+    void detectAndExtract_ShouldSkipGeminiForClearlyUnrelatedText() {
+        document.setExtractedText("Zápis z porady týmu: vydání se posouvá na příští sprint.");
+        InvoiceExtractionService service = service("combined");
+
+        assertTrue(service.detectAndExtract(document).isEmpty());
+        verifyNoInteractions(geminiService);
+    }
+
+    @Test
+    void detectAndExtract_ShouldOnlyExtractWhenClassifiedLocallyAsInvoice() {
+        document.setExtractedText("""
+                Faktura - daňový doklad č. 2024117, Datum splatnosti: 15.03.2024
+                Variabilní symbol: 2024117, IBAN: CZ65 0800 0000 1920 0014 5399, Celkem k úhradě: 12 100,00 Kč
+                """);
+        when(geminiService.generateAnswer(eq("Extract invoice data"), anyString()))
+                .thenReturn("{\"invoiceNumber\": \"2024117\", \"confidenceScore\": 0.95}");
+        InvoiceExtractionService service = service("combined");
+
+        Optional<Invoice> invoice = service.detectAndExtract(document);
+
+        assertTrue(invoice.isPresent());
+        assertEquals("2024117", invoice.get().getInvoiceNumber());
+        verify(geminiService, times(1)).generateAnswer(anyString(), anyString());
+    }
+
+    @Test
+    void extractInvoiceData_ShouldUseRulesForLabelledLayoutWithoutGemini() {
+        document.setExtractedText("""
+                Invoice Number: INV-2024-0042
+                Supplier: ACME Corp, 1 Main Street, Springfield
+                Invoice Date: 2024-03-14
+                Due Date: 2024-04-13
+                Total Due: $1,080.00
+                """);
+
+        Invoice invoice = service("combined").extractInvoiceData(document);
+
+        assertEquals("INV-2024-0042", invoice.getInvoiceNumber());
+        assertEquals("ACME Corp", invoice.getVendorName());
+        assertEquals(0, new BigDecimal("1080.00").compareTo(invoice.getTotalAmount()));
+        assertEquals("USD", invoice.getCurrency());
+        verifyNoInteractions(geminiService);
+    }
+
+    private InvoiceExtractionService service(String detectionMode) {
+        return new DefaultInvoiceExtractionService(geminiService, invoiceClassifier, invoiceFieldExtractor,
+                detectionMode, 0.8, 1000);
+    }
+}
@@ -0,0 +1,142 @@
+package com.klepek.datify.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void search_ShouldMatchExactScanOnClusteredVectors() throws IOException {
+        try (VectorPartition partition = VectorPartition.open(directory, 1024)) {
+            HnswIndex index = new HnswIndex(partition, null, 8, 100, 50);
+            Random random = new Random(7);
+            float[][] centers = randomVectors(random, 20, 1.0f);
+            insert(partition, index, random, centers, 2000);
+
+            int found = 0;
+            for (int i = 0; i < 50; i++) {
+                float[] query = sample(random, centers);
+                Set<Integer> exact = partition.search(query, 10, -1.0, ordinal -> true).stream()
+                        .map(ScoredOrdinal::ordinal)
+                        .collect(Collectors.toSet());
+                found += (int) index.search(query, 10, -1.0, ordinal -> true).stream()
+                        .filter(hit -> exact.contains(hit.ordinal()))
+                        .count();
+            }
+
+            assertTrue(found / 500.0 >= 0.95, "Recall too low: " + found / 500.0);
+        }
+    }
+
+    @Test
+    void search_ShouldSkipDeletedAndFilteredOrdinals() throws IOException {
+        try (VectorPartition partition = VectorPartition.open(directory, 1024)) {
+            HnswIndex index = new HnswIndex(partition, null, 8, 100, 50);
+            Random random = new Random(11);
+            insert(partition, index, random, randomVectors(random, 5, 1.0f), 300);
+            partition.delete("chunk-0");
+
+            List<ScoredOrdinal> hits = index.search(partition.vector(0), 5, -1.0, ordinal -> ordinal % 2 == 0);
+
+            assertEquals(5, hits.size());
+            hits.forEach(hit -> {
+                assertNotEquals(0, hit.ordinal());
+                assertEquals(0, hit.ordinal() % 2);
+            });
+        }
+    }
+
+    @Test
+    void open_ShouldRestoreSavedGraphAndInsertNewVectors() throws IOException {
+        Path graph = directory.resolve("hnsw.graph");
+        Random random = new Random(13);
+        float[][] centers = randomVectors(random, 5, 1.0f);
+
+        try (VectorPartition partition = VectorPartition.open(directory, 1024)) {
+            HnswIndex index = HnswIndex.open(partition, graph, 8, 100, 50);
+            insert(partition, index, random, centers, 200);
+            index.close();
+            partition.add("late", VectorMath.normalize(sample(random, centers)), "late", Map.of());
+        }
+
+        try (VectorPartition partition = VectorPartition.open(directory, 1024)) {
+            HnswIndex index = HnswIndex.open(partition, graph, 8, 100, 50);
+
+            assertEquals(201, index.nodeCount());
+            assertEquals(200, index.search(partition.vector(200), 1, -1.0, ordinal -> true).get(0).ordinal());
+        }
+    }
+
+    @Test
+    void checkpoint_ShouldSaveGraphThatSurvivesMissingClose() throws IOException {
+        Path graph = directory.resolve("hnsw.graph");
+        Random random = new Random(17);
+        float[][] centers = randomVectors(random, 5, 1.0f);
+
+        try (VectorPartition partition = VectorPartition.open(directory, 1024)) {
+            HnswIndex index = HnswIndex.open(partition, graph, 8, 100, 50);
+            insert(partition, index, random, centers, 200);
+            index.checkpoint();
+            assertTrue(Files.exists(graph));
+
+            Files.delete(graph);
+            index.checkpoint();
+            assertFalse(Files.exists(graph), "Unchanged graph was written again");
+
+            insert(partition, index, random, centers, 1);
+            index.checkpoint();
+            insert(partition, index, random, centers, 1);
+            // Not closed, as after a crash
+        }
+
+        try (VectorPartition partition = VectorPartition.open(directory, 1024)) {
+            HnswIndex index = HnswIndex.open(partition, graph, 8, 100, 50);
+
+            assertEquals(202, index.nodeCount());
+            assertEquals(201, index.search(partition.vector(201), 1, -1.0, ordinal -> true).get(0).ordinal());
+        }
+    }
+
+    private static void insert(VectorPartition partition, HnswIndex index, Random random, float[][] centers,
+                               int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int ordinal = partition.add("chunk-" + i, VectorMath.normalize(sample(random, centers)), "text " + i, Map.of());
+            index.add(ordinal);
+        }
+    }
+
+    private static float[] sample(Random random, float[][] centers) {
+        float[] center = centers[random.nextInt(centers.length)];
+        float[] vector = randomVectors(random, 1, 0.5f)[0];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] += center[i];
+        }
+        return VectorMath.normalize(vector);
+    }
+
+    private static float[][] randomVectors(Random random, int count, float scale) {
+        float[][] vectors = new float[count][DIMENSIONS];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) random.nextGaussian() * scale;
+            }
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,92 @@
+package com.klepek.datify.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedVectorStoreTest {
+
+    private static final Map<String, float[]> EMBEDDINGS = Map.of(
+            "Faktura 2024117", new float[]{1, 0, 0},
+            "Dodavatel ACME s.r.o.", new float[]{0, 1, 0},
+            "Smlouva o dílo", new float[]{0, 0, 1});
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void similaritySearch_ShouldFindAddedChunksAndDeletionsAfterReopen() throws IOException {
+        try (MappedVectorStore store = open()) {
+            store.add(List.of(
+                    new Document("1_0", "Faktura 2024117", Map.of("documentId", 1L)),
+                    new Document("1_1", "Dodavatel ACME s.r.o.", Map.of("documentId", 1L)),
+                    new Document("2_0", "Smlouva o dílo", Map.of("documentId", 2L))));
+            store.delete(List.of("2_0"));
+
+            List<Document> hits = store.similaritySearch(search("Faktura 2024117"));
+
+            assertEquals(List.of("1_0"), ids(hits));
+        }
+
+        try (MappedVectorStore reopened = open()) {
+            List<Document> hits = reopened.similaritySearch(search("Dodavatel ACME s.r.o."));
+
+            assertEquals(List.of("1_1"), ids(hits));
+            assertEquals("Dodavatel ACME s.r.o.", hits.get(0).getText());
+            assertEquals(1L, ((Number) hits.get(0).getMetadata().get("documentId")).longValue());
+            assertEquals(1.0, hits.get(0).getScore(), 1e-6);
+            assertTrue(reopened.similaritySearch(search("Smlouva o dílo")).isEmpty());
+            assertEquals(List.of("1_0"), ids(reopened.findByIds(List.of("2_0", "1_0"))));
+        }
+    }
+
+    /**
+     * Segments of two vectors, so the three chunks span two mapped segment files.
+     */
+    private MappedVectorStore open() throws IOException {
+        VectorShards shards = VectorShards.open(directory, 1, 0, shardDirectory ->
+                VectorShard.open(shardDirectory, 2, 10_000, (partition, generationDirectory) -> {
+                    ExactVectorIndex index = new ExactVectorIndex(partition);
+                    return new VectorShard.Indexes(index, index);
+                }));
+        return new MappedVectorStore(new FixedModel(), List::of, shards);
+    }
+
+    private static SearchRequest search(String query) {
+        return SearchRequest.builder().query(query).topK(3).similarityThreshold(0.5).build();
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+
+    private static class FixedModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(EMBEDDINGS.get(text), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return EMBEDDINGS.get(document.getText());
+        }
+    }
+}
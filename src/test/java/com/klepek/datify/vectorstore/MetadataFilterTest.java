@@ -0,0 +1,107 @@
+package com.klepek.datify.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.Filter.ExpressionType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataFilterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compile_ShouldSelectChunksOfOneDocument() throws IOException {
+        try (VectorPartition partition = openWithChunks()) {
+            BitSet selected = select(partition, expression(ExpressionType.EQ, "documentId", 2));
+
+            assertEquals(bits(2, 3), selected);
+        }
+    }
+
+    @Test
+    void compile_ShouldCombineContentTypeAndUploadRange() throws IOException {
+        try (VectorPartition partition = openWithChunks()) {
+            Filter.Expression filter = new Filter.Expression(ExpressionType.AND,
+                    expression(ExpressionType.EQ, "contentType", "application/pdf"),
+                    new Filter.Group(new Filter.Expression(ExpressionType.AND,
+                            expression(ExpressionType.GTE, "uploadedAt", "2024-02-01T00:00"),
+                            expression(ExpressionType.LT, "uploadedAt", "2024-04-01T00:00"))));
+
+            assertEquals(bits(2, 3), select(partition, filter));
+        }
+    }
+
+    @Test
+    void compile_ShouldSupportInAndNot() throws IOException {
+        try (VectorPartition partition = openWithChunks()) {
+            BitSet in = select(partition, expression(ExpressionType.IN, "documentId", List.of(1, 3)));
+            BitSet notIn = select(partition, new Filter.Expression(ExpressionType.NOT,
+                    expression(ExpressionType.IN, "documentId", List.of(1, 3)), null));
+
+            assertEquals(bits(0, 1, 4), in);
+            assertEquals(bits(2, 3), notIn);
+        }
+    }
+
+    @Test
+    void compile_ShouldUseColumnsRestoredOnReopen() throws IOException {
+        openWithChunks().close();
+
+        try (VectorPartition partition = VectorPartition.open(directory, 16)) {
+            assertEquals(bits(4), select(partition, expression(ExpressionType.EQ, "contentType", "text/plain")));
+        }
+    }
+
+    @Test
+    void compile_ShouldRejectUnindexedKeys() throws IOException {
+        try (VectorPartition partition = openWithChunks()) {
+            assertThrows(UnsupportedOperationException.class,
+                    () -> MetadataFilter.compile(expression(ExpressionType.EQ, "filename", "a.pdf"), partition.columns()));
+        }
+    }
+
+    private VectorPartition openWithChunks() throws IOException {
+        VectorPartition partition = VectorPartition.open(directory, 16);
+        add(partition, 0, 1, "application/pdf", "2024-01-15T10:00");
+        add(partition, 1, 1, "application/pdf", "2024-01-15T10:00");
+        add(partition, 2, 2, "application/pdf", "2024-02-20T08:30:15");
+        add(partition, 3, 2, "application/pdf", "2024-02-20T08:30:15");
+        add(partition, 4, 3, "text/plain", "2024-03-01T12:00");
+        return partition;
+    }
+
+    private static void add(VectorPartition partition, int chunk, long documentId, String contentType,
+                            String uploadedAt) throws IOException {
+        float[] vector = new float[4];
+        vector[chunk % 4] = 1f;
+        partition.add("chunk-" + chunk, vector, "text " + chunk, Map.of(
+                "documentId", documentId,
+                "contentType", contentType,
+                "uploadedAt", uploadedAt));
+    }
+
+    private static BitSet select(VectorPartition partition, Filter.Expression filter) {
+        return partition.select(MetadataFilter.compile(filter, partition.columns()));
+    }
+
+    private static Filter.Expression expression(ExpressionType type, String key, Object value) {
+        return new Filter.Expression(type, new Filter.Key(key), new Filter.Value(value));
+    }
+
+    private static BitSet bits(int... ordinals) {
+        BitSet bits = new BitSet();
+        for (int ordinal : ordinals) {
+            bits.set(ordinal);
+        }
+        return bits;
+    }
+}
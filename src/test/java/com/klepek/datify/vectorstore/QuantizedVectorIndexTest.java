@@ -0,0 +1,101 @@
+package com.klepek.datify.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantizedVectorIndexTest {
+
+    private static final int DIMENSIONS = 128;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void int8_ShouldKeepRecallAtQuarterOfVectorMemory() throws IOException {
+        try (VectorPartition partition = openWithClusteredVectors(4000)) {
+            QuantizedVectorIndex index = QuantizedVectorIndex.open(partition, QuantizedVectorIndex.Encoding.INT8, 4);
+
+            RecallReport report = RecallBenchmark.run(partition, index, 50, 10);
+
+            assertTrue(report.recall() >= 0.97, "Recall too low: " + report);
+            assertTrue(report.indexBytes() * 3 < report.vectorBytes(), "Codes too large: " + report);
+        }
+    }
+
+    @Test
+    void binary_ShouldKeepRecallWithOversampledRerank() throws IOException {
+        try (VectorPartition partition = openWithClusteredVectors(4000)) {
+            QuantizedVectorIndex index = QuantizedVectorIndex.open(partition, QuantizedVectorIndex.Encoding.BINARY, 16);
+
+            RecallReport report = RecallBenchmark.run(partition, index, 50, 10);
+
+            assertTrue(report.recall() >= 0.9, "Recall too low: " + report);
+            assertTrue(report.indexBytes() * 20 < report.vectorBytes(), "Codes too large: " + report);
+        }
+    }
+
+    @Test
+    void search_ShouldRerankWithFullPrecisionScores() throws IOException {
+        try (VectorPartition partition = openWithClusteredVectors(200)) {
+            QuantizedVectorIndex index = QuantizedVectorIndex.open(partition, QuantizedVectorIndex.Encoding.BINARY, 4);
+            partition.delete("chunk-7");
+            float[] query = partition.vector(7);
+
+            List<ScoredOrdinal> hits = index.search(query, 3, -1.0, ordinal -> true);
+            List<ScoredOrdinal> exact = partition.search(query, 3, -1.0, ordinal -> true);
+
+            assertEquals(3, hits.size());
+            assertNotEquals(7, hits.get(0).ordinal());
+            assertEquals(exact.get(0).ordinal(), hits.get(0).ordinal());
+            assertEquals(exact.get(0).score(), hits.get(0).score(), 1e-6);
+        }
+    }
+
+    @Test
+    void search_ShouldFindNothingInReopenedPartitionWithEveryVectorDeleted() throws IOException {
+        float[] query;
+        try (VectorPartition partition = openWithClusteredVectors(3)) {
+            query = partition.vector(0);
+            for (int n = 0; n < 3; n++) {
+                partition.delete("chunk-" + n);
+            }
+        }
+
+        try (VectorPartition reopened = VectorPartition.open(directory, 1024)) {
+            assertEquals(DIMENSIONS, reopened.dimensions());
+            for (QuantizedVectorIndex.Encoding encoding : QuantizedVectorIndex.Encoding.values()) {
+                QuantizedVectorIndex index = QuantizedVectorIndex.open(reopened, encoding, 0);
+
+                assertTrue(index.search(query, 3, -1.0, ordinal -> true).isEmpty());
+            }
+        }
+    }
+
+    private VectorPartition openWithClusteredVectors(int count) throws IOException {
+        VectorPartition partition = VectorPartition.open(directory, 1024);
+        Random random = new Random(5);
+        float[][] centers = new float[40][DIMENSIONS];
+        for (float[] center : centers) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                center[i] = (float) random.nextGaussian();
+            }
+        }
+        for (int n = 0; n < count; n++) {
+            float[] center = centers[random.nextInt(centers.length)];
+            float[] vector = new float[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = center[i] + 0.5f * (float) random.nextGaussian();
+            }
+            partition.add("chunk-" + n, VectorMath.normalize(vector), "text " + n, Map.of());
+        }
+        return partition;
+    }
+}
@@ -0,0 +1,79 @@
+package com.klepek.datify.vectorstore;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Latency of an unfiltered exact top-10 search over 100k chunks at 768 dimensions as the shard count grows
+ * up to the number of cores. Run with {@code ./gradlew benchmark}; excluded from the regular test task.
+ */
+@Tag("benchmark")
+class ShardedSearchBenchmark {
+
+    private static final int DIMENSIONS = 768;
+    private static final int VECTORS = 100_000;
+    private static final int BATCH = 1_000;
+    private static final int QUERIES = 50;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void scaleWithShards() throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<float[]> queries = vectors(new Random(2), QUERIES);
+        double baseline = 0;
+        for (int shardCount = 1; shardCount <= cores; shardCount *= 2) {
+            try (VectorShards shards = open(directory.resolve("shards-" + shardCount), shardCount)) {
+                Random random = new Random(1);
+                for (int offset = 0; offset < VECTORS; offset += BATCH) {
+                    List<StoredRecord> records = new ArrayList<>(BATCH);
+                    for (int n = offset; n < offset + BATCH; n++) {
+                        records.add(new StoredRecord(Integer.toString(n), "", Map.of("documentId", (long) n / 20)));
+                    }
+                    shards.add(records, vectors(random, BATCH));
+                }
+
+                for (float[] query : queries) {
+                    shards.search(query, 10, -1.0, null);
+                }
+                long start = System.nanoTime();
+                for (float[] query : queries) {
+                    shards.search(query, 10, -1.0, null);
+                }
+                double millis = (System.nanoTime() - start) / 1e6 / QUERIES;
+                baseline = shardCount == 1 ? millis : baseline;
+                System.out.printf("%2d shard(s)  %7.2f ms/query  speedup %.1fx  (%d vectors, %d cores)%n",
+                        shardCount, millis, baseline / millis, VECTORS, cores);
+            }
+        }
+    }
+
+    private static VectorShards open(Path directory, int count) throws IOException {
+        return VectorShards.open(directory, count, 0, shardDirectory ->
+                VectorShard.open(shardDirectory, 16_384, 10_000, (partition, generationDirectory) -> {
+                    ExactVectorIndex index = new ExactVectorIndex(partition);
+                    return new VectorShard.Indexes(index, index);
+                }));
+    }
+
+    private static List<float[]> vectors(Random random, int count) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            float[] vector = new float[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+            vectors.add(VectorMath.normalize(vector));
+        }
+        return vectors;
+    }
+}
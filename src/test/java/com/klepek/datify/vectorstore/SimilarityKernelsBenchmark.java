@@ -0,0 +1,84 @@
+package com.klepek.datify.vectorstore;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * Scalar versus SIMD kernels over a corpus-sized scan at text-embedding-004's 768 dimensions. Run with
+ * {@code ./gradlew benchmark}; excluded from the regular test task.
+ */
+@Tag("benchmark")
+class SimilarityKernelsBenchmark {
+
+    private static final int DIMENSIONS = 768;
+    private static final int VECTORS = 20_000;
+    private static final int ROUNDS = 20;
+
+    @Test
+    void compareKernels() {
+        Random random = new Random(1);
+        float[] query = new float[DIMENSIONS];
+        float[][] vectors = new float[VECTORS][DIMENSIONS];
+        byte[] codes = new byte[VECTORS * DIMENSIONS];
+        long[] queryBits = random.longs(DIMENSIONS / Long.SIZE).toArray();
+        long[] bits = random.longs((long) VECTORS * DIMENSIONS / Long.SIZE).toArray();
+        for (int i = 0; i < DIMENSIONS; i++) {
+            query[i] = (float) random.nextGaussian();
+        }
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        random.nextBytes(codes);
+
+        for (SimilarityKernels kernels : new SimilarityKernels[]{new ScalarKernels(), VectorMath.selectKernels()}) {
+            System.out.printf("%-10s dot %7.1f ns  int8 %7.1f ns  hamming %6.1f ns  (per %d-dim vector)%n",
+                    kernels.name(),
+                    measure(() -> {
+                        float sum = 0;
+                        for (float[] vector : vectors) {
+                            sum += kernels.dot(query, vector);
+                        }
+                        return sum;
+                    }),
+                    measure(() -> {
+                        float sum = 0;
+                        for (int v = 0; v < VECTORS; v++) {
+                            sum += kernels.dotInt8(query, codes, v * DIMENSIONS);
+                        }
+                        return sum;
+                    }),
+                    measure(() -> {
+                        float sum = 0;
+                        for (int v = 0; v < VECTORS; v++) {
+                            sum += kernels.hamming(queryBits, bits, v * queryBits.length);
+                        }
+                        return sum;
+                    }),
+                    DIMENSIONS);
+        }
+    }
+
+    private static double measure(Scan scan) {
+        float sink = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += scan.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += scan.run();
+        }
+        if (Float.isNaN(sink)) {
+            System.out.println("NaN");
+        }
+        return (double) (System.nanoTime() - start) / ROUNDS / VECTORS;
+    }
+
+    @FunctionalInterface
+    private interface Scan {
+        float run();
+    }
+}
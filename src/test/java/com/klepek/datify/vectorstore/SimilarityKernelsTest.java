@@ -0,0 +1,54 @@
+package com.klepek.datify.vectorstore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarityKernelsTest {
+
+    private final SimilarityKernels scalar = new ScalarKernels();
+    private final SimilarityKernels selected = VectorMath.selectKernels();
+    private final Random random = new Random(3);
+
+    @Test
+    void dot_ShouldMatchScalarIncludingTail() {
+        for (int length : new int[]{1, 7, 16, 33, 768, 773}) {
+            float[] a = randomFloats(length);
+            float[] b = randomFloats(length);
+
+            assertEquals(scalar.dot(a, b), selected.dot(a, b), 1e-3, selected.name() + " length " + length);
+        }
+    }
+
+    @Test
+    void dotInt8_ShouldMatchScalarAtOffset() {
+        for (int length : new int[]{5, 64, 771}) {
+            float[] query = randomFloats(length);
+            byte[] codes = new byte[length + 13];
+            random.nextBytes(codes);
+
+            assertEquals(scalar.dotInt8(query, codes, 13), selected.dotInt8(query, codes, 13), 1e-2,
+                    selected.name() + " length " + length);
+        }
+    }
+
+    @Test
+    void hamming_ShouldMatchScalarAtOffset() {
+        for (int words : new int[]{1, 3, 12, 13}) {
+            long[] bits = random.longs(words).toArray();
+            long[] codes = random.longs(words + 5).toArray();
+
+            assertEquals(scalar.hamming(bits, codes, 5), selected.hamming(bits, codes, 5));
+        }
+    }
+
+    private float[] randomFloats(int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = (float) random.nextGaussian();
+        }
+        return values;
+    }
+}
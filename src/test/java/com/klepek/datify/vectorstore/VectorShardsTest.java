@@ -0,0 +1,136 @@
+package com.klepek.datify.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.Filter.ExpressionType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorShardsTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void search_ShouldMergeShardsIntoGlobalTopK() throws IOException {
+        List<StoredRecord> records = records(600);
+        List<float[]> vectors = vectors(600);
+
+        try (VectorShards sharded = open(directory.resolve("sharded"), 4);
+             VectorShards single = open(directory.resolve("single"), 1)) {
+            sharded.add(records, vectors);
+            single.add(records, vectors);
+
+            float[] query = VectorMath.normalize(vectors(1).get(0));
+            List<ScoredRecord> merged = sharded.search(query, 10, -1.0, null);
+            List<ScoredRecord> reference = single.search(query, 10, -1.0, null);
+
+            assertEquals(10, merged.size());
+            for (int i = 0; i < merged.size(); i++) {
+                assertEquals(reference.get(i).record().id(), merged.get(i).record().id());
+                assertEquals(reference.get(i).score(), merged.get(i).score(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void add_ShouldKeepChunksOfADocumentInOneShard() throws IOException {
+        try (VectorShards shards = open(directory, 4)) {
+            shards.add(records(200), vectors(200));
+
+            Filter.Expression document = new Filter.Expression(ExpressionType.EQ, new Filter.Key("documentId"),
+                    new Filter.Value(7L));
+            List<ScoredRecord> hits = shards.search(VectorMath.normalize(vectors(1).get(0)), 50, -1.0, document);
+
+            assertEquals(10, hits.size());
+            assertEquals(1, hits.stream()
+                    .map(hit -> shards.shardOf(hit.record().id(), hit.record().metadata()))
+                    .distinct()
+                    .count());
+        }
+    }
+
+    @Test
+    void open_ShouldRejectDifferentShardCount() throws IOException {
+        try (VectorShards shards = open(directory, 4)) {
+            shards.add(records(20), vectors(20));
+        }
+
+        assertThrows(IllegalStateException.class, () -> open(directory, 2));
+        try (VectorShards reopened = open(directory, 4)) {
+            assertEquals(20, reopened.liveCount());
+            assertTrue(reopened.delete("1_3"));
+            assertEquals(19, reopened.liveCount());
+        }
+    }
+
+    @Test
+    void compact_ShouldDropTombstonesAndKeepServingSearches() throws IOException {
+        List<float[]> vectors = vectors(300);
+        float[] query = VectorMath.normalize(vectors(1).get(0));
+        Filter.Expression firstTenDocuments = new Filter.Expression(ExpressionType.LT, new Filter.Key("documentId"),
+                new Filter.Value(10L));
+
+        try (VectorShards shards = open(directory, 2)) {
+            shards.add(records(300), vectors);
+            List<ScoredRecord> before = shards.search(query, 5, -1.0, null);
+            assertEquals(100, shards.delete(firstTenDocuments));
+
+            assertEquals(0, shards.compact(0.5));
+            assertEquals(2, shards.compact(0.2));
+            assertEquals(200, shards.liveCount());
+            List<ScoredRecord> after = shards.search(query, 5, -1.0, null);
+            assertTrue(after.stream().noneMatch(hit -> ((Number) hit.record().metadata().get("documentId")).longValue() < 10));
+            assertEquals(before.stream().filter(hit -> ((Number) hit.record().metadata().get("documentId")).longValue() >= 10)
+                    .findFirst().orElseThrow().record().id(), after.get(0).record().id());
+
+            shards.add(records(1), List.of(vectors.get(0)));
+            assertEquals(201, shards.liveCount());
+        }
+
+        try (VectorShards reopened = open(directory, 2)) {
+            assertEquals(201, reopened.liveCount());
+            assertEquals("0_0", reopened.search(vectors.get(0), 1, -1.0, null).get(0).record().id());
+        }
+    }
+
+    private static VectorShards open(Path directory, int count) throws IOException {
+        return VectorShards.open(directory, count, 0, shardDirectory ->
+                VectorShard.open(shardDirectory, 256, 10_000, (partition, generationDirectory) -> {
+                    ExactVectorIndex index = new ExactVectorIndex(partition);
+                    return new VectorShard.Indexes(index, index);
+                }));
+    }
+
+    private static List<StoredRecord> records(int count) {
+        List<StoredRecord> records = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            long documentId = n / 10;
+            records.add(new StoredRecord(documentId + "_" + n % 10, "chunk " + n, Map.of("documentId", documentId)));
+        }
+        return records;
+    }
+
+    private static List<float[]> vectors(int count) {
+        Random random = new Random(count);
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            float[] vector = new float[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+            vectors.add(VectorMath.normalize(vector));
+        }
+        return vectors;
+    }
+}